@@ -52,6 +52,19 @@ export const rejectSeller = async (sellerId) => {
   });
 };
 
+// criteria: { ids, createdFrom, createdTo }
+export const bulkApproveSellers = async (criteria) => {
+  return axios.put(`${API_URL}/admin/sellers/bulk-approve`, criteria, {
+    headers: getAuthHeaders()
+  });
+};
+
+export const bulkRejectSellers = async (criteria) => {
+  return axios.put(`${API_URL}/admin/sellers/bulk-reject`, criteria, {
+    headers: getAuthHeaders()
+  });
+};
+
 export const getPendingProducts = async () => {
   return axios.get(`${API_URL}/admin/products/pending`, {
     headers: getAuthHeaders()
@@ -70,6 +83,19 @@ export const rejectProduct = async (productId) => {
   });
 };
 
+// criteria: { ids, sellerId, categoryId, createdFrom, createdTo }
+export const bulkApproveProducts = async (criteria) => {
+  return axios.put(`${API_URL}/admin/products/bulk-approve`, criteria, {
+    headers: getAuthHeaders()
+  });
+};
+
+export const bulkRejectProducts = async (criteria) => {
+  return axios.put(`${API_URL}/admin/products/bulk-reject`, criteria, {
+    headers: getAuthHeaders()
+  });
+};
+
 export const getAllOrders = async () => {
   return axios.get(`${API_URL}/admin/orders`, {
     headers: getAuthHeaders()
@@ -82,3 +108,16 @@ export const updateOrderStatus = async (orderId, status) => {
   });
 };
 
+
+export const enableFlashSale = async (productId, shards = 16) => {
+  return axios.put(`${API_URL}/admin/products/${productId}/flash-sale`, {}, {
+    params: { shards },
+    headers: getAuthHeaders()
+  });
+};
+
+export const disableFlashSale = async (productId) => {
+  return axios.delete(`${API_URL}/admin/products/${productId}/flash-sale`, {
+    headers: getAuthHeaders()
+  });
+};
@@ -11,7 +11,8 @@ const getAuthHeaders = () => {
 };
 
 export const login = async (email, password) => {
-  return axios.post(`${API_URL}/auth/signin`, { email, password });
+  // Sends the guest cart cookie so the guest's cart is merged into the user's
+  return axios.post(`${API_URL}/auth/signin`, { email, password }, { withCredentials: true });
 };
 
 export const signup = async (userData) => {
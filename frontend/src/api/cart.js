@@ -2,42 +2,57 @@ import axios from 'axios';
 
 const API_URL = 'http://localhost:8080/api';
 
+// Guests have no token; their cart is tied to a cookie instead, so every call sends credentials
 const getAuthHeaders = () => {
   const token = sessionStorage.getItem('token');
-  return {
-    'Authorization': `Bearer ${token}`,
-    'Content-Type': 'application/json'
-  };
+  const headers = { 'Content-Type': 'application/json' };
+  if (token) {
+    headers['Authorization'] = `Bearer ${token}`;
+  }
+  return headers;
 };
 
+const options = () => ({ headers: getAuthHeaders(), withCredentials: true });
+
+// A signed-in user whose token is no longer accepted gets 401 rather than a guest cart; send them
+// back to sign in instead of showing the guest cart in place of theirs
+const cartClient = axios.create();
+cartClient.interceptors.response.use(undefined, (error) => {
+  if (error.response?.status === 401 && sessionStorage.getItem('token')) {
+    sessionStorage.removeItem('token');
+    sessionStorage.removeItem('user');
+    window.location.assign('/login');
+  }
+  return Promise.reject(error);
+});
+
 export const getCart = async () => {
-  return axios.get(`${API_URL}/cart`, { headers: getAuthHeaders() });
+  return cartClient.get(`${API_URL}/cart`, options());
 };
 
 export const addToCart = async (productId, quantity) => {
-  return axios.post(`${API_URL}/cart/add?productId=${productId}&quantity=${quantity}`, {}, {
-    headers: getAuthHeaders()
-  });
+  return cartClient.post(`${API_URL}/cart/add?productId=${productId}&quantity=${quantity}`, {}, options());
 };
 
 export const updateCartItem = async (cartItemId, quantity) => {
-  return axios.put(`${API_URL}/cart/items/${cartItemId}?quantity=${quantity}`, {}, {
-    headers: getAuthHeaders()
-  });
+  return cartClient.put(`${API_URL}/cart/items/${cartItemId}?quantity=${quantity}`, {}, options());
 };
 
 export const removeFromCart = async (cartItemId) => {
-  return axios.delete(`${API_URL}/cart/items/${cartItemId}`, {
-    headers: getAuthHeaders()
-  });
+  return cartClient.delete(`${API_URL}/cart/items/${cartItemId}`, options());
+};
+
+// operations: [{ type: 'ADD' | 'UPDATE' | 'REMOVE', productId, cartItemId, quantity }], applied all or nothing
+export const applyCartBatch = async (operations) => {
+  return cartClient.post(`${API_URL}/cart/batch`, { operations }, options());
 };
 
 export const clearCart = async () => {
-  return axios.delete(`${API_URL}/cart/clear`, { headers: getAuthHeaders() });
+  return cartClient.delete(`${API_URL}/cart/clear`, options());
 };
 
 export const getCartItemCount = async () => {
-  return axios.get(`${API_URL}/cart/count`, { headers: getAuthHeaders() });
+  return cartClient.get(`${API_URL}/cart/count`, options());
 };
 
 
@@ -14,6 +14,11 @@ export const getAllCategories = async () => {
   return axios.get(`${API_URL}/categories`);
 };
 
+// Categories with their subcategories in one response; served with an ETag for conditional requests
+export const getCategoryTree = async () => {
+  return axios.get(`${API_URL}/categories/tree`);
+};
+
 export const getCategoryById = async (id) => {
   return axios.get(`${API_URL}/categories/${id}`);
 };
@@ -18,11 +18,11 @@ export const getOrderById = async (id) => {
   return axios.get(`${API_URL}/orders/${id}`, { headers: getAuthHeaders() });
 };
 
-export const createOrder = async (addressId, razorpayOrderId, razorpayPaymentId, razorpaySignature) => {
-  return axios.post(
+export const createOrder = async (addressId, razorpayOrderId, razorpayPaymentId, razorpaySignature, onWaiting) => {
+  return sendAdmitted(
     `${API_URL}/orders?addressId=${addressId}&razorpayOrderId=${razorpayOrderId}&razorpayPaymentId=${razorpayPaymentId}&razorpaySignature=${razorpaySignature}`,
     {},
-    { headers: getAuthHeaders() }
+    onWaiting
   );
 };
 
@@ -32,9 +32,62 @@ export const updateOrderStatus = async (id, status) => {
   });
 };
 
-export const checkout = async (checkoutRequest) => {
-  return axios.post(`${API_URL}/orders/checkout`, checkoutRequest, {
-    headers: getAuthHeaders()
-  });
+const sleep = (ms) => new Promise((resolve) => setTimeout(resolve, ms));
+
+// withCredentials sends the CHECKOUT_NODE cookie, which a load balancer uses to bring the shopper
+// back to the server holding their ticket
+export const getCheckoutTicket = async (token) => {
+  return axios.get(`${API_URL}/orders/checkout/queue/${token}`, { headers: getAuthHeaders(), withCredentials: true });
+};
+
+export const leaveCheckoutQueue = async (token) => {
+  return axios.delete(`${API_URL}/orders/checkout/queue/${token}`, { headers: getAuthHeaders(), withCredentials: true });
+};
+
+// Sends a request that creates an order through checkout admission. When checkout is busy the
+// server answers 202 with a waiting-room ticket; poll it until admitted, then send the request again
+// with the ticket. onWaiting(ticket) is called on every poll. A full waiting room answers 503; wait
+// as long as Retry-After says and try again. A ticket that expired (404) or that reached another
+// server (421) is given up, and the request queues again rather than lose an order that may be paid.
+export const sendAdmitted = async (url, body, onWaiting) => {
+  let headers = getAuthHeaders();
+  for (;;) {
+    let response;
+    try {
+      response = await axios.post(url, body, { headers, withCredentials: true });
+    } catch (error) {
+      if (error.response?.status === 421) {
+        headers = getAuthHeaders();
+        continue;
+      }
+      if (error.response?.status !== 503) {
+        throw error;
+      }
+      const retryAfter = parseInt(error.response.headers['retry-after'], 10);
+      await sleep((Number.isNaN(retryAfter) ? 5 : retryAfter) * 1000);
+      continue;
+    }
+    if (response.status !== 202) {
+      return response;
+    }
+    let ticket = response.data.data;
+    while (ticket && ticket.status !== 'ADMITTED') {
+      if (onWaiting) onWaiting(ticket);
+      await sleep(ticket.pollAfterMs || 2000);
+      try {
+        ticket = (await getCheckoutTicket(ticket.token)).data.data;
+      } catch (error) {
+        if (error.response?.status !== 404 && error.response?.status !== 421) {
+          throw error;
+        }
+        ticket = null;
+      }
+    }
+    headers = ticket ? { ...getAuthHeaders(), 'X-Checkout-Ticket': ticket.token } : getAuthHeaders();
+  }
+};
+
+export const checkout = async (checkoutRequest, onWaiting) => {
+  return sendAdmitted(`${API_URL}/orders/checkout`, checkoutRequest, onWaiting);
 };
 
@@ -1,4 +1,5 @@
 import axios from 'axios';
+import { sendAdmitted } from './order';
 
 const API_URL = 'http://localhost:8080/api';
 
@@ -16,10 +17,9 @@ export const createRazorpayOrder = async (orderRequest) => {
   });
 };
 
-export const verifyPayment = async (verificationRequest) => {
-  return axios.post(`${API_URL}/payment/verify`, verificationRequest, {
-    headers: getAuthHeaders()
-  });
+// Creates the order, so it may wait for checkout admission like checkout does
+export const verifyPayment = async (verificationRequest, onWaiting) => {
+  return sendAdmitted(`${API_URL}/payment/verify`, verificationRequest, onWaiting);
 };
 
 // Enterprise Payment APIs
@@ -14,6 +14,11 @@ export const getAllProducts = async (page = 0, size = 20) => {
   return axios.get(`${API_URL}/products/public?page=${page}&size=${size}`);
 };
 
+// Grid tiles only: name, prices, rating, stock, seller and the first image
+export const getProductCards = async (page = 0, size = 20) => {
+  return axios.get(`${API_URL}/products/public?page=${page}&size=${size}&view=card`);
+};
+
 export const getProductById = async (id) => {
   return axios.get(`${API_URL}/products/public/${id}`);
 };
@@ -22,6 +27,20 @@ export const searchProducts = async (searchRequest) => {
   return axios.post(`${API_URL}/products/search`, searchRequest);
 };
 
+export const getSuggestions = async (query, limit = 8) => {
+  return axios.get(`${API_URL}/products/public/suggest`, { params: { q: query, limit } });
+};
+
+// Several products in one request (up to 200 ids), returned in the order given
+export const getProductsByIds = async (ids) => {
+  return axios.get(`${API_URL}/products/public/batch`, { params: { ids: ids.join(',') } });
+};
+
+// Products frequently bought together with the given one
+export const getRelatedProducts = async (id, limit = 8) => {
+  return axios.get(`${API_URL}/products/public/${id}/related`, { params: { limit } });
+};
+
 export const getProductsByCategory = async (categoryId, page = 0, size = 20) => {
   return axios.get(`${API_URL}/products/public/category/${categoryId}?page=${page}&size=${size}`);
 };
@@ -85,3 +104,26 @@ export const getMyProducts = async (page = 0, size = 20) => {
   });
 };
 
+
+// Bulk import: the file is sent as the raw body (CSV or NDJSON); poll the returned job id for progress
+export const importProducts = async (file) => {
+  const isCsv = file.name && file.name.toLowerCase().endsWith('.csv');
+  return axios.post(`${API_URL}/products/bulk`, file, {
+    headers: {
+      ...getAuthHeaders(),
+      'Content-Type': isCsv ? 'text/csv' : 'application/x-ndjson'
+    }
+  });
+};
+
+export const getImportStatus = async (jobId) => {
+  return axios.get(`${API_URL}/products/bulk/${jobId}`, { headers: getAuthHeaders() });
+};
+
+// Export downloads as a file; format is 'csv' or 'ndjson'
+export const exportMyProducts = async (format = 'csv') => {
+  return axios.get(`${API_URL}/products/seller/export?format=${format}`, {
+    headers: getAuthHeaders(),
+    responseType: 'blob'
+  });
+};
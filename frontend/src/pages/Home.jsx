@@ -21,7 +21,7 @@ const Home = () => {
 
   const fetchProducts = async () => {
     try {
-      const response = await productAPI.getAllProducts(page, 20);
+      const response = await productAPI.getProductCards(page, 20);
       if (page === 0) {
         setProducts(response.data.data.content || response.data.data);
       } else {
@@ -37,7 +37,7 @@ const Home = () => {
 
   const fetchFeaturedProducts = async () => {
     try {
-      const response = await productAPI.getAllProducts(0, 8);
+      const response = await productAPI.getProductCards(0, 8);
       setFeaturedProducts(response.data.data.content || response.data.data.slice(0, 8));
     } catch (error) {
       console.error('Error fetching featured products:', error);
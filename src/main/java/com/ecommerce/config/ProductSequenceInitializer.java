@@ -0,0 +1,48 @@
+package com.ecommerce.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// MySQL has no sequences, so Hibernate keeps product_seq as a one-row table. Product ids used to come
+// from AUTO_INCREMENT; before anything is inserted, move the table past the highest existing id so
+// the pooled generator never hands out an id that is already taken.
+//
+// Runs while the context starts, once Hibernate has updated the schema and before the web server
+// takes requests, and fails startup if the table cannot be aligned: serving with it unaligned would
+// make product inserts collide with existing rows.
+@Component
+@DependsOn("entityManagerFactory")
+public class ProductSequenceInitializer {
+
+    // Must match allocationSize on Product.id; the pooled optimizer uses ids just below the stored value
+    private static final long ALLOCATION_SIZE = 50L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void alignSequence() {
+        try {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            if (database == null || !(database.contains("MySQL") || database.contains("MariaDB"))) {
+                return; // native sequences need no help
+            }
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS product_seq (next_val BIGINT)");
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM products", Long.class);
+            long floor = (maxId != null ? maxId : 0L) + ALLOCATION_SIZE + 1;
+            Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_seq", Integer.class);
+            if (rows == null || rows == 0) {
+                jdbcTemplate.update("INSERT INTO product_seq (next_val) VALUES (?)", floor);
+            } else {
+                jdbcTemplate.update("UPDATE product_seq SET next_val = ? WHERE next_val < ?", floor, floor);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not align product_seq with existing product ids", e);
+        }
+    }
+}
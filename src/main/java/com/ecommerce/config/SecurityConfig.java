@@ -81,11 +81,14 @@ public class SecurityConfig {
                         .requestMatchers("/api/products/public/**").permitAll()
                         .requestMatchers("/api/products/search").permitAll()
                         .requestMatchers("/api/categories/**").permitAll()
+                        // Guests get a cart too; CartController tells them apart, and a rejected token
+                        // is answered 401 by JwtAuthenticationFilter rather than treated as a guest
+                        .requestMatchers("/api/cart/**").permitAll()
                         .requestMatchers("/uploads/**").permitAll()
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .requestMatchers("/api/seller/**").hasAnyRole("SELLER", "ADMIN")
                         .requestMatchers("/api/customer/**").hasAnyRole("CUSTOMER", "ADMIN")
-                        .requestMatchers("/api/cart/**", "/api/orders/**", "/api/payment/**", 
+                        .requestMatchers("/api/orders/**", "/api/payment/**", 
                                         "/api/addresses/**", "/api/wishlist/**", "/api/reviews/**").authenticated()
                         .requestMatchers("/api/products/**").hasAnyRole("SELLER", "ADMIN")
                         .anyRequest().authenticated()
@@ -104,7 +107,7 @@ public class SecurityConfig {
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
         configuration.setAllowCredentials(true);
-        configuration.setExposedHeaders(Arrays.asList("Authorization"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "Retry-After"));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
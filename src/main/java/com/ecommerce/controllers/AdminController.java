@@ -2,12 +2,26 @@ package com.ecommerce.controllers;
 
 import com.ecommerce.dto.*;
 import com.ecommerce.services.AdminService;
+import com.ecommerce.services.ProductExportService;
 import com.ecommerce.services.ProductService;
+import com.ecommerce.utils.CartStore;
+import com.ecommerce.utils.CheckoutAdmission;
+import com.ecommerce.utils.FlashSaleInventory;
+import com.ecommerce.utils.GuestCartStore;
+import com.ecommerce.utils.InventoryReservations;
+import com.ecommerce.utils.ProductDtoCache;
+import com.ecommerce.utils.ProductViewCounter;
+import com.ecommerce.utils.SearchResultCache;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -22,6 +36,33 @@ public class AdminController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductDtoCache productDtoCache;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private ProductViewCounter productViewCounter;
+
+    @Autowired
+    private ProductExportService productExportService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private GuestCartStore guestCartStore;
+
+    @Autowired
+    private InventoryReservations inventoryReservations;
+
+    @Autowired
+    private FlashSaleInventory flashSaleInventory;
+
+    @Autowired
+    private CheckoutAdmission checkoutAdmission;
+
     @GetMapping("/dashboard")
     public ResponseEntity<ApiResponse<Object>> getDashboardStats(Authentication authentication) {
         try {
@@ -35,6 +76,20 @@ public class AdminController {
         }
     }
 
+    @GetMapping("/cache-stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("productDetail", productDtoCache.stats());
+        stats.put("searchResults", searchResultCache.stats());
+        stats.put("productViews", productViewCounter.stats());
+        stats.put("carts", cartStore.stats());
+        stats.put("guestCarts", guestCartStore.stats());
+        stats.put("reservations", inventoryReservations.stats());
+        stats.put("flashSales", flashSaleInventory.stats());
+        stats.put("checkoutAdmission", checkoutAdmission.stats());
+        return ResponseEntity.ok(ApiResponse.success(stats));
+    }
+
     @GetMapping("/users")
     public ResponseEntity<ApiResponse<List<UserDto>>> getAllUsers() {
         try {
@@ -119,6 +174,26 @@ public class AdminController {
         }
     }
 
+    @PutMapping("/sellers/bulk-approve")
+    public ResponseEntity<ApiResponse<BulkModerationResult>> approveSellers(@RequestBody BulkModerationRequest request) {
+        if (!hasCriteria(request)) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Specify seller ids or at least one filter"));
+        }
+        int updated = adminService.approveSellers(request);
+        return ResponseEntity.ok(ApiResponse.success(
+                String.format("Approved %d sellers", updated), new BulkModerationResult(updated)));
+    }
+
+    @PutMapping("/sellers/bulk-reject")
+    public ResponseEntity<ApiResponse<BulkModerationResult>> rejectSellers(@RequestBody BulkModerationRequest request) {
+        if (!hasCriteria(request)) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Specify seller ids or at least one filter"));
+        }
+        int updated = adminService.rejectSellers(request);
+        return ResponseEntity.ok(ApiResponse.success(
+                String.format("Rejected %d sellers", updated), new BulkModerationResult(updated)));
+    }
+
     @GetMapping("/products/pending")
     public ResponseEntity<ApiResponse<List<ProductDto>>> getPendingProducts() {
         try {
@@ -129,6 +204,38 @@ public class AdminController {
         }
     }
 
+    @PutMapping("/products/{id}/flash-sale")
+    public ResponseEntity<ApiResponse<String>> enableFlashSale(@PathVariable Long id,
+                                                               @RequestParam(defaultValue = "16") int shards) {
+        try {
+            adminService.enableFlashSale(id, shards);
+            return ResponseEntity.ok(ApiResponse.success("Flash sale enabled", null));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Error enabling flash sale: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/products/{id}/flash-sale")
+    public ResponseEntity<ApiResponse<String>> disableFlashSale(@PathVariable Long id) {
+        try {
+            adminService.disableFlashSale(id);
+            return ResponseEntity.ok(ApiResponse.success("Flash sale disabled", null));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Error disabling flash sale: " + e.getMessage()));
+        }
+    }
+
+    // Whole catalog, every seller and moderation state, streamed like the seller export
+    @GetMapping("/products/export")
+    public void exportProducts(
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response) throws IOException {
+        response.setContentType(productExportService.contentType(format));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"catalog-" + LocalDate.now() + "." + format + "\"");
+        productExportService.exportProducts(null, format, response.getOutputStream());
+    }
+
     @PutMapping("/products/{id}/approve")
     public ResponseEntity<ApiResponse<ProductDto>> approveProduct(@PathVariable Long id) {
         try {
@@ -161,21 +268,34 @@ public class AdminController {
         }
     }
 
-    // New endpoint to approve all pending products (for testing)
+    // Ids and filters (seller, category, createdAt range) combine; an empty request is refused so a
+    // missing body cannot moderate the whole catalog
+    @PutMapping("/products/bulk-approve")
+    public ResponseEntity<ApiResponse<BulkModerationResult>> approveProducts(@RequestBody BulkModerationRequest request) {
+        if (!hasCriteria(request)) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Specify product ids or at least one filter"));
+        }
+        int updated = productService.approveProducts(request);
+        return ResponseEntity.ok(ApiResponse.success(
+                String.format("Approved %d products", updated), new BulkModerationResult(updated)));
+    }
+
+    @PutMapping("/products/bulk-reject")
+    public ResponseEntity<ApiResponse<BulkModerationResult>> rejectProducts(@RequestBody BulkModerationRequest request) {
+        if (!hasCriteria(request)) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Specify product ids or at least one filter"));
+        }
+        int updated = productService.rejectProducts(request);
+        return ResponseEntity.ok(ApiResponse.success(
+                String.format("Rejected %d products", updated), new BulkModerationResult(updated)));
+    }
+
+    // Approves every pending product (for testing)
     @PutMapping("/products/approve-all")
     public ResponseEntity<ApiResponse<Object>> approveAllPendingProducts() {
-        List<ProductDto> pendingProducts = adminService.getPendingProducts();
-        int approvedCount = 0;
-        for (ProductDto product : pendingProducts) {
-            try {
-                productService.approveProduct(product.getId());
-                approvedCount++;
-            } catch (Exception e) {
-                // Continue with next product
-            }
-        }
+        int approvedCount = productService.approveProducts(new BulkModerationRequest());
         return ResponseEntity.ok(ApiResponse.success(
-            String.format("Approved %d out of %d pending products", approvedCount, pendingProducts.size()),
+            String.format("Approved %d pending products", approvedCount),
             null
         ));
     }
@@ -189,4 +309,10 @@ public class AdminController {
             return ResponseEntity.badRequest().body(ApiResponse.error("Error fetching orders: " + e.getMessage()));
         }
     }
+
+    private static boolean hasCriteria(BulkModerationRequest request) {
+        return request != null && ((request.getIds() != null && !request.getIds().isEmpty())
+                || request.getSellerId() != null || request.getCategoryId() != null
+                || request.getCreatedFrom() != null || request.getCreatedTo() != null);
+    }
 }
@@ -1,9 +1,11 @@
 package com.ecommerce.controllers;
 
 import com.ecommerce.dto.*;
+import com.ecommerce.security.GuestCartTokens;
 import com.ecommerce.services.AuthService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -16,10 +18,21 @@ public class AuthController {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private GuestCartTokens guestCartTokens;
+
     @PostMapping("/signin")
-    public ResponseEntity<ApiResponse<JwtResponse>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
-        JwtResponse jwtResponse = authService.login(loginRequest);
-        return ResponseEntity.ok(ApiResponse.success("Login successful", jwtResponse));
+    public ResponseEntity<ApiResponse<JwtResponse>> authenticateUser(
+            @Valid @RequestBody LoginRequest loginRequest,
+            @CookieValue(name = GuestCartTokens.COOKIE_NAME, required = false) String guestToken) {
+        JwtResponse jwtResponse = authService.login(loginRequest, guestCartTokens.verify(guestToken));
+        if (guestToken == null) {
+            return ResponseEntity.ok(ApiResponse.success("Login successful", jwtResponse));
+        }
+        // The guest cart now lives in the user's cart
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, guestCartTokens.expiredCookie().toString())
+                .body(ApiResponse.success("Login successful", jwtResponse));
     }
 
     @PostMapping("/signup")
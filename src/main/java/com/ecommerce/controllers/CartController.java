@@ -1,14 +1,21 @@
 package com.ecommerce.controllers;
 
 import com.ecommerce.dto.ApiResponse;
+import com.ecommerce.dto.CartBatchRequest;
 import com.ecommerce.dto.CartDto;
+import com.ecommerce.security.GuestCartTokens;
 import com.ecommerce.security.UserPrincipal;
 import com.ecommerce.services.CartService;
+import com.ecommerce.utils.GuestCartStore;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+// Signed-in users get their own cart; anyone else gets a guest cart identified by the guest cart
+// cookie, which is issued on the first change and merged into the user's cart at sign-in
 @RestController
 @RequestMapping("/api/cart")
 @CrossOrigin(origins = "*")
@@ -17,14 +24,21 @@ public class CartController {
     @Autowired
     private CartService cartService;
 
+    @Autowired
+    private GuestCartTokens guestCartTokens;
+
+    @Autowired
+    private GuestCartStore guestCartStore;
+
     @GetMapping
-    public ResponseEntity<ApiResponse<CartDto>> getCart(Authentication authentication) {
+    public ResponseEntity<ApiResponse<CartDto>> getCart(
+            @CookieValue(name = GuestCartTokens.COOKIE_NAME, required = false) String guestToken,
+            Authentication authentication) {
         try {
-            if (authentication == null || authentication.getPrincipal() == null) {
-                return ResponseEntity.status(401).body(ApiResponse.error("User not authenticated"));
-            }
-            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-            CartDto cart = cartService.getCart(userPrincipal.getId());
+            Long userId = userId(authentication);
+            CartDto cart = userId != null
+                    ? cartService.getCart(userId)
+                    : cartService.getGuestCart(guestCartTokens.verify(guestToken));
             return ResponseEntity.ok(ApiResponse.success(cart));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Error fetching cart: " + e.getMessage()));
@@ -35,16 +49,17 @@ public class CartController {
     public ResponseEntity<ApiResponse<CartDto>> addToCart(
             @RequestParam Long productId,
             @RequestParam Integer quantity,
-            Authentication authentication) {
+            @CookieValue(name = GuestCartTokens.COOKIE_NAME, required = false) String guestToken,
+            Authentication authentication,
+            HttpServletResponse response) {
         try {
-            if (authentication == null || authentication.getPrincipal() == null) {
-                return ResponseEntity.status(401).body(ApiResponse.error("User not authenticated"));
-            }
             if (productId == null || quantity == null || quantity <= 0) {
                 return ResponseEntity.badRequest().body(ApiResponse.error("Invalid product ID or quantity"));
             }
-            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-            CartDto cart = cartService.addToCart(userPrincipal.getId(), productId, quantity);
+            Long userId = userId(authentication);
+            CartDto cart = userId != null
+                    ? cartService.addToCart(userId, productId, quantity)
+                    : cartService.addToGuestCart(guestToken(guestToken, response), productId, quantity);
             return ResponseEntity.ok(ApiResponse.success("Item added to cart", cart));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Error adding to cart: " + e.getMessage()));
@@ -55,16 +70,17 @@ public class CartController {
     public ResponseEntity<ApiResponse<CartDto>> updateCartItem(
             @PathVariable Long cartItemId,
             @RequestParam Integer quantity,
-            Authentication authentication) {
+            @CookieValue(name = GuestCartTokens.COOKIE_NAME, required = false) String guestToken,
+            Authentication authentication,
+            HttpServletResponse response) {
         try {
-            if (authentication == null || authentication.getPrincipal() == null) {
-                return ResponseEntity.status(401).body(ApiResponse.error("User not authenticated"));
-            }
             if (cartItemId == null || quantity == null || quantity < 0) {
                 return ResponseEntity.badRequest().body(ApiResponse.error("Invalid cart item ID or quantity"));
             }
-            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-            CartDto cart = cartService.updateCartItem(userPrincipal.getId(), cartItemId, quantity);
+            Long userId = userId(authentication);
+            CartDto cart = userId != null
+                    ? cartService.updateCartItem(userId, cartItemId, quantity)
+                    : cartService.updateGuestCartItem(guestToken(guestToken, response), cartItemId, quantity);
             return ResponseEntity.ok(ApiResponse.success("Cart updated", cart));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Error updating cart: " + e.getMessage()));
@@ -74,30 +90,52 @@ public class CartController {
     @DeleteMapping("/items/{cartItemId}")
     public ResponseEntity<ApiResponse<CartDto>> removeFromCart(
             @PathVariable Long cartItemId,
-            Authentication authentication) {
+            @CookieValue(name = GuestCartTokens.COOKIE_NAME, required = false) String guestToken,
+            Authentication authentication,
+            HttpServletResponse response) {
         try {
-            if (authentication == null || authentication.getPrincipal() == null) {
-                return ResponseEntity.status(401).body(ApiResponse.error("User not authenticated"));
-            }
             if (cartItemId == null) {
                 return ResponseEntity.badRequest().body(ApiResponse.error("Invalid cart item ID"));
             }
-            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-            CartDto cart = cartService.removeFromCart(userPrincipal.getId(), cartItemId);
+            Long userId = userId(authentication);
+            CartDto cart = userId != null
+                    ? cartService.removeFromCart(userId, cartItemId)
+                    : cartService.removeFromGuestCart(guestToken(guestToken, response), cartItemId);
             return ResponseEntity.ok(ApiResponse.success("Item removed from cart", cart));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Error removing from cart: " + e.getMessage()));
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<CartDto>> applyBatch(
+            @RequestBody CartBatchRequest request,
+            @CookieValue(name = GuestCartTokens.COOKIE_NAME, required = false) String guestToken,
+            Authentication authentication,
+            HttpServletResponse response) {
+        try {
+            Long userId = userId(authentication);
+            CartDto cart = userId != null
+                    ? cartService.applyBatch(userId, request)
+                    : cartService.applyGuestBatch(guestToken(guestToken, response), request);
+            return ResponseEntity.ok(ApiResponse.success("Cart updated", cart));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Error updating cart: " + e.getMessage()));
+        }
+    }
+
     @DeleteMapping("/clear")
-    public ResponseEntity<ApiResponse<Object>> clearCart(Authentication authentication) {
+    public ResponseEntity<ApiResponse<Object>> clearCart(
+            @CookieValue(name = GuestCartTokens.COOKIE_NAME, required = false) String guestToken,
+            Authentication authentication,
+            HttpServletResponse response) {
         try {
-            if (authentication == null || authentication.getPrincipal() == null) {
-                return ResponseEntity.status(401).body(ApiResponse.error("User not authenticated"));
+            Long userId = userId(authentication);
+            if (userId != null) {
+                cartService.clearCart(userId);
+            } else {
+                cartService.clearGuestCart(guestToken(guestToken, response));
             }
-            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-            cartService.clearCart(userPrincipal.getId());
             return ResponseEntity.ok(ApiResponse.success("Cart cleared", null));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Error clearing cart: " + e.getMessage()));
@@ -105,17 +143,37 @@ public class CartController {
     }
 
     @GetMapping("/count")
-    public ResponseEntity<ApiResponse<Integer>> getCartItemCount(Authentication authentication) {
+    public ResponseEntity<ApiResponse<Integer>> getCartItemCount(
+            @CookieValue(name = GuestCartTokens.COOKIE_NAME, required = false) String guestToken,
+            Authentication authentication) {
         try {
-            if (authentication == null || authentication.getPrincipal() == null) {
-                return ResponseEntity.status(401).body(ApiResponse.error("User not authenticated"));
-            }
-            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-            Integer count = cartService.getCartItemCount(userPrincipal.getId());
+            Long userId = userId(authentication);
+            Integer count = userId != null
+                    ? cartService.getCartItemCount(userId)
+                    : cartService.getGuestCartItemCount(guestCartTokens.verify(guestToken));
             return ResponseEntity.ok(ApiResponse.success(count != null ? count : 0));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Error fetching cart count: " + e.getMessage()));
         }
     }
-}
 
+    // Null for guests; anonymous requests carry a principal that is not a UserPrincipal
+    private static Long userId(Authentication authentication) {
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal userPrincipal) {
+            return userPrincipal.getId();
+        }
+        return null;
+    }
+
+    // The guest's token, or a new one set as a cookie on the response if they have none yet
+    private String guestToken(String cookieValue, HttpServletResponse response) {
+        String token = guestCartTokens.verify(cookieValue);
+        if (token == null) {
+            token = guestCartTokens.issue();
+        }
+        // Sent again on every change so the cookie lives as long as the cart does
+        response.addHeader(HttpHeaders.SET_COOKIE,
+                guestCartTokens.cookie(token, guestCartStore.getTtlMinutes()).toString());
+        return token;
+    }
+}
@@ -2,8 +2,10 @@ package com.ecommerce.controllers;
 
 import com.ecommerce.dto.ApiResponse;
 import com.ecommerce.dto.CategoryDto;
+import com.ecommerce.dto.CategoryTreeDto;
 import com.ecommerce.dto.SubCategoryDto;
 import com.ecommerce.services.CategoryService;
+import com.ecommerce.utils.HttpCacheHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -20,14 +22,24 @@ public class CategoryController {
 
     @GetMapping
     public ResponseEntity<ApiResponse<List<CategoryDto>>> getAllCategories() {
+        // Both come from the same snapshot, so the tree version also versions this list
+        CategoryTreeDto tree = categoryService.getCategoryTree();
         List<CategoryDto> categories = categoryService.getAllCategories();
-        return ResponseEntity.ok(ApiResponse.success(categories));
+        return HttpCacheHeaders.ok(categories, HttpCacheHeaders.etag("categories", tree.getVersion()), HttpCacheHeaders.CATEGORIES);
+    }
+
+    // The ETag is the tree version; Spring answers a matching If-None-Match with 304 and no body
+    @GetMapping("/tree")
+    public ResponseEntity<ApiResponse<CategoryTreeDto>> getCategoryTree() {
+        CategoryTreeDto tree = categoryService.getCategoryTree();
+        return HttpCacheHeaders.ok(tree, tree.getVersion(), HttpCacheHeaders.CATEGORIES);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<CategoryDto>> getCategoryById(@PathVariable Long id) {
         CategoryDto category = categoryService.getCategoryById(id);
-        return ResponseEntity.ok(ApiResponse.success(category));
+        return HttpCacheHeaders.ok(category, HttpCacheHeaders.etag("category", id, category.getUpdatedAt()),
+                category.getUpdatedAt(), HttpCacheHeaders.CATEGORIES);
     }
 
     @PostMapping
@@ -53,7 +65,10 @@ public class CategoryController {
     @GetMapping("/{categoryId}/subcategories")
     public ResponseEntity<ApiResponse<List<SubCategoryDto>>> getSubCategories(@PathVariable Long categoryId) {
         List<SubCategoryDto> subCategories = categoryService.getSubCategoriesByCategory(categoryId);
-        return ResponseEntity.ok(ApiResponse.success(subCategories));
+        String etag = HttpCacheHeaders.etag(subCategories.stream()
+                .map(subCategory -> subCategory.getId() + "@" + subCategory.getUpdatedAt() + "@" + subCategory.getCategoryName())
+                .toArray());
+        return HttpCacheHeaders.ok(subCategories, etag, HttpCacheHeaders.CATEGORIES);
     }
 
     @PostMapping("/subcategories")
@@ -2,9 +2,12 @@ package com.ecommerce.controllers;
 
 import com.ecommerce.dto.ApiResponse;
 import com.ecommerce.dto.CheckoutRequest;
+import com.ecommerce.dto.CheckoutTicket;
 import com.ecommerce.dto.OrderDto;
 import com.ecommerce.security.UserPrincipal;
 import com.ecommerce.services.OrderService;
+import com.ecommerce.services.PaymentService;
+import com.ecommerce.utils.CheckoutAdmission;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -20,6 +23,12 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private CheckoutAdmission checkoutAdmission;
+
+    @Autowired
+    private PaymentService paymentService;
+
     @GetMapping
     public ResponseEntity<ApiResponse<List<OrderDto>>> getUserOrders(Authentication authentication) {
         try {
@@ -50,36 +59,102 @@ public class OrderController {
         }
     }
 
+    // Goes through the same admission control as checkout
     @PostMapping
-    public ResponseEntity<ApiResponse<OrderDto>> createOrder(
+    public ResponseEntity<ApiResponse<?>> createOrder(
             @RequestParam Long addressId,
             @RequestParam String razorpayOrderId,
             @RequestParam String razorpayPaymentId,
             @RequestParam String razorpaySignature,
+            @RequestHeader(value = CheckoutAdmission.TICKET_HEADER, required = false) String ticket,
             Authentication authentication) {
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        OrderDto order = orderService.createOrder(
-                userPrincipal.getId(),
-                addressId,
-                razorpayOrderId,
-                razorpayPaymentId,
-                razorpaySignature
-        );
-        return ResponseEntity.ok(ApiResponse.success("Order placed successfully", order));
+        if (!checkoutAdmission.isLocal(ticket)) {
+            return ResponseEntity.status(CheckoutAdmission.MISDIRECTED)
+                    .body(ApiResponse.error(CheckoutAdmission.MISDIRECTED_MESSAGE));
+        }
+        CheckoutAdmission.Admission admission = checkoutAdmission.enter(userPrincipal.getId(), ticket,
+                () -> paymentService.isPaymentOf(userPrincipal.getId(), razorpayOrderId, razorpayPaymentId,
+                        razorpaySignature));
+        if (!admission.isAdmitted()) {
+            return checkoutAdmission.notAdmitted(admission);
+        }
+        try {
+            OrderDto order = orderService.createOrder(
+                    userPrincipal.getId(),
+                    addressId,
+                    razorpayOrderId,
+                    razorpayPaymentId,
+                    razorpaySignature
+            );
+            return ResponseEntity.ok(ApiResponse.success("Order placed successfully", order));
+        } finally {
+            checkoutAdmission.exit(admission);
+        }
     }
 
+    // Checkouts over the admission limit get a waiting-room ticket (202) instead of a transaction;
+    // the client polls it and sends the checkout again with the ticket once admitted. Whether the
+    // shopper has already paid, which lets them queue past a full room, is checked with Razorpay
+    // rather than taken from the request.
     @PostMapping("/checkout")
-    public ResponseEntity<ApiResponse<OrderDto>> checkout(
+    public ResponseEntity<ApiResponse<?>> checkout(
             @RequestBody CheckoutRequest request,
+            @RequestHeader(value = CheckoutAdmission.TICKET_HEADER, required = false) String ticket,
             Authentication authentication) {
+        if (authentication == null || authentication.getPrincipal() == null) {
+            return ResponseEntity.status(401).body(ApiResponse.error("User not authenticated"));
+        }
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        if (!checkoutAdmission.isLocal(ticket)) {
+            return ResponseEntity.status(CheckoutAdmission.MISDIRECTED)
+                    .body(ApiResponse.error(CheckoutAdmission.MISDIRECTED_MESSAGE));
+        }
+        CheckoutAdmission.Admission admission = checkoutAdmission.enter(userPrincipal.getId(), ticket,
+                () -> "RAZORPAY".equalsIgnoreCase(request.getPaymentMethod())
+                        && paymentService.isPaymentOf(userPrincipal.getId(), request.getRazorpayOrderId(),
+                                request.getRazorpayPaymentId(), request.getRazorpaySignature()));
+        if (!admission.isAdmitted()) {
+            return checkoutAdmission.notAdmitted(admission);
+        }
         try {
-            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
             OrderDto order = orderService.createOrderWithPaymentMethod(userPrincipal.getId(), request);
             return ResponseEntity.ok(ApiResponse.success("Order placed successfully", order));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(ApiResponse.error("Error creating order: " + e.getMessage()));
+        } finally {
+            checkoutAdmission.exit(admission);
+        }
+    }
+
+    @GetMapping("/checkout/queue/{token}")
+    public ResponseEntity<ApiResponse<CheckoutTicket>> getCheckoutTicket(@PathVariable String token,
+                                                                         Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        if (!checkoutAdmission.isLocal(token)) {
+            return ResponseEntity.status(CheckoutAdmission.MISDIRECTED)
+                    .body(ApiResponse.error(CheckoutAdmission.MISDIRECTED_MESSAGE));
+        }
+        CheckoutTicket ticket = checkoutAdmission.status(userPrincipal.getId(), token);
+        if (ticket == null) {
+            return ResponseEntity.status(404).body(ApiResponse.error("Ticket not found or expired"));
+        }
+        return ResponseEntity.ok(ApiResponse.success(ticket));
+    }
+
+    @DeleteMapping("/checkout/queue/{token}")
+    public ResponseEntity<ApiResponse<String>> leaveCheckoutQueue(@PathVariable String token,
+                                                                  Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        if (!checkoutAdmission.isLocal(token)) {
+            return ResponseEntity.status(CheckoutAdmission.MISDIRECTED)
+                    .body(ApiResponse.error(CheckoutAdmission.MISDIRECTED_MESSAGE));
+        }
+        if (!checkoutAdmission.leave(userPrincipal.getId(), token)) {
+            return ResponseEntity.status(404).body(ApiResponse.error("Ticket not found or expired"));
         }
+        return ResponseEntity.ok(ApiResponse.success("Left the checkout queue", null));
     }
 
     @PutMapping("/{id}/status")
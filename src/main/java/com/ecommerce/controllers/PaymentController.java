@@ -4,6 +4,7 @@ import com.ecommerce.dto.*;
 import com.ecommerce.security.UserPrincipal;
 import com.ecommerce.services.OrderService;
 import com.ecommerce.services.PaymentService;
+import com.ecommerce.utils.CheckoutAdmission;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -25,6 +26,9 @@ public class PaymentController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private CheckoutAdmission checkoutAdmission;
+
     // Basic Payment Operations
     @PostMapping("/create-order")
     public ResponseEntity<ApiResponse<RazorpayOrderResponse>> createRazorpayOrder(
@@ -42,30 +46,50 @@ public class PaymentController {
         }
     }
 
+    // Creates the order once the payment checks out, through the same admission control as
+    // checkout: over the limit the client gets a ticket and sends the verification again with it
     @PostMapping("/verify")
-    public ResponseEntity<ApiResponse<Object>> verifyPayment(
+    public ResponseEntity<ApiResponse<?>> verifyPayment(
             @RequestBody PaymentVerificationRequest request,
+            @RequestHeader(value = CheckoutAdmission.TICKET_HEADER, required = false) String ticket,
             Authentication authentication) {
+        CheckoutAdmission.Admission admission;
         try {
             UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-            
-            Boolean isValid = paymentService.verifyPayment(request);
-            
-            if (isValid) {
-                orderService.createOrder(
-                        userPrincipal.getId(),
-                        request.getAddressId(),
-                        request.getRazorpayOrderId(),
-                        request.getRazorpayPaymentId(),
-                        request.getRazorpaySignature()
-                );
-                return ResponseEntity.ok(ApiResponse.success("Payment verified and order created successfully", null));
-            } else {
+            if (!checkoutAdmission.isLocal(ticket)) {
+                return ResponseEntity.status(CheckoutAdmission.MISDIRECTED)
+                        .body(ApiResponse.error(CheckoutAdmission.MISDIRECTED_MESSAGE));
+            }
+
+            Boolean isValid = paymentService.verifyPayment(request, userPrincipal.getId());
+            if (!isValid) {
                 return ResponseEntity.badRequest().body(ApiResponse.error("Payment verification failed"));
             }
+            admission = checkoutAdmission.enter(userPrincipal.getId(), ticket, () -> paymentService.isPaymentOf(
+                    userPrincipal.getId(), request.getRazorpayOrderId(), request.getRazorpayPaymentId(),
+                    request.getRazorpaySignature()));
+            if (!admission.isAdmitted()) {
+                return checkoutAdmission.notAdmitted(admission);
+            }
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Error verifying payment: " + e.getMessage()));
+        }
+        try {
+            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+            orderService.createOrder(
+                    userPrincipal.getId(),
+                    request.getAddressId(),
+                    request.getRazorpayOrderId(),
+                    request.getRazorpayPaymentId(),
+                    request.getRazorpaySignature()
+            );
+            return ResponseEntity.ok(ApiResponse.success("Payment verified and order created successfully", null));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(ApiResponse.error("Error verifying payment: " + e.getMessage()));
+        } finally {
+            checkoutAdmission.exit(admission);
         }
     }
 
@@ -1,19 +1,34 @@
 package com.ecommerce.controllers;
 
 import com.ecommerce.dto.ApiResponse;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.ProductCardDto;
 import com.ecommerce.dto.ProductDto;
+import com.ecommerce.dto.ProductImportReport;
 import com.ecommerce.dto.ProductSearchRequest;
+import com.ecommerce.dto.SuggestionDto;
 import com.ecommerce.security.UserPrincipal;
+import com.ecommerce.services.ProductExportService;
+import com.ecommerce.services.ProductImportService;
 import com.ecommerce.services.ProductService;
+import com.ecommerce.utils.CatalogFormats;
+import com.ecommerce.utils.HttpCacheHeaders;
+import com.ecommerce.utils.ProductViewCounter;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -27,18 +42,84 @@ public class ProductController {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductExportService productExportService;
+
+    @Autowired
+    private ProductViewCounter productViewCounter;
+
     @GetMapping("/public")
     public ResponseEntity<ApiResponse<Page<ProductDto>>> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
         Page<ProductDto> products = productService.getAllProducts(page, size);
-        return ResponseEntity.ok(ApiResponse.success(products));
+        return HttpCacheHeaders.ok(products, pageEtag(products), HttpCacheHeaders.PRODUCT_LIST);
+    }
+
+    // Keyset mode: selected by the presence of a cursor parameter (empty for the first page)
+    @GetMapping(value = "/public", params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<ProductDto>>> getAllProductsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        CursorPage<ProductDto> products = productService.getAllProducts(cursor, size, sortBy, includeTotal);
+        return HttpCacheHeaders.ok(products, pageEtag(products), HttpCacheHeaders.PRODUCT_LIST);
+    }
+
+    @GetMapping("/public/suggest")
+    public ResponseEntity<ApiResponse<List<SuggestionDto>>> getSuggestions(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "8") int limit) {
+        List<SuggestionDto> suggestions = productService.getSuggestions(query, limit);
+        return ResponseEntity.ok().cacheControl(HttpCacheHeaders.SUGGESTIONS).body(ApiResponse.success(suggestions));
+    }
+
+    // view=card returns grid tiles instead of full products on the listing endpoints, read from the
+    // denormalized product_listing table
+    @GetMapping(value = "/public", params = {"view=card", "!cursor"})
+    public ResponseEntity<ApiResponse<Page<ProductCardDto>>> getAllProductCards(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Page<ProductCardDto> cards = productService.getAllProductCards(page, size);
+        return HttpCacheHeaders.ok(cards, cardPageEtag(cards), HttpCacheHeaders.PRODUCT_LIST);
+    }
+
+    @GetMapping(value = "/public", params = {"view=card", "cursor"})
+    public ResponseEntity<ApiResponse<CursorPage<ProductCardDto>>> getAllProductCardsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        CursorPage<ProductCardDto> cards = productService.getAllProductCards(cursor, size, sortBy, includeTotal);
+        return HttpCacheHeaders.ok(cards, cardPageEtag(cards), HttpCacheHeaders.PRODUCT_LIST);
+    }
+
+    // Products in the order of the ids asked for, for pages that show many products at once
+    @GetMapping("/public/batch")
+    public ResponseEntity<ApiResponse<List<ProductDto>>> getProductsByIds(@RequestParam List<Long> ids) {
+        List<ProductDto> products = productService.getProductsByIds(ids);
+        return HttpCacheHeaders.ok(products, HttpCacheHeaders.etag(products), HttpCacheHeaders.PRODUCT_DETAIL);
+    }
+
+    @GetMapping("/public/{id}/related")
+    public ResponseEntity<ApiResponse<List<ProductDto>>> getRelatedProducts(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "8") int limit) {
+        List<ProductDto> products = productService.getRelatedProducts(id, limit);
+        return HttpCacheHeaders.ok(products, HttpCacheHeaders.etag(products, id, limit), HttpCacheHeaders.PRODUCT_LIST);
     }
 
     @GetMapping("/public/{id}")
     public ResponseEntity<ApiResponse<ProductDto>> getProductById(@PathVariable Long id) {
         ProductDto product = productService.getProductById(id);
-        return ResponseEntity.ok(ApiResponse.success(product));
+        // Counted here rather than in the service, which also serves internal lookups; views answered
+        // by a shared cache without reaching us are not counted
+        productViewCounter.recordView(id);
+        return HttpCacheHeaders.ok(product, HttpCacheHeaders.etag(product), product.getUpdatedAt(), HttpCacheHeaders.PRODUCT_DETAIL);
     }
 
     @PostMapping("/search")
@@ -47,13 +128,68 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success(products));
     }
 
+    @PostMapping(value = "/search", params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<ProductDto>>> searchProductsByCursor(
+            @RequestBody ProductSearchRequest searchRequest,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        CursorPage<ProductDto> products = productService.searchProducts(searchRequest, cursor, includeTotal);
+        return ResponseEntity.ok(ApiResponse.success(products));
+    }
+
+    @PostMapping(value = "/search", params = {"view=card", "!cursor"})
+    public ResponseEntity<ApiResponse<Page<ProductCardDto>>> searchProductCards(@RequestBody ProductSearchRequest searchRequest) {
+        Page<ProductCardDto> cards = productService.searchProductCards(searchRequest);
+        return ResponseEntity.ok(ApiResponse.success(cards));
+    }
+
+    @PostMapping(value = "/search", params = {"view=card", "cursor"})
+    public ResponseEntity<ApiResponse<CursorPage<ProductCardDto>>> searchProductCardsByCursor(
+            @RequestBody ProductSearchRequest searchRequest,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        CursorPage<ProductCardDto> cards = productService.searchProductCards(searchRequest, cursor, includeTotal);
+        return ResponseEntity.ok(ApiResponse.success(cards));
+    }
+
     @GetMapping("/public/category/{categoryId}")
     public ResponseEntity<ApiResponse<Page<ProductDto>>> getProductsByCategory(
             @PathVariable Long categoryId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
         Page<ProductDto> products = productService.getProductsByCategory(categoryId, page, size);
-        return ResponseEntity.ok(ApiResponse.success(products));
+        return HttpCacheHeaders.ok(products, pageEtag(products), HttpCacheHeaders.PRODUCT_LIST);
+    }
+
+    @GetMapping(value = "/public/category/{categoryId}", params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<ProductDto>>> getProductsByCategoryByCursor(
+            @PathVariable Long categoryId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        CursorPage<ProductDto> products = productService.getProductsByCategory(categoryId, cursor, size, sortBy, includeTotal);
+        return HttpCacheHeaders.ok(products, pageEtag(products), HttpCacheHeaders.PRODUCT_LIST);
+    }
+
+    @GetMapping(value = "/public/category/{categoryId}", params = {"view=card", "!cursor"})
+    public ResponseEntity<ApiResponse<Page<ProductCardDto>>> getProductCardsByCategory(
+            @PathVariable Long categoryId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Page<ProductCardDto> cards = productService.getProductCardsByCategory(categoryId, page, size);
+        return HttpCacheHeaders.ok(cards, cardPageEtag(cards), HttpCacheHeaders.PRODUCT_LIST);
+    }
+
+    @GetMapping(value = "/public/category/{categoryId}", params = {"view=card", "cursor"})
+    public ResponseEntity<ApiResponse<CursorPage<ProductCardDto>>> getProductCardsByCategoryByCursor(
+            @PathVariable Long categoryId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        CursorPage<ProductCardDto> cards = productService.getProductCardsByCategory(categoryId, cursor, size, sortBy, includeTotal);
+        return HttpCacheHeaders.ok(cards, cardPageEtag(cards), HttpCacheHeaders.PRODUCT_LIST);
     }
 
     @PostMapping(consumes = {"multipart/form-data"})
@@ -153,5 +289,71 @@ public class ProductController {
         Page<ProductDto> products = productService.getProductsBySeller(userPrincipal.getId(), page, size);
         return ResponseEntity.ok(ApiResponse.success(products));
     }
+
+    @GetMapping(value = "/seller/my-products", params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<ProductDto>>> getMyProductsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        CursorPage<ProductDto> products = productService.getProductsBySeller(userPrincipal.getId(), cursor, size, sortBy, includeTotal);
+        return ResponseEntity.ok(ApiResponse.success(products));
+    }
+
+    // The request body is the file itself, so it streams to disk without multipart size limits.
+    // The import runs in the background; poll the returned job for progress and row errors.
+    @PostMapping(value = "/bulk", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ApiResponse<ProductImportReport>> importProducts(
+            HttpServletRequest request,
+            Authentication authentication) throws IOException {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        String format = "csv".equals(MediaType.parseMediaType(request.getContentType()).getSubtype())
+                ? CatalogFormats.CSV
+                : CatalogFormats.NDJSON;
+        ProductImportReport report = productImportService.submitImport(request.getInputStream(), format, userPrincipal.getId());
+        productImportService.runImport(report.getJobId());
+        return ResponseEntity.accepted().body(ApiResponse.success("Import started", report));
+    }
+
+    @GetMapping("/bulk/{jobId}")
+    public ResponseEntity<ApiResponse<ProductImportReport>> getImportStatus(
+            @PathVariable String jobId,
+            Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        ProductImportReport report = productImportService.getImportStatus(jobId, userPrincipal.getId());
+        return ResponseEntity.ok(ApiResponse.success(report));
+    }
+
+    // Written straight to the response as rows arrive from the database, so exports of any size
+    // neither buffer in memory nor run into the async request timeout
+    @GetMapping("/seller/export")
+    public void exportMyProducts(
+            @RequestParam(defaultValue = "csv") String format,
+            Authentication authentication,
+            HttpServletResponse response) throws IOException {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        response.setContentType(productExportService.contentType(format));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"products-" + LocalDate.now() + "." + format + "\"");
+        productExportService.exportProducts(userPrincipal.getId(), format, response.getOutputStream());
+    }
+
+    private static String cardPageEtag(Page<ProductCardDto> cards) {
+        return HttpCacheHeaders.cardsEtag(cards.getContent(), cards.getNumber(), cards.getSize(), cards.getTotalElements());
+    }
+
+    private static String cardPageEtag(CursorPage<ProductCardDto> cards) {
+        return HttpCacheHeaders.cardsEtag(cards.getContent(), cards.getNextCursor(), cards.getHasNext(), cards.getTotalElements());
+    }
+
+    private static String pageEtag(Page<ProductDto> products) {
+        return HttpCacheHeaders.etag(products.getContent(), products.getNumber(), products.getSize(), products.getTotalElements());
+    }
+
+    private static String pageEtag(CursorPage<ProductDto> products) {
+        return HttpCacheHeaders.etag(products.getContent(), products.getNextCursor(), products.getHasNext(), products.getTotalElements());
+    }
 }
 
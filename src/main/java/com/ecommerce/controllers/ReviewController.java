@@ -4,6 +4,7 @@ import com.ecommerce.dto.ApiResponse;
 import com.ecommerce.dto.ReviewDto;
 import com.ecommerce.security.UserPrincipal;
 import com.ecommerce.services.ReviewService;
+import com.ecommerce.utils.HttpCacheHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -26,7 +27,13 @@ public class ReviewController {
                 return ResponseEntity.badRequest().body(ApiResponse.error("Invalid product ID"));
             }
             List<ReviewDto> reviews = reviewService.getProductReviews(productId);
-            return ResponseEntity.ok(ApiResponse.success(reviews != null ? reviews : List.of()));
+            if (reviews == null) {
+                reviews = List.of();
+            }
+            String etag = HttpCacheHeaders.etag(reviews.stream()
+                    .map(review -> review.getId() + "@" + review.getUpdatedAt())
+                    .toArray());
+            return HttpCacheHeaders.ok(reviews, etag, HttpCacheHeaders.REVIEWS);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Error fetching reviews: " + e.getMessage()));
         }
@@ -42,7 +49,8 @@ public class ReviewController {
             if (review == null) {
                 return ResponseEntity.status(404).body(ApiResponse.error("Review not found"));
             }
-            return ResponseEntity.ok(ApiResponse.success(review));
+            return HttpCacheHeaders.ok(review, HttpCacheHeaders.etag("review", review.getId(), review.getUpdatedAt()),
+                    review.getUpdatedAt(), HttpCacheHeaders.REVIEWS);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Error fetching review: " + e.getMessage()));
         }
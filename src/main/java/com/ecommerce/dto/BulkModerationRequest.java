@@ -0,0 +1,22 @@
+package com.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Selects what a bulk approve or reject applies to; every criterion is optional and they combine
+// with AND. sellerId and categoryId only apply to products.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkModerationRequest {
+
+    private List<Long> ids;
+    private Long sellerId;
+    private Long categoryId;
+    private LocalDateTime createdFrom; // inclusive
+    private LocalDateTime createdTo; // exclusive
+}
@@ -7,7 +7,9 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @NoArgsConstructor
@@ -18,6 +20,8 @@ public class CartDto {
     private Long userId;
     private List<CartItemDto> cartItems = new ArrayList<>();
     private BigDecimal totalAmount;
+    private Integer itemCount; // sum of quantities
+    private Map<Long, BigDecimal> sellerSubtotals = new LinkedHashMap<>(); // by seller id
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
@@ -0,0 +1,22 @@
+package com.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One step of a batch cart change. UPDATE and REMOVE name the line by productId or cartItemId;
+// an UPDATE to quantity 0 removes the line.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartOperation {
+
+    private Type type;
+    private Long productId;
+    private Long cartItemId;
+    private Integer quantity;
+
+    public enum Type {
+        ADD, UPDATE, REMOVE
+    }
+}
@@ -0,0 +1,17 @@
+package com.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryTreeDto {
+
+    private String version; // content hash, also sent as the ETag
+    private List<CategoryDto> categories = new ArrayList<>();
+}
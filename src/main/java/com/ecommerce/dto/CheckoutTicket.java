@@ -0,0 +1,19 @@
+package com.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A place in the checkout waiting room. Clients poll it until the status is ADMITTED, then send
+// the checkout again with the token in the X-Checkout-Ticket header.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutTicket {
+
+    private String token;
+    private String status; // "WAITING", "ADMITTED"
+    private Integer position; // 1 for the next shopper to be admitted; 0 once admitted
+    private Long estimatedWaitSeconds;
+    private Long pollAfterMs;
+}
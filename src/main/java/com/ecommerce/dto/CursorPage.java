@@ -0,0 +1,23 @@
+package com.ecommerce.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> content = new ArrayList<>();
+    private String nextCursor; // null on the last page
+    private Boolean hasNext;
+    private Integer size;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalElements; // only counted when the client asks for it
+}
@@ -0,0 +1,20 @@
+package com.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetCountDto {
+
+    private Long id; // category and subcategory facets only; value is then the name
+    private String value;
+    private Long count;
+
+    public FacetCountDto(String value, Long count) {
+        this.value = value;
+        this.count = count;
+    }
+}
@@ -0,0 +1,17 @@
+package com.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceRangeFacetDto {
+
+    private BigDecimal min;
+    private BigDecimal max; // null for the open-ended top range
+    private Long count;
+}
@@ -0,0 +1,48 @@
+package com.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// What a product grid tile shows (view=card): no description, dimensions or category details, and
+// only the first image. images stays a list so clients can render cards and full products alike.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCardDto {
+
+    private Long id;
+    private String name;
+    private String brand;
+    private BigDecimal price;
+    private BigDecimal discountPrice;
+    private Integer stockQuantity;
+    private Double averageRating;
+    private Integer totalReviews;
+    private String sellerName;
+    private LocalDateTime updatedAt;
+    private List<String> images = new ArrayList<>();
+
+    // Constructor expression target for the card queries; the first image is filled in afterwards
+    public ProductCardDto(Long id, String name, String brand, BigDecimal price, BigDecimal discountPrice,
+                          Integer stockQuantity, Double averageRating, Integer totalReviews,
+                          String sellerName, LocalDateTime updatedAt) {
+        this(id, name, brand, price, discountPrice, stockQuantity, averageRating, totalReviews,
+                sellerName, updatedAt, new ArrayList<>());
+    }
+
+    public static ProductCardDto of(ProductDto product) {
+        List<String> images = new ArrayList<>();
+        if (product.getImages() != null && !product.getImages().isEmpty()) {
+            images.add(product.getImages().get(0));
+        }
+        return new ProductCardDto(product.getId(), product.getName(), product.getBrand(), product.getPrice(),
+                product.getDiscountPrice(), product.getStockQuantity(), product.getAverageRating(),
+                product.getTotalReviews(), product.getSellerName(), product.getUpdatedAt(), images);
+    }
+}
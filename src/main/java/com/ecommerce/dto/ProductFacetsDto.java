@@ -0,0 +1,20 @@
+package com.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetsDto {
+
+    private List<FacetCountDto> brands = new ArrayList<>();
+    private List<FacetCountDto> categories = new ArrayList<>(); // value is the category name, id its id
+    private List<FacetCountDto> subCategories = new ArrayList<>(); // value is the subcategory name, id its id
+    private List<PriceRangeFacetDto> priceRanges = new ArrayList<>();
+    private List<FacetCountDto> ratings = new ArrayList<>(); // value "4" counts products rated 4 and up
+}
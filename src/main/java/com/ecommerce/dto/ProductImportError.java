@@ -0,0 +1,14 @@
+package com.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportError {
+
+    private Long row; // 1-based data row, not counting the CSV header
+    private String message;
+}
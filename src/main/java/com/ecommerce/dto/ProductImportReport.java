@@ -0,0 +1,27 @@
+package com.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportReport {
+
+    private String jobId;
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED
+    private String format;
+    private Long rowsRead;
+    private Long imported;
+    private Long failed;
+    private List<ProductImportError> errors = new ArrayList<>(); // first errors only; failed has the full count
+    private String message;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,21 @@
+package com.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Flat projection of the lazy to-one associations a product listing needs, loaded for a whole page at once
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRelationsDto {
+
+    private Long productId;
+    private Long sellerId;
+    private String sellerFirstName;
+    private String sellerLastName;
+    private Long categoryId;
+    private String categoryName;
+    private Long subCategoryId;
+    private String subCategoryName;
+}
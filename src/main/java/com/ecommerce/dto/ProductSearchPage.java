@@ -0,0 +1,21 @@
+package com.ecommerce.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+// A regular search page, of full products or cards, that can also carry the facet counts for the whole result set
+public class ProductSearchPage<T> extends PageImpl<T> {
+
+    private final ProductFacetsDto facets;
+
+    public ProductSearchPage(Page<T> page, ProductFacetsDto facets) {
+        super(page.getContent(), page.getPageable(), page.getTotalElements());
+        this.facets = facets;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public ProductFacetsDto getFacets() {
+        return facets;
+    }
+}
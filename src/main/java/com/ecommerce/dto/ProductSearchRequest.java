@@ -17,8 +17,9 @@ public class ProductSearchRequest {
     private BigDecimal minPrice;
     private BigDecimal maxPrice;
     private String brand;
-    private String sortBy; // price_asc, price_desc, rating_desc, newest
+    private String sortBy; // relevance, price_asc, price_desc, rating_desc, newest
     private Integer page = 0;
     private Integer size = 20;
+    private Boolean includeFacets = false;
 }
 
@@ -0,0 +1,15 @@
+package com.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDto {
+
+    private String text;
+    private String type; // PRODUCT, BRAND, CATEGORY, SUBCATEGORY
+    private Long id; // product, category or subcategory id; null for brands
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// A product sold from FlashSaleInventory's in-memory counters while active. The row is also the
+// lock that switches a product between the counters and ordinary stock updates: checkouts taking
+// from the counters hold it shared, enabling and disabling hold it exclusively.
+@Entity
+@Table(name = "flash_sales")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSale {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer shards;
+
+    // Bumped each time the sale is enabled, so counters loaded for an earlier run are not reused
+    @Column(nullable = false)
+    private Long generation;
+
+    @Column(nullable = false)
+    private Boolean active = true;
+
+    @Column(nullable = false)
+    private LocalDateTime startedAt;
+
+    private LocalDateTime endedAt;
+}
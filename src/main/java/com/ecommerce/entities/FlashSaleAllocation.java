@@ -0,0 +1,42 @@
+package com.ecommerce.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// A slice of a flash sale's stock leased to one node's counters. Claimed only while the product's
+// stock not leased to any node covers it, and released once expired, when the debits written against
+// it are taken off products.stock_quantity and the units it did not sell are free again.
+@Entity
+@Table(name = "flash_sale_allocations", indexes = {
+    @Index(name = "idx_flash_sale_allocations_product", columnList = "product_id"),
+    @Index(name = "idx_flash_sale_allocations_expires", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleAllocation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Long generation;
+
+    @Column(name = "node_id", nullable = false, length = 36)
+    private String nodeId;
+
+    // Units leased, sold or not, less any handed back early
+    @Column(nullable = false)
+    private Integer units;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Units sold from a flash sale's counters that have not been taken off products.stock_quantity yet.
+// Inserted by the order's transaction against the node's lease, and deleted when that lease is
+// released and they are applied.
+@Entity
+@Table(name = "flash_sale_debits", indexes = {
+    @Index(name = "idx_flash_sale_debits_product", columnList = "product_id"),
+    @Index(name = "idx_flash_sale_debits_allocation", columnList = "allocation_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleDebit {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "allocation_id")
+    private Long allocationId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -14,15 +14,22 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+// (sort key, id) indexes let keyset pages seek; see ProductSeekRepository
+@Table(name = "products", indexes = {
+    @Index(name = "idx_products_created_at_id", columnList = "created_at, id"),
+    @Index(name = "idx_products_discount_price_id", columnList = "discount_price, id"),
+    @Index(name = "idx_products_average_rating_id", columnList = "average_rating, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @EntityListeners(AuditingEntityListener.class)
 public class Product {
 
+    // Pooled sequence rather than IDENTITY so inserts can be batched; ids are handed out 50 at a time
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -49,7 +56,9 @@ public class Product {
     @JoinColumn(name = "sub_category_id")
     private SubCategory subCategory;
 
-    @Column(nullable = false)
+    // Written only by StockLedger and flash-sale reconciliation, never by saving the entity, which
+    // would put back the count it was loaded with over concurrent decrements
+    @Column(nullable = false, updatable = false)
     private Integer stockQuantity;
 
     @Column(nullable = false)
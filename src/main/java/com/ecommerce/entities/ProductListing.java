@@ -0,0 +1,79 @@
+package com.ecommerce.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Read model for product grids: one flat row per product with the seller, category and subcategory
+// names and the first image copied in, so listings need no joins. Kept in step with products by
+// ProductListingUpdater inside the same transactions that change them.
+@Entity
+@Table(name = "product_listing", indexes = {
+    @Index(name = "idx_product_listing_visible", columnList = "visible"),
+    @Index(name = "idx_product_listing_category", columnList = "category_id"),
+    @Index(name = "idx_product_listing_seller", columnList = "seller_id"),
+    // (sort key, id) indexes let keyset card pages seek; see ProductSeekRepository
+    @Index(name = "idx_product_listing_created_at_id", columnList = "created_at, product_id"),
+    @Index(name = "idx_product_listing_discount_price_id", columnList = "discount_price, product_id"),
+    @Index(name = "idx_product_listing_average_rating_id", columnList = "average_rating, product_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductListing {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(nullable = false)
+    private String name;
+
+    private String brand;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal price;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal discountPrice;
+
+    // Kept in step with products by the same statements that change stock; see Product.stockQuantity
+    @Column(nullable = false, updatable = false)
+    private Integer stockQuantity;
+
+    private Double averageRating;
+
+    private Integer totalReviews;
+
+    @Column(name = "seller_id", nullable = false)
+    private Long sellerId;
+
+    private String sellerName;
+
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    private String categoryName;
+
+    @Column(name = "sub_category_id")
+    private Long subCategoryId;
+
+    private String subCategoryName;
+
+    @Column(length = 1000)
+    private String firstImage;
+
+    // Active and approved, i.e. shown on public listings
+    @Column(nullable = false)
+    private Boolean visible;
+
+    private LocalDateTime createdAt;
+
+    // When this row last changed, which is what listing ETags need
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,28 @@
+package com.ecommerce.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Written only by ProductViewCounter's batched upsert; deliberately not linked to products so a
+// flush never fails on a product deleted since it was viewed
+@Entity
+@Table(name = "product_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductStats {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(nullable = false)
+    private Long viewCount = 0L;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -2,8 +2,11 @@ package com.ecommerce.repositories;
 
 import com.ecommerce.entities.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,6 +15,13 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 
     List<CartItem> findByCartId(Long cartId);
 
+    List<CartItem> findByCartIdIn(Collection<Long> cartIds);
+
+    // Rows of [itemId, productId, quantity, price, sellerId], without loading products
+    @Query("SELECT ci.id, p.id, ci.quantity, ci.price, p.seller.id FROM CartItem ci JOIN ci.product p " +
+           "WHERE ci.cart.id = :cartId ORDER BY ci.id")
+    List<Object[]> findLinesByCartId(@Param("cartId") Long cartId);
+
     Optional<CartItem> findByCartIdAndProductId(Long cartId, Long productId);
 
     void deleteByCartId(Long cartId);
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,5 +28,13 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     @Query("SELECT DISTINCT o FROM Order o JOIN o.orderItems oi WHERE oi.product.seller.id = :sellerId AND o.status = :status")
     List<Order> findBySellerIdAndStatus(@Param("sellerId") Long sellerId, @Param("status") Order.OrderStatus status);
+
+    @Query("SELECT o.id FROM Order o WHERE o.id > :afterId AND o.status NOT IN :excludedStatuses ORDER BY o.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId,
+                            @Param("excludedStatuses") Collection<Order.OrderStatus> excludedStatuses,
+                            Pageable pageable);
+
+    @Query("SELECT oi.order.id, oi.product.id FROM OrderItem oi WHERE oi.order.id IN :orderIds")
+    List<Object[]> findProductIdsByOrderIds(@Param("orderIds") Collection<Long> orderIds);
 }
 
@@ -0,0 +1,48 @@
+package com.ecommerce.repositories;
+
+import com.ecommerce.entities.ProductListing;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+@Repository
+public interface ProductListingRepository extends JpaRepository<ProductListing, Long> {
+
+    Page<ProductListing> findByVisibleTrue(Pageable pageable);
+
+    Page<ProductListing> findByCategoryId(Long categoryId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE ProductListing l SET l.categoryName = :name, l.updatedAt = :now WHERE l.categoryId = :categoryId")
+    int renameCategory(@Param("categoryId") Long categoryId, @Param("name") String name, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ProductListing l SET l.subCategoryName = :name, l.updatedAt = :now WHERE l.subCategoryId = :subCategoryId")
+    int renameSubCategory(@Param("subCategoryId") Long subCategoryId, @Param("name") String name, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ProductListing l SET l.subCategoryId = null, l.subCategoryName = null, l.updatedAt = :now " +
+           "WHERE l.subCategoryId = :subCategoryId")
+    int clearSubCategory(@Param("subCategoryId") Long subCategoryId, @Param("now") LocalDateTime now);
+
+    // After a bulk approval: approved products become visible unless their seller deactivated them
+    @Modifying
+    @Query("UPDATE ProductListing l SET l.visible = true, l.updatedAt = :now WHERE l.productId IN " +
+           "(SELECT p.id FROM Product p WHERE p.id IN :ids AND p.isActive = true)")
+    int showActive(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ProductListing l SET l.visible = false, l.updatedAt = :now WHERE l.productId IN :ids")
+    int hide(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM ProductListing l WHERE l.categoryId = :categoryId")
+    int deleteByCategory(@Param("categoryId") Long categoryId);
+}
@@ -1,19 +1,33 @@
 package com.ecommerce.repositories;
 
+import com.ecommerce.dto.ProductCardDto;
+import com.ecommerce.dto.ProductRelationsDto;
 import com.ecommerce.entities.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
+    // Bulk moderation: products an approve (pending) or a reject (not yet rejected) would change,
+    // narrowed by the optional filters
+    String MODERATION_FILTERS = "((:approving = true AND (p.isApproved = false OR p.isApproved IS NULL)) OR " +
+            "(:approving = false AND (p.isApproved = true OR p.isActive = true))) AND " +
+            "(:sellerId IS NULL OR p.seller.id = :sellerId) AND " +
+            "(:categoryId IS NULL OR p.category.id = :categoryId) AND " +
+            "(:createdFrom IS NULL OR p.createdAt >= :createdFrom) AND " +
+            "(:createdTo IS NULL OR p.createdAt < :createdTo)";
+
     Page<Product> findByIsActiveTrueAndIsApprovedTrue(Pageable pageable);
 
     Page<Product> findBySellerId(Long sellerId, Pageable pageable);
@@ -42,6 +56,67 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     );
 
     List<Product> findBySellerIdAndIsActiveTrue(Long sellerId);
+
+    // Rows of [id, stockQuantity, isActive, isApproved, sellerId, discountPrice]: current stock and
+    // price for a set of products, read past the product caches
+    @Query("SELECT p.id, p.stockQuantity, p.isActive, p.isApproved, p.seller.id, p.discountPrice " +
+           "FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findStockByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.isApproved = true AND p.id > :afterId ORDER BY p.id")
+    List<Product> findVisibleAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Seller, category and subcategory for a page of products in one statement instead of one per product
+    @Query("SELECT new com.ecommerce.dto.ProductRelationsDto(p.id, s.id, s.firstName, s.lastName, " +
+           "c.id, c.name, sc.id, sc.name) " +
+           "FROM Product p JOIN p.seller s JOIN p.category c LEFT JOIN p.subCategory sc " +
+           "WHERE p.id IN :productIds")
+    List<ProductRelationsDto> findRelationsByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    // Grid tiles straight from the row and the seller name, without loading Product entities
+    @Query(value = "SELECT new com.ecommerce.dto.ProductCardDto(p.id, p.name, p.brand, p.price, p.discountPrice, " +
+           "p.stockQuantity, p.averageRating, p.totalReviews, CONCAT(s.firstName, ' ', s.lastName), p.updatedAt) " +
+           "FROM Product p JOIN p.seller s WHERE p.isActive = true AND p.isApproved = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.isActive = true AND p.isApproved = true")
+    Page<ProductCardDto> findVisibleCards(Pageable pageable);
+
+    @Query(value = "SELECT new com.ecommerce.dto.ProductCardDto(p.id, p.name, p.brand, p.price, p.discountPrice, " +
+           "p.stockQuantity, p.averageRating, p.totalReviews, CONCAT(s.firstName, ' ', s.lastName), p.updatedAt) " +
+           "FROM Product p JOIN p.seller s WHERE p.category.id = :categoryId",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId")
+    Page<ProductCardDto> findCardsByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+    @Query("SELECT p.id FROM Product p WHERE " + MODERATION_FILTERS + " ORDER BY p.id")
+    List<Long> findIdsForModeration(
+            @Param("approving") boolean approving,
+            @Param("sellerId") Long sellerId,
+            @Param("categoryId") Long categoryId,
+            @Param("createdFrom") LocalDateTime createdFrom,
+            @Param("createdTo") LocalDateTime createdTo
+    );
+
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids AND " + MODERATION_FILTERS + " ORDER BY p.id")
+    List<Long> findIdsForModerationIn(
+            @Param("ids") Collection<Long> ids,
+            @Param("approving") boolean approving,
+            @Param("sellerId") Long sellerId,
+            @Param("categoryId") Long categoryId,
+            @Param("createdFrom") LocalDateTime createdFrom,
+            @Param("createdTo") LocalDateTime createdTo
+    );
+
+    // Set-based moderation; auditing does not see bulk updates, so updatedAt is passed in
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Product p SET p.isApproved = true, p.updatedAt = :now WHERE p.id IN :ids")
+    int approveByIds(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Product p SET p.isApproved = false, p.isActive = false, p.updatedAt = :now WHERE p.id IN :ids")
+    int rejectByIds(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Rows of [productId, imageUrl] for a page of products
+    @Query("SELECT p.id, i FROM Product p JOIN p.images i WHERE p.id IN :productIds")
+    List<Object[]> findImagesByProductIds(@Param("productIds") Collection<Long> productIds);
 }
 
 
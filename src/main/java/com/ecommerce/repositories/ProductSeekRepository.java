@@ -0,0 +1,161 @@
+package com.ecommerce.repositories;
+
+import com.ecommerce.dto.ProductSearchRequest;
+import com.ecommerce.entities.Product;
+import com.ecommerce.entities.ProductListing;
+import com.ecommerce.utils.ProductCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Keyset (seek) queries over products or their listing rows. The statement is built from the filters
+// actually given: a catch-all "(:x IS NULL OR ...)" predicate cannot be used for an index range, so
+// each page would scan instead of seeking on the (sort key, id) indexes declared on both entities.
+@Repository
+public class ProductSeekRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Rows after the cursor (from the start when it is null) in the sort's order, at most limit of them
+    public <T> List<T> seek(Class<T> entity, Long sellerId, Long categoryId, ProductSearchRequest filters,
+                            boolean visibleOnly, String sort, ProductCursor cursor, int limit) {
+        Columns columns = Columns.of(entity);
+        Map<String, Object> parameters = new HashMap<>();
+        List<String> predicates = filters(columns, sellerId, categoryId, filters, visibleOnly, parameters);
+
+        String key;
+        boolean ascending;
+        switch (sort) {
+            case ProductCursor.PRICE_ASC -> {
+                key = "p.discountPrice";
+                ascending = true;
+            }
+            case ProductCursor.PRICE_DESC -> {
+                key = "p.discountPrice";
+                ascending = false;
+            }
+            case ProductCursor.RATING_DESC -> {
+                key = "p.averageRating";
+                ascending = false;
+            }
+            default -> {
+                key = "p.createdAt";
+                ascending = false;
+            }
+        }
+        String direction = ascending ? " ASC" : " DESC";
+        if (cursor != null) {
+            String after = ascending ? " > " : " < ";
+            predicates.add("(" + key + after + ":afterKey OR (" + key + " = :afterKey AND " + columns.id + after + ":afterId))");
+            parameters.put("afterKey", switch (sort) {
+                case ProductCursor.PRICE_ASC, ProductCursor.PRICE_DESC -> cursor.price();
+                case ProductCursor.RATING_DESC -> cursor.rating();
+                default -> cursor.createdAt();
+            });
+            parameters.put("afterId", cursor.getId());
+        }
+
+        String jpql = "SELECT p FROM " + entity.getSimpleName() + " p" + where(predicates) +
+                " ORDER BY " + key + direction + ", " + columns.id + direction;
+        TypedQuery<T> query = entityManager.createQuery(jpql, entity);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    public long count(Class<?> entity, Long sellerId, Long categoryId, ProductSearchRequest filters, boolean visibleOnly) {
+        Map<String, Object> parameters = new HashMap<>();
+        List<String> predicates = filters(Columns.of(entity), sellerId, categoryId, filters, visibleOnly, parameters);
+        TypedQuery<Long> query = entityManager.createQuery(
+                "SELECT COUNT(p) FROM " + entity.getSimpleName() + " p" + where(predicates), Long.class);
+        parameters.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+
+    private static List<String> filters(Columns columns, Long sellerId, Long categoryId, ProductSearchRequest filters,
+                                        boolean visibleOnly, Map<String, Object> parameters) {
+        List<String> predicates = new ArrayList<>();
+        if (sellerId != null) {
+            predicates.add(columns.sellerId + " = :sellerId");
+            parameters.put("sellerId", sellerId);
+        }
+        if (categoryId != null) {
+            predicates.add(columns.categoryId + " = :categoryId");
+            parameters.put("categoryId", categoryId);
+        }
+        if (filters.getSubCategoryId() != null) {
+            predicates.add(columns.subCategoryId + " = :subCategoryId");
+            parameters.put("subCategoryId", filters.getSubCategoryId());
+        }
+        if (StringUtils.hasText(filters.getKeyword())) {
+            if (columns.description == null) {
+                throw new IllegalArgumentException("Keyword filters need full products");
+            }
+            predicates.add("(LOWER(p.name) LIKE :keyword OR LOWER(" + columns.description + ") LIKE :keyword)");
+            parameters.put("keyword", "%" + filters.getKeyword().toLowerCase(Locale.ROOT) + "%");
+        }
+        if (filters.getMinPrice() != null) {
+            predicates.add("p.discountPrice >= :minPrice");
+            parameters.put("minPrice", filters.getMinPrice());
+        }
+        if (filters.getMaxPrice() != null) {
+            predicates.add("p.discountPrice <= :maxPrice");
+            parameters.put("maxPrice", filters.getMaxPrice());
+        }
+        if (filters.getBrand() != null) {
+            predicates.add("LOWER(p.brand) = :brand");
+            parameters.put("brand", filters.getBrand().toLowerCase(Locale.ROOT));
+        }
+        if (visibleOnly) {
+            predicates.add(columns.visible);
+        }
+        return predicates;
+    }
+
+    private static String where(List<String> predicates) {
+        return predicates.isEmpty() ? "" : " WHERE " + String.join(" AND ", predicates);
+    }
+
+    // Paths of the filtered and sorted-on attributes, per entity
+    private static final class Columns {
+        static final Columns PRODUCT = new Columns("p.id", "p.seller.id", "p.category.id", "p.subCategory.id",
+                "p.description", "p.isActive = true AND p.isApproved = true");
+        // The listing keeps no description, so keyword filters need full products
+        static final Columns LISTING = new Columns("p.productId", "p.sellerId", "p.categoryId", "p.subCategoryId",
+                null, "p.visible = true");
+
+        final String id;
+        final String sellerId;
+        final String categoryId;
+        final String subCategoryId;
+        final String description;
+        final String visible;
+
+        Columns(String id, String sellerId, String categoryId, String subCategoryId, String description, String visible) {
+            this.id = id;
+            this.sellerId = sellerId;
+            this.categoryId = categoryId;
+            this.subCategoryId = subCategoryId;
+            this.description = description;
+            this.visible = visible;
+        }
+
+        static Columns of(Class<?> entity) {
+            if (entity == Product.class) {
+                return PRODUCT;
+            }
+            if (entity == ProductListing.class) {
+                return LISTING;
+            }
+            throw new IllegalArgumentException("No seek queries for " + entity.getSimpleName());
+        }
+    }
+}
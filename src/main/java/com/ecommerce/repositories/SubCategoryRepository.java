@@ -14,6 +14,8 @@ public interface SubCategoryRepository extends JpaRepository<SubCategory, Long>
 
     List<SubCategory> findByCategoryIdAndIsActiveTrue(Long categoryId);
 
+    List<SubCategory> findByIsActiveTrue();
+
     Optional<SubCategory> findByNameAndCategoryId(String name, Long categoryId);
 }
 
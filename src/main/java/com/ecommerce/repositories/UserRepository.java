@@ -2,8 +2,14 @@ package com.ecommerce.repositories;
 
 import com.ecommerce.entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,6 +20,32 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Boolean existsByEmail(String email);
 
     Boolean existsByPhoneNumber(String phoneNumber);
+
+    // Bulk seller moderation; pendingOnly limits the match to sellers not yet approved
+    String SELLER_MODERATION_FILTERS = "u.role = com.ecommerce.entities.User.Role.ROLE_SELLER AND " +
+            "(:pendingOnly = false OR u.isApproved = false OR u.isApproved IS NULL) AND " +
+            "(:createdFrom IS NULL OR u.createdAt >= :createdFrom) AND " +
+            "(:createdTo IS NULL OR u.createdAt < :createdTo)";
+
+    @Query("SELECT u.id FROM User u WHERE " + SELLER_MODERATION_FILTERS + " ORDER BY u.id")
+    List<Long> findSellerIdsForModeration(
+            @Param("pendingOnly") boolean pendingOnly,
+            @Param("createdFrom") LocalDateTime createdFrom,
+            @Param("createdTo") LocalDateTime createdTo
+    );
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids AND " + SELLER_MODERATION_FILTERS + " ORDER BY u.id")
+    List<Long> findSellerIdsForModerationIn(
+            @Param("ids") Collection<Long> ids,
+            @Param("pendingOnly") boolean pendingOnly,
+            @Param("createdFrom") LocalDateTime createdFrom,
+            @Param("createdTo") LocalDateTime createdTo
+    );
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.isApproved = :approved, u.updatedAt = :now WHERE u.id IN :ids")
+    int setApprovedByIds(@Param("ids") Collection<Long> ids, @Param("approved") boolean approved,
+                         @Param("now") LocalDateTime now);
 }
 
 
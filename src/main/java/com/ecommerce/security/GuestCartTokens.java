@@ -0,0 +1,79 @@
+package com.ecommerce.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+// Guest cart tokens are a random id plus an HMAC of it, so a client cannot make up ids to reach
+// other guests' carts. They travel in an HttpOnly cookie scoped to the API.
+@Component
+public class GuestCartTokens {
+
+    public static final String COOKIE_NAME = "GUEST_CART";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @Value("${app.cart.guest.secret:${jwt.secret}}")
+    private String secret;
+
+    private final SecureRandom random = new SecureRandom();
+
+    public String issue() {
+        byte[] id = new byte[18];
+        random.nextBytes(id);
+        String value = Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+        return value + "." + sign(value);
+    }
+
+    // The token if it carries a valid signature, otherwise null
+    public String verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int separator = token.indexOf('.');
+        if (separator <= 0) {
+            return null;
+        }
+        byte[] expected = sign(token.substring(0, separator)).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = token.substring(separator + 1).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual) ? token : null;
+    }
+
+    public ResponseCookie cookie(String token, long ttlMinutes) {
+        return ResponseCookie.from(COOKIE_NAME, token)
+                .httpOnly(true)
+                .sameSite("Lax")
+                .path("/api")
+                .maxAge(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    public ResponseCookie expiredCookie() {
+        return ResponseCookie.from(COOKIE_NAME, "")
+                .httpOnly(true)
+                .sameSite("Lax")
+                .path("/api")
+                .maxAge(Duration.ZERO)
+                .build();
+    }
+
+    private String sign(String value) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            byte[] signature = mac.doFinal(value.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign guest cart token", e);
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.ecommerce.security;
 
+import com.ecommerce.dto.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -20,12 +23,17 @@ import java.io.IOException;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final String GUEST_ROUTES = "/api/cart";
+
     @Autowired
     private JwtTokenProvider tokenProvider;
 
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
             throws ServletException, IOException {
@@ -46,6 +54,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             logger.error("Could not set user authentication in security context", ex);
         }
 
+        // Cart routes serve guests too, so a rejected token there would quietly swap the user's cart
+        // for an empty guest one; the client is told to sign in again instead. Only requests with no
+        // credential at all are guests.
+        if (StringUtils.hasText(request.getHeader("Authorization"))
+                && SecurityContextHolder.getContext().getAuthentication() == null
+                && request.getRequestURI().startsWith(GUEST_ROUTES)) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), ApiResponse.error("Session expired, please sign in again"));
+            return;
+        }
+
         filterChain.doFilter(request, response);
     }
 
@@ -1,5 +1,6 @@
 package com.ecommerce.services;
 
+import com.ecommerce.dto.BulkModerationRequest;
 import com.ecommerce.dto.UserDto;
 import com.ecommerce.dto.ProductDto;
 import com.ecommerce.dto.OrderDto;
@@ -19,12 +20,22 @@ public interface AdminService {
 
     UserDto rejectSeller(Long sellerId);
 
+    // Bulk moderation; returns how many sellers were updated
+    int approveSellers(BulkModerationRequest request);
+
+    int rejectSellers(BulkModerationRequest request);
+
     List<UserDto> getPendingSellers();
 
     List<ProductDto> getPendingProducts();
 
     List<OrderDto> getAllOrders();
 
+    // Sells the product from sharded in-memory counters until disabled
+    void enableFlashSale(Long productId, int shards);
+
+    void disableFlashSale(Long productId);
+
     Map<String, Object> getDashboardStats();
 }
 
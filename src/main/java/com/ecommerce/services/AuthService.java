@@ -4,7 +4,8 @@ import com.ecommerce.dto.*;
 
 public interface AuthService {
 
-    JwtResponse login(LoginRequest loginRequest);
+    // guestCartToken: a verified guest cart token to merge into the user's cart, or null
+    JwtResponse login(LoginRequest loginRequest, String guestCartToken);
 
     UserDto register(SignupRequest signupRequest);
 
@@ -1,5 +1,6 @@
 package com.ecommerce.services;
 
+import com.ecommerce.dto.CartBatchRequest;
 import com.ecommerce.dto.CartDto;
 
 public interface CartService {
@@ -12,9 +13,27 @@ public interface CartService {
 
     CartDto removeFromCart(Long userId, Long cartItemId);
 
+    CartDto applyBatch(Long userId, CartBatchRequest request);
+
     void clearCart(Long userId);
 
     Integer getCartItemCount(Long userId);
+
+    CartDto getGuestCart(String token);
+
+    CartDto addToGuestCart(String token, Long productId, Integer quantity);
+
+    CartDto updateGuestCartItem(String token, Long cartItemId, Integer quantity);
+
+    CartDto removeFromGuestCart(String token, Long cartItemId);
+
+    CartDto applyGuestBatch(String token, CartBatchRequest request);
+
+    void clearGuestCart(String token);
+
+    Integer getGuestCartItemCount(String token);
+
+    void mergeGuestCart(Long userId, String token);
 }
 
 
@@ -1,6 +1,7 @@
 package com.ecommerce.services;
 
 import com.ecommerce.dto.CategoryDto;
+import com.ecommerce.dto.CategoryTreeDto;
 import com.ecommerce.dto.SubCategoryDto;
 
 import java.util.List;
@@ -17,6 +18,8 @@ public interface CategoryService {
 
     List<CategoryDto> getAllCategories();
 
+    CategoryTreeDto getCategoryTree();
+
     SubCategoryDto createSubCategory(SubCategoryDto subCategoryDto);
 
     SubCategoryDto updateSubCategory(Long subCategoryId, SubCategoryDto subCategoryDto);
@@ -3,9 +3,13 @@ package com.ecommerce.services;
 import com.ecommerce.entities.Order;
 import com.ecommerce.entities.User;
 
+import java.util.List;
+
 public interface NotificationService {
     void sendSellerApprovalNotification(User seller);
     void sendSellerRejectionNotification(User seller);
+    void sendSellerApprovalNotifications(List<User> sellers);
+    void sendSellerRejectionNotifications(List<User> sellers);
     void sendOrderConfirmationEmail(Order order);
     void sendOrderShippedEmail(Order order);
     void sendOrderDeliveredEmail(Order order);
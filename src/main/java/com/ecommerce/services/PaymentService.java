@@ -10,7 +10,10 @@ public interface PaymentService {
 
     RazorpayOrderResponse createRazorpayOrder(RazorpayOrderRequest request, Long userId);
 
-    Boolean verifyPayment(PaymentVerificationRequest request);
+    Boolean verifyPayment(PaymentVerificationRequest request, Long userId);
+
+    // Whether the payment is genuine and paid a Razorpay order this user created; asks Razorpay
+    boolean isPaymentOf(Long userId, String razorpayOrderId, String razorpayPaymentId, String razorpaySignature);
     
     // Enterprise features
     PaymentDto getPaymentById(Long paymentId);
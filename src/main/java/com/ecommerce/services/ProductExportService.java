@@ -0,0 +1,11 @@
+package com.ecommerce.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ProductExportService {
+
+    String contentType(String format);
+
+    void exportProducts(Long sellerId, String format, OutputStream out) throws IOException;
+}
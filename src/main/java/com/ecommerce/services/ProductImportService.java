@@ -0,0 +1,14 @@
+package com.ecommerce.services;
+
+import com.ecommerce.dto.ProductImportReport;
+
+import java.io.InputStream;
+
+public interface ProductImportService {
+
+    ProductImportReport submitImport(InputStream content, String format, Long sellerId);
+
+    void runImport(String jobId);
+
+    ProductImportReport getImportStatus(String jobId, Long sellerId);
+}
@@ -1,7 +1,11 @@
 package com.ecommerce.services;
 
+import com.ecommerce.dto.BulkModerationRequest;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.ProductCardDto;
 import com.ecommerce.dto.ProductDto;
 import com.ecommerce.dto.ProductSearchRequest;
+import com.ecommerce.dto.SuggestionDto;
 import org.springframework.data.domain.Page;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -17,17 +21,49 @@ public interface ProductService {
 
     ProductDto getProductById(Long productId);
 
+    List<ProductDto> getProductsByIds(List<Long> productIds);
+
     Page<ProductDto> getAllProducts(int page, int size);
 
+    Page<ProductCardDto> getAllProductCards(int page, int size);
+
     Page<ProductDto> searchProducts(ProductSearchRequest searchRequest);
 
+    Page<ProductCardDto> searchProductCards(ProductSearchRequest searchRequest);
+
+    List<SuggestionDto> getSuggestions(String query, int limit);
+
+    List<ProductDto> getRelatedProducts(Long productId, int limit);
+
     Page<ProductDto> getProductsByCategory(Long categoryId, int page, int size);
 
+    Page<ProductCardDto> getProductCardsByCategory(Long categoryId, int page, int size);
+
     Page<ProductDto> getProductsBySeller(Long sellerId, int page, int size);
 
+    // Keyset-paginated variants: a blank cursor starts at the first page
+    CursorPage<ProductDto> getAllProducts(String cursor, int size, String sortBy, boolean includeTotal);
+
+    CursorPage<ProductCardDto> getAllProductCards(String cursor, int size, String sortBy, boolean includeTotal);
+
+    CursorPage<ProductDto> searchProducts(ProductSearchRequest searchRequest, String cursor, boolean includeTotal);
+
+    CursorPage<ProductCardDto> searchProductCards(ProductSearchRequest searchRequest, String cursor, boolean includeTotal);
+
+    CursorPage<ProductDto> getProductsByCategory(Long categoryId, String cursor, int size, String sortBy, boolean includeTotal);
+
+    CursorPage<ProductCardDto> getProductCardsByCategory(Long categoryId, String cursor, int size, String sortBy, boolean includeTotal);
+
+    CursorPage<ProductDto> getProductsBySeller(Long sellerId, String cursor, int size, String sortBy, boolean includeTotal);
+
     ProductDto approveProduct(Long productId);
 
     ProductDto rejectProduct(Long productId);
+
+    // Bulk moderation; returns how many products changed state
+    int approveProducts(BulkModerationRequest request);
+
+    int rejectProducts(BulkModerationRequest request);
 }
 
 
@@ -1,5 +1,6 @@
 package com.ecommerce.services.impl;
 
+import com.ecommerce.dto.BulkModerationRequest;
 import com.ecommerce.dto.OrderDto;
 import com.ecommerce.dto.ProductDto;
 import com.ecommerce.dto.UserDto;
@@ -9,21 +10,28 @@ import com.ecommerce.repositories.OrderRepository;
 import com.ecommerce.repositories.ProductRepository;
 import com.ecommerce.repositories.UserRepository;
 import com.ecommerce.services.AdminService;
+import com.ecommerce.utils.FlashSaleInventory;
+import com.ecommerce.utils.TransactionHooks;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class AdminServiceImpl implements AdminService {
 
+    private static final int MODERATION_CHUNK_SIZE = 1000;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -39,6 +47,9 @@ public class AdminServiceImpl implements AdminService {
     @Autowired
     private com.ecommerce.services.NotificationService notificationService;
 
+    @Autowired
+    private FlashSaleInventory flashSaleInventory;
+
     @Override
     public List<UserDto> getAllUsers() {
         List<User> users = userRepository.findAll();
@@ -101,6 +112,54 @@ public class AdminServiceImpl implements AdminService {
         return modelMapper.map(savedSeller, UserDto.class);
     }
 
+    @Override
+    public int approveSellers(BulkModerationRequest request) {
+        return moderateSellers(request, true);
+    }
+
+    @Override
+    public int rejectSellers(BulkModerationRequest request) {
+        return moderateSellers(request, false);
+    }
+
+    // Approval only touches sellers still pending; rejection, like rejectSeller, applies to every
+    // matching seller. Emails are queued once the change has committed.
+    private int moderateSellers(BulkModerationRequest request, boolean approving) {
+        List<Long> sellerIds = findSellerModerationTargets(request, approving);
+        if (sellerIds.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<User> sellers = new ArrayList<>(sellerIds.size());
+        for (int from = 0; from < sellerIds.size(); from += MODERATION_CHUNK_SIZE) {
+            List<Long> chunk = sellerIds.subList(from, Math.min(from + MODERATION_CHUNK_SIZE, sellerIds.size()));
+            userRepository.setApprovedByIds(chunk, approving, now);
+            sellers.addAll(userRepository.findAllById(chunk));
+        }
+        TransactionHooks.afterCommit(() -> {
+            if (approving) {
+                notificationService.sendSellerApprovalNotifications(sellers);
+            } else {
+                notificationService.sendSellerRejectionNotifications(sellers);
+            }
+        });
+        return sellerIds.size();
+    }
+
+    private List<Long> findSellerModerationTargets(BulkModerationRequest request, boolean approving) {
+        if (request.getIds() == null || request.getIds().isEmpty()) {
+            return userRepository.findSellerIdsForModeration(approving, request.getCreatedFrom(), request.getCreatedTo());
+        }
+        List<Long> requestedIds = request.getIds().stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        List<Long> sellerIds = new ArrayList<>();
+        for (int from = 0; from < requestedIds.size(); from += MODERATION_CHUNK_SIZE) {
+            List<Long> chunk = requestedIds.subList(from, Math.min(from + MODERATION_CHUNK_SIZE, requestedIds.size()));
+            sellerIds.addAll(userRepository.findSellerIdsForModerationIn(chunk, approving,
+                    request.getCreatedFrom(), request.getCreatedTo()));
+        }
+        return sellerIds;
+    }
+
     @Override
     public List<UserDto> getPendingSellers() {
         List<User> sellers = userRepository.findAll().stream()
@@ -141,6 +200,16 @@ public class AdminServiceImpl implements AdminService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public void enableFlashSale(Long productId, int shards) {
+        flashSaleInventory.enable(productId, shards);
+    }
+
+    @Override
+    public void disableFlashSale(Long productId) {
+        flashSaleInventory.disable(productId);
+    }
+
     @Override
     public Map<String, Object> getDashboardStats() {
         Map<String, Object> stats = new HashMap<>();
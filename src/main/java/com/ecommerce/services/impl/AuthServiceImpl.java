@@ -9,8 +9,11 @@ import com.ecommerce.repositories.UserRepository;
 import com.ecommerce.security.JwtTokenProvider;
 import com.ecommerce.security.UserPrincipal;
 import com.ecommerce.services.AuthService;
+import com.ecommerce.services.CartService;
 import com.ecommerce.services.NotificationService;
 import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -28,6 +31,8 @@ import java.util.Random;
 @Transactional
 public class AuthServiceImpl implements AuthService {
 
+    private static final Logger logger = LoggerFactory.getLogger(AuthServiceImpl.class);
+
     @Autowired
     private UserRepository userRepository;
 
@@ -49,10 +54,13 @@ public class AuthServiceImpl implements AuthService {
     @Autowired
     private PasswordResetOtpRepository otpRepository;
 
+    @Autowired
+    private CartService cartService;
+
     private static final int OTP_EXPIRY_MINUTES = 10;
 
     @Override
-    public JwtResponse login(LoginRequest loginRequest) {
+    public JwtResponse login(LoginRequest loginRequest, String guestCartToken) {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         loginRequest.getEmail(),
@@ -67,6 +75,15 @@ public class AuthServiceImpl implements AuthService {
         User user = userRepository.findById(userPrincipal.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", userPrincipal.getId()));
 
+        if (guestCartToken != null) {
+            // A cart that cannot be merged should not keep the user from signing in
+            try {
+                cartService.mergeGuestCart(user.getId(), guestCartToken);
+            } catch (Exception e) {
+                logger.warn("Could not merge guest cart into the cart of user {}", user.getId(), e);
+            }
+        }
+
         return new JwtResponse(
                 jwt,
                 "Bearer",
@@ -1,218 +1,454 @@
 package com.ecommerce.services.impl;
 
+import com.ecommerce.dto.CartBatchRequest;
 import com.ecommerce.dto.CartDto;
 import com.ecommerce.dto.CartItemDto;
-import com.ecommerce.entities.Cart;
-import com.ecommerce.entities.CartItem;
-import com.ecommerce.entities.Product;
-import com.ecommerce.entities.User;
+import com.ecommerce.dto.CartOperation;
+import com.ecommerce.dto.ProductDto;
 import com.ecommerce.exceptions.ResourceNotFoundException;
-import com.ecommerce.repositories.CartItemRepository;
-import com.ecommerce.repositories.CartRepository;
 import com.ecommerce.repositories.ProductRepository;
-import com.ecommerce.repositories.UserRepository;
 import com.ecommerce.services.CartService;
-import org.modelmapper.ModelMapper;
+import com.ecommerce.services.ProductService;
+import com.ecommerce.utils.CartStore;
+import com.ecommerce.utils.CartStore.CartLine;
+import com.ecommerce.utils.CartStore.CartSnapshot;
+import com.ecommerce.utils.CartStore.CartState;
+import com.ecommerce.utils.GuestCartStore;
+import com.ecommerce.utils.InventoryReservations;
+import com.ecommerce.utils.Money;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
+// Carts are served from CartStore, which writes them back to the database in the background, and
+// guest carts from GuestCartStore until they are merged on sign-in. Product details and stock come
+// from the product detail cache, except for batches and merges, which check stock against the
+// database. Stock held for other shoppers' payments does not count as available. No other request
+// here opens a database transaction unless a cart or product has to be loaded.
 @Service
-@Transactional
 public class CartServiceImpl implements CartService {
 
+    // ProductService.getProductsByIds accepts at most this many ids per call
+    private static final int PRODUCT_LOOKUP_BATCH = 200;
+
+    // Keeps a batch's stock check to one IN query of bounded size
+    private static final int MAX_BATCH_OPERATIONS = 100;
+
     @Autowired
-    private CartRepository cartRepository;
+    private CartStore cartStore;
 
     @Autowired
-    private CartItemRepository cartItemRepository;
+    private ProductService productService;
 
     @Autowired
-    private UserRepository userRepository;
+    private GuestCartStore guestCartStore;
 
     @Autowired
     private ProductRepository productRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private InventoryReservations inventoryReservations;
 
     @Override
     public CartDto getCart(Long userId) {
-        Cart cart = getOrCreateCart(userId);
-        return mapToDto(cart);
+        return mapToDto(cartStore.get(userId));
     }
 
     @Override
     public CartDto addToCart(Long userId, Long productId, Integer quantity) {
-        Cart cart = getOrCreateCart(userId);
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product", "id", productId));
-
-        if (!product.getIsActive() || !product.getIsApproved()) {
-            throw new RuntimeException("Product is not available");
-        }
+        return addToCart(userCart(userId), productId, quantity);
+    }
 
-        if (product.getStockQuantity() < quantity) {
-            throw new RuntimeException("Insufficient stock");
-        }
+    @Override
+    public CartDto updateCartItem(Long userId, Long cartItemId, Integer quantity) {
+        return updateCartItem(userCart(userId), cartItemId, quantity);
+    }
 
-        CartItem existingItem = cartItemRepository.findByCartIdAndProductId(cart.getId(), productId)
-                .orElse(null);
+    @Override
+    public CartDto removeFromCart(Long userId, Long cartItemId) {
+        return removeFromCart(userCart(userId), cartItemId);
+    }
 
-        if (existingItem != null) {
-            int newQuantity = existingItem.getQuantity() + quantity;
-            if (newQuantity > product.getStockQuantity()) {
-                throw new RuntimeException("Insufficient stock");
-            }
-            existingItem.setQuantity(newQuantity);
-            existingItem.setPrice(product.getDiscountPrice());
-            cartItemRepository.save(existingItem);
-        } else {
-            CartItem cartItem = new CartItem();
-            cartItem.setCart(cart);
-            cartItem.setProduct(product);
-            cartItem.setQuantity(quantity);
-            cartItem.setPrice(product.getDiscountPrice());
-            cart.getCartItems().add(cartItem);
-            cartItemRepository.save(cartItem);
-        }
+    @Override
+    public CartDto applyBatch(Long userId, CartBatchRequest request) {
+        return applyBatch(userCart(userId), request);
+    }
 
-        updateCartTotal(cart);
-        return mapToDto(cart);
+    @Override
+    public void clearCart(Long userId) {
+        cartStore.update(userId, CartState::clear);
     }
 
     @Override
-    public CartDto updateCartItem(Long userId, Long cartItemId, Integer quantity) {
-        Cart cart = getOrCreateCart(userId);
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new ResourceNotFoundException("CartItem", "id", cartItemId));
+    public Integer getCartItemCount(Long userId) {
+        return cartStore.get(userId).getLineCount();
+    }
 
-        if (!cartItem.getCart().getId().equals(cart.getId())) {
-            throw new RuntimeException("Cart item does not belong to your cart");
-        }
+    @Override
+    public CartDto getGuestCart(String token) {
+        return mapToDto(guestCartStore.get(token));
+    }
 
-        if (quantity <= 0) {
-            cartItemRepository.delete(cartItem);
-        } else {
-            if (quantity > cartItem.getProduct().getStockQuantity()) {
-                throw new RuntimeException("Insufficient stock");
-            }
-            cartItem.setQuantity(quantity);
-            cartItemRepository.save(cartItem);
-        }
+    @Override
+    public CartDto addToGuestCart(String token, Long productId, Integer quantity) {
+        return addToCart(guestCart(token), productId, quantity);
+    }
 
-        updateCartTotal(cart);
-        return mapToDto(cart);
+    @Override
+    public CartDto updateGuestCartItem(String token, Long cartItemId, Integer quantity) {
+        return updateCartItem(guestCart(token), cartItemId, quantity);
     }
 
     @Override
-    public CartDto removeFromCart(Long userId, Long cartItemId) {
-        Cart cart = getOrCreateCart(userId);
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new ResourceNotFoundException("CartItem", "id", cartItemId));
+    public CartDto removeFromGuestCart(String token, Long cartItemId) {
+        return removeFromCart(guestCart(token), cartItemId);
+    }
 
-        if (!cartItem.getCart().getId().equals(cart.getId())) {
-            throw new RuntimeException("Cart item does not belong to your cart");
-        }
+    @Override
+    public CartDto applyGuestBatch(String token, CartBatchRequest request) {
+        return applyBatch(guestCart(token), request);
+    }
 
-        cartItemRepository.delete(cartItem);
-        updateCartTotal(cart);
-        return mapToDto(cart);
+    @Override
+    public void clearGuestCart(String token) {
+        guestCartStore.update(token, CartState::clear);
     }
 
     @Override
-    public void clearCart(Long userId) {
-        Cart cart = getOrCreateCart(userId);
-        cartItemRepository.deleteByCartId(cart.getId());
-        cart.setTotalAmount(BigDecimal.ZERO);
-        cartRepository.save(cart);
+    public Integer getGuestCartItemCount(String token) {
+        return guestCartStore.get(token).getLineCount();
     }
 
+    // Folds the guest cart into the user's with one stock query and one cart update. Quantities of
+    // products in both are added; lines are capped at the stock left and products no longer on sale
+    // are dropped, since the guest cannot be asked about them in the middle of signing in. The guest
+    // cart is only removed once the merge has gone through. Runs outside the sign-in transaction,
+    // so a failed merge cannot mark it for rollback.
     @Override
-    public Integer getCartItemCount(Long userId) {
-        Cart cart = cartRepository.findByUserId(userId).orElse(null);
-        if (cart == null) {
-            return 0;
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void mergeGuestCart(Long userId, String token) {
+        CartSnapshot guest = guestCartStore.get(token);
+        if (guest.getLines().isEmpty()) {
+            guestCartStore.remove(token);
+            return;
         }
-        return cart.getCartItems().size();
-    }
+        Map<Long, Object[]> stockById = findStock(guest.getLines().stream().map(CartLine::getProductId).toList());
+        Map<Long, Integer> held = inventoryReservations.heldByOthers(stockById.keySet(), userId);
 
-    private Cart getOrCreateCart(Long userId) {
-        return cartRepository.findByUserId(userId)
-                .orElseGet(() -> {
-                    User user = userRepository.findById(userId)
-                            .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
-                    Cart newCart = new Cart();
-                    newCart.setUser(user);
-                    newCart.setTotalAmount(BigDecimal.ZERO);
-                    return cartRepository.save(newCart);
-                });
+        cartStore.update(userId, state -> {
+            for (CartLine line : guest.getLines()) {
+                Object[] stock = stockById.get(line.getProductId());
+                if (stock == null || !Boolean.TRUE.equals(stock[2]) || !Boolean.TRUE.equals(stock[3])) {
+                    continue;
+                }
+                CartLine existing = state.getLine(line.getProductId());
+                int quantity = Math.min((existing != null ? existing.getQuantity() : 0) + line.getQuantity(),
+                        (Integer) stock[1] - held.getOrDefault(line.getProductId(), 0));
+                if (quantity > 0) {
+                    state.put(line.getProductId(), (Long) stock[4], quantity, Money.toMinor((BigDecimal) stock[5]));
+                }
+            }
+        });
+        guestCartStore.remove(token);
     }
 
-    private void updateCartTotal(Cart cart) {
-        if (cart == null) {
-            return;
+    private CartDto addToCart(CartAccess target, Long productId, Integer quantity) {
+        ProductDto product = productService.getProductById(productId);
+
+        if (!Boolean.TRUE.equals(product.getIsActive()) || !Boolean.TRUE.equals(product.getIsApproved())) {
+            throw new RuntimeException("Product is not available");
         }
-        BigDecimal total = BigDecimal.ZERO;
-        if (cart.getCartItems() != null && !cart.getCartItems().isEmpty()) {
-            total = cart.getCartItems().stream()
-                    .filter(item -> item != null && item.getPrice() != null && item.getQuantity() != null)
-                    .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        int available = inventoryReservations.available(productId, product.getStockQuantity(), target.userId());
+        if (available < quantity) {
+            throw new RuntimeException("Insufficient stock");
         }
-        cart.setTotalAmount(total);
-        cartRepository.save(cart);
+
+        CartSnapshot cart = target.update(state -> {
+            CartLine existing = state.getLine(productId);
+            int newQuantity = existing != null ? existing.getQuantity() + quantity : quantity;
+            if (newQuantity > available) {
+                throw new RuntimeException("Insufficient stock");
+            }
+            state.put(productId, product.getSellerId(), newQuantity, Money.toMinor(product.getDiscountPrice()));
+        });
+        return mapToDto(cart);
+    }
+
+    private CartDto updateCartItem(CartAccess target, Long cartItemId, Integer quantity) {
+        CartLine line = findLine(target.get(), cartItemId);
+        int available = quantity > 0
+                ? inventoryReservations.available(line.getProductId(),
+                        productService.getProductById(line.getProductId()).getStockQuantity(), target.userId())
+                : 0;
+
+        CartSnapshot cart = target.update(state -> {
+            // Looked up again under the cart's lock in case it changed in between
+            CartLine current = state.findLine(cartItemId);
+            if (current == null) {
+                throw new ResourceNotFoundException("CartItem", "id", cartItemId);
+            }
+            if (quantity <= 0) {
+                state.remove(current.getProductId());
+            } else {
+                if (quantity > available) {
+                    throw new RuntimeException("Insufficient stock");
+                }
+                state.put(current.getProductId(), current.getSellerId(), quantity, current.getPriceMinor());
+            }
+        });
+        return mapToDto(cart);
     }
 
-    private CartDto mapToDto(Cart cart) {
-        if (cart == null) {
-            return null;
+    private CartDto removeFromCart(CartAccess target, Long cartItemId) {
+        CartSnapshot cart = target.update( state -> {
+            CartLine line = state.findLine(cartItemId);
+            if (line == null) {
+                throw new ResourceNotFoundException("CartItem", "id", cartItemId);
+            }
+            state.remove(line.getProductId());
+        });
+        return mapToDto(cart);
+    }
+
+    // Stock for every product the batch adds or sets a quantity for is read in one query up front;
+    // the operations are then folded into final quantities and checked under the cart's lock before
+    // any line changes, so either all of them apply or none do
+    private CartDto applyBatch(CartAccess target, CartBatchRequest request) {
+        List<CartOperation> operations = request.getOperations();
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("No cart operations given");
         }
-        CartDto dto = modelMapper.map(cart, CartDto.class);
-        if (cart.getUser() != null) {
-            dto.setUserId(cart.getUser().getId());
+        if (operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_OPERATIONS + " cart operations can be applied at once");
         }
-        
-        List<CartItemDto> cartItemDtos = List.of();
-        if (cart.getCartItems() != null && !cart.getCartItems().isEmpty()) {
-            cartItemDtos = cart.getCartItems().stream()
-                    .filter(item -> item != null)
-                    .map(this::mapCartItemToDto)
-                    .filter(dtoItem -> dtoItem != null)
-                    .collect(Collectors.toList());
+
+        CartSnapshot current = target.get();
+        Set<Long> stockedProductIds = new HashSet<>();
+        for (CartOperation operation : operations) {
+            validate(operation);
+            if (operation.getType() != CartOperation.Type.REMOVE && operation.getQuantity() > 0) {
+                stockedProductIds.add(operation.getProductId() != null
+                        ? operation.getProductId()
+                        : findLine(current, operation.getCartItemId()).getProductId());
+            }
         }
-        dto.setCartItems(cartItemDtos);
-        
-        return dto;
+        Map<Long, Object[]> stockById = findStock(stockedProductIds);
+        Map<Long, Integer> held = inventoryReservations.heldByOthers(stockById.keySet(), target.userId());
+
+        CartSnapshot cart = target.update(state -> {
+            // Final quantity of every product the batch touches, in the order first touched
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            Set<Long> added = new HashSet<>();
+            for (CartOperation operation : operations) {
+                Long productId = operation.getProductId();
+                if (productId == null) {
+                    CartLine line = state.findLine(operation.getCartItemId());
+                    if (line == null) {
+                        throw new ResourceNotFoundException("CartItem", "id", operation.getCartItemId());
+                    }
+                    productId = line.getProductId();
+                }
+                Integer quantity = quantities.get(productId);
+                if (quantity == null) {
+                    CartLine line = state.getLine(productId);
+                    quantity = line != null ? line.getQuantity() : 0;
+                }
+                if (operation.getType() == CartOperation.Type.ADD) {
+                    quantity += operation.getQuantity();
+                    added.add(productId);
+                } else if (quantity == 0) {
+                    throw new ResourceNotFoundException("CartItem", "productId", productId);
+                } else {
+                    quantity = operation.getType() == CartOperation.Type.UPDATE ? operation.getQuantity() : 0;
+                }
+                quantities.put(productId, quantity);
+            }
+
+            int lineCount = state.lineCount();
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                boolean present = state.getLine(entry.getKey()) != null;
+                if (present && entry.getValue() == 0) {
+                    lineCount--;
+                } else if (!present && entry.getValue() > 0) {
+                    lineCount++;
+                }
+            }
+            if (lineCount > state.getMaxLines()) {
+                throw new IllegalArgumentException("A cart can hold at most " + state.getMaxLines() + " products");
+            }
+
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                if (entry.getValue() == 0) {
+                    continue;
+                }
+                Object[] stock = stockById.get(entry.getKey());
+                if (stock == null) {
+                    throw new ResourceNotFoundException("Product", "id", entry.getKey());
+                }
+                if (added.contains(entry.getKey())
+                        && (!Boolean.TRUE.equals(stock[2]) || !Boolean.TRUE.equals(stock[3]))) {
+                    throw new RuntimeException("Product is not available");
+                }
+                if (entry.getValue() > (Integer) stock[1] - held.getOrDefault(entry.getKey(), 0)) {
+                    throw new RuntimeException("Insufficient stock");
+                }
+            }
+
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                Long productId = entry.getKey();
+                CartLine line = state.getLine(productId);
+                if (entry.getValue() == 0) {
+                    state.remove(productId);
+                } else if (line == null || added.contains(productId)) {
+                    // Adding takes the current price, as addToCart does
+                    Object[] stock = stockById.get(productId);
+                    state.put(productId, (Long) stock[4], entry.getValue(), Money.toMinor((BigDecimal) stock[5]));
+                } else {
+                    state.put(productId, line.getSellerId(), entry.getValue(), line.getPriceMinor());
+                }
+            }
+        });
+        return mapToDto(cart);
+    }
+
+    // Rows of ProductRepository.findStockByIdIn by product id, read in one query
+    private Map<Long, Object[]> findStock(Collection<Long> productIds) {
+        Map<Long, Object[]> stockById = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (Object[] row : productRepository.findStockByIdIn(productIds)) {
+                stockById.put((Long) row[0], row);
+            }
+        }
+        return stockById;
     }
 
-    private CartItemDto mapCartItemToDto(CartItem cartItem) {
-        if (cartItem == null) {
-            return null;
+    private static void validate(CartOperation operation) {
+        if (operation == null || operation.getType() == null) {
+            throw new IllegalArgumentException("Cart operation type is required");
         }
-        try {
-            CartItemDto dto = modelMapper.map(cartItem, CartItemDto.class);
-            if (cartItem.getProduct() != null) {
-                dto.setProductId(cartItem.getProduct().getId());
-                dto.setProductName(cartItem.getProduct().getName());
-                if (cartItem.getProduct().getImages() != null && !cartItem.getProduct().getImages().isEmpty()) {
-                    dto.setProductImage(cartItem.getProduct().getImages().get(0));
+        boolean hasTarget = operation.getProductId() != null || operation.getCartItemId() != null;
+        switch (operation.getType()) {
+            case ADD -> {
+                if (operation.getProductId() == null || operation.getQuantity() == null || operation.getQuantity() <= 0) {
+                    throw new IllegalArgumentException("Invalid product ID or quantity");
                 }
-                if (cartItem.getProduct().getDiscountPrice() != null) {
-                    dto.setProductPrice(cartItem.getProduct().getDiscountPrice());
+            }
+            case UPDATE -> {
+                if (!hasTarget || operation.getQuantity() == null || operation.getQuantity() < 0) {
+                    throw new IllegalArgumentException("Invalid cart item or quantity");
                 }
             }
-            if (cartItem.getPrice() != null && cartItem.getQuantity() != null) {
-                dto.setTotalPrice(cartItem.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
+            case REMOVE -> {
+                if (!hasTarget) {
+                    throw new IllegalArgumentException("Invalid cart item");
+                }
             }
-            return dto;
-        } catch (Exception e) {
-            return null;
         }
     }
-}
 
+    // Items of other carts are not visible here, so they are reported as not found
+    private static CartLine findLine(CartSnapshot cart, Long cartItemId) {
+        for (CartLine line : cart.getLines()) {
+            if (line.getId().equals(cartItemId)) {
+                return line;
+            }
+        }
+        throw new ResourceNotFoundException("CartItem", "id", cartItemId);
+    }
+
+    private CartAccess userCart(Long userId) {
+        return new CartAccess() {
+            public Long userId() {
+                return userId;
+            }
+
+            public CartSnapshot get() {
+                return cartStore.get(userId);
+            }
+
+            public CartSnapshot update(Consumer<CartState> mutation) {
+                return cartStore.update(userId, mutation);
+            }
+        };
+    }
+
+    private CartAccess guestCart(String token) {
+        return new CartAccess() {
+            public Long userId() {
+                return null;
+            }
+
+            public CartSnapshot get() {
+                return guestCartStore.get(token);
+            }
+
+            public CartSnapshot update(Consumer<CartState> mutation) {
+                return guestCartStore.update(token, mutation);
+            }
+        };
+    }
+
+    private CartDto mapToDto(CartSnapshot cart) {
+        List<Long> productIds = cart.getLines().stream().map(CartLine::getProductId).toList();
+        Map<Long, ProductDto> productsById = new HashMap<>();
+        for (int from = 0; from < productIds.size(); from += PRODUCT_LOOKUP_BATCH) {
+            List<Long> batch = productIds.subList(from, Math.min(from + PRODUCT_LOOKUP_BATCH, productIds.size()));
+            for (ProductDto product : productService.getProductsByIds(batch)) {
+                productsById.put(product.getId(), product);
+            }
+        }
+
+        List<CartItemDto> items = new ArrayList<>(cart.getLines().size());
+        for (CartLine line : cart.getLines()) {
+            CartItemDto item = new CartItemDto();
+            item.setId(line.getId());
+            item.setProductId(line.getProductId());
+            item.setQuantity(line.getQuantity());
+            item.setPrice(Money.toDecimal(line.getPriceMinor()));
+            item.setTotalPrice(Money.toDecimal(line.getTotalMinor()));
+            ProductDto product = productsById.get(line.getProductId());
+            if (product != null) {
+                item.setProductName(product.getName());
+                if (product.getImages() != null && !product.getImages().isEmpty()) {
+                    item.setProductImage(product.getImages().get(0));
+                }
+                item.setProductPrice(product.getDiscountPrice());
+            }
+            items.add(item);
+        }
+
+        CartDto dto = new CartDto();
+        dto.setId(cart.getCartId());
+        dto.setUserId(cart.getUserId());
+        dto.setCartItems(items);
+        dto.setTotalAmount(Money.toDecimal(cart.getTotalMinor()));
+        dto.setItemCount(cart.getItemCount());
+        cart.getSubtotalMinorBySeller().forEach((sellerId, minor) -> dto.getSellerSubtotals().put(sellerId, Money.toDecimal(minor)));
+        dto.setCreatedAt(cart.getCreatedAt());
+        dto.setUpdatedAt(cart.getUpdatedAt());
+        return dto;
+    }
+
+    // The same cart operations serve signed-in users' carts and guest carts
+    private interface CartAccess {
+        // Null for guests
+        Long userId();
+
+        CartSnapshot get();
+
+        CartSnapshot update(Consumer<CartState> mutation);
+    }
+}
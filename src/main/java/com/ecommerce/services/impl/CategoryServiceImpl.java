@@ -1,6 +1,7 @@
 package com.ecommerce.services.impl;
 
 import com.ecommerce.dto.CategoryDto;
+import com.ecommerce.dto.CategoryTreeDto;
 import com.ecommerce.dto.SubCategoryDto;
 import com.ecommerce.entities.Category;
 import com.ecommerce.entities.SubCategory;
@@ -8,11 +9,19 @@ import com.ecommerce.exceptions.ResourceNotFoundException;
 import com.ecommerce.repositories.CategoryRepository;
 import com.ecommerce.repositories.SubCategoryRepository;
 import com.ecommerce.services.CategoryService;
+import com.ecommerce.utils.CategoryTreeCache;
+import com.ecommerce.utils.ProductDtoCache;
+import com.ecommerce.utils.ProductListingUpdater;
+import com.ecommerce.utils.ProductSearchIndex;
+import com.ecommerce.utils.ProductSuggestIndex;
+import com.ecommerce.utils.SearchResultCache;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -29,6 +38,26 @@ public class CategoryServiceImpl implements CategoryService {
     @Autowired
     private ModelMapper modelMapper;
 
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    // Facets report categories and subcategories by name
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    // Cached product DTOs embed category and subcategory names
+    @Autowired
+    private ProductDtoCache productDtoCache;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private ProductListingUpdater productListingUpdater;
+
     @Override
     public CategoryDto createCategory(CategoryDto categoryDto) {
         if (categoryRepository.existsByName(categoryDto.getName())) {
@@ -37,6 +66,9 @@ public class CategoryServiceImpl implements CategoryService {
 
         Category category = modelMapper.map(categoryDto, Category.class);
         Category savedCategory = categoryRepository.save(category);
+        productSearchIndex.renameCategory(savedCategory.getId(), savedCategory.getName());
+        productSuggestIndex.updateCategory(savedCategory.getId(), savedCategory.getName(), Boolean.TRUE.equals(savedCategory.getIsActive()));
+        categoryTreeCache.invalidate();
         return modelMapper.map(savedCategory, CategoryDto.class);
     }
 
@@ -51,6 +83,12 @@ public class CategoryServiceImpl implements CategoryService {
         if (categoryDto.getIsActive() != null) category.setIsActive(categoryDto.getIsActive());
 
         Category savedCategory = categoryRepository.save(category);
+        productListingUpdater.renameCategory(savedCategory.getId(), savedCategory.getName());
+        productSearchIndex.renameCategory(savedCategory.getId(), savedCategory.getName());
+        productSuggestIndex.updateCategory(savedCategory.getId(), savedCategory.getName(), Boolean.TRUE.equals(savedCategory.getIsActive()));
+        categoryTreeCache.invalidate();
+        productDtoCache.invalidateAll();
+        searchResultCache.invalidateAll();
         return modelMapper.map(savedCategory, CategoryDto.class);
     }
 
@@ -59,6 +97,11 @@ public class CategoryServiceImpl implements CategoryService {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new ResourceNotFoundException("Category", "id", categoryId));
         categoryRepository.delete(category);
+        productListingUpdater.removeCategory(categoryId);
+        productSuggestIndex.updateCategory(categoryId, category.getName(), false);
+        categoryTreeCache.invalidate();
+        productDtoCache.invalidateAll();
+        searchResultCache.invalidateAll();
     }
 
     @Override
@@ -68,12 +111,17 @@ public class CategoryServiceImpl implements CategoryService {
         return modelMapper.map(category, CategoryDto.class);
     }
 
+    // Served from the cached tree, so only active subcategories are included
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<CategoryDto> getAllCategories() {
-        List<Category> categories = categoryRepository.findByIsActiveTrue();
-        return categories.stream()
-                .map(category -> modelMapper.map(category, CategoryDto.class))
-                .collect(Collectors.toList());
+        return new ArrayList<>(categoryTreeCache.get().getCategories());
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public CategoryTreeDto getCategoryTree() {
+        return categoryTreeCache.get();
     }
 
     @Override
@@ -84,6 +132,9 @@ public class CategoryServiceImpl implements CategoryService {
         SubCategory subCategory = modelMapper.map(subCategoryDto, SubCategory.class);
         subCategory.setCategory(category);
         SubCategory savedSubCategory = subCategoryRepository.save(subCategory);
+        productSearchIndex.renameSubCategory(savedSubCategory.getId(), savedSubCategory.getName());
+        productSuggestIndex.updateSubCategory(savedSubCategory.getId(), savedSubCategory.getName(), Boolean.TRUE.equals(savedSubCategory.getIsActive()));
+        categoryTreeCache.invalidate();
         
         SubCategoryDto dto = modelMapper.map(savedSubCategory, SubCategoryDto.class);
         dto.setCategoryName(category.getName());
@@ -106,6 +157,12 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         SubCategory savedSubCategory = subCategoryRepository.save(subCategory);
+        productListingUpdater.renameSubCategory(savedSubCategory.getId(), savedSubCategory.getName());
+        productSearchIndex.renameSubCategory(savedSubCategory.getId(), savedSubCategory.getName());
+        productSuggestIndex.updateSubCategory(savedSubCategory.getId(), savedSubCategory.getName(), Boolean.TRUE.equals(savedSubCategory.getIsActive()));
+        categoryTreeCache.invalidate();
+        productDtoCache.invalidateAll();
+        searchResultCache.invalidateAll();
         SubCategoryDto dto = modelMapper.map(savedSubCategory, SubCategoryDto.class);
         dto.setCategoryName(savedSubCategory.getCategory().getName());
         return dto;
@@ -116,6 +173,11 @@ public class CategoryServiceImpl implements CategoryService {
         SubCategory subCategory = subCategoryRepository.findById(subCategoryId)
                 .orElseThrow(() -> new ResourceNotFoundException("SubCategory", "id", subCategoryId));
         subCategoryRepository.delete(subCategory);
+        productListingUpdater.removeSubCategory(subCategoryId);
+        productSuggestIndex.updateSubCategory(subCategoryId, subCategory.getName(), false);
+        categoryTreeCache.invalidate();
+        productDtoCache.invalidateAll();
+        searchResultCache.invalidateAll();
     }
 
     @Override
@@ -9,11 +9,14 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 
+import java.util.List;
+
 @Service
 public class NotificationServiceImpl implements NotificationService {
 
@@ -129,6 +132,26 @@ public class NotificationServiceImpl implements NotificationService {
         }
     }
 
+    // Bulk moderation results go out from a background thread, one message after another, so the
+    // admin request does not wait on SMTP for every seller
+    @Async
+    @Override
+    public void sendSellerApprovalNotifications(List<User> sellers) {
+        logger.info("📧 Sending {} seller approval notifications", sellers.size());
+        for (User seller : sellers) {
+            sendSellerApprovalNotification(seller);
+        }
+    }
+
+    @Async
+    @Override
+    public void sendSellerRejectionNotifications(List<User> sellers) {
+        logger.info("📧 Sending {} seller rejection notifications", sellers.size());
+        for (User seller : sellers) {
+            sendSellerRejectionNotification(seller);
+        }
+    }
+
     /**
      * Send HTML email using Spring Mail features.
      * Uses a safe approach that avoids encoding issues.
@@ -7,6 +7,11 @@ import com.ecommerce.entities.*;
 import com.ecommerce.exceptions.ResourceNotFoundException;
 import com.ecommerce.repositories.*;
 import com.ecommerce.services.OrderService;
+import com.ecommerce.utils.CartStore;
+import com.ecommerce.utils.FlashSaleInventory;
+import com.ecommerce.utils.InventoryReservations;
+import com.ecommerce.utils.RelatedProductsIndex;
+import com.ecommerce.utils.StockLedger;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -15,7 +20,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -50,9 +57,27 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private com.ecommerce.services.NotificationService notificationService;
 
+    @Autowired
+    private RelatedProductsIndex relatedProductsIndex;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private InventoryReservations inventoryReservations;
+
+    @Autowired
+    private FlashSaleInventory flashSaleInventory;
+
     @Override
     public OrderDto createOrder(Long userId, Long addressId, String razorpayOrderId,
                                String razorpayPaymentId, String razorpaySignature) {
+        // The cart lives in memory; write it in this transaction before reading it back below
+        cartStore.flush(userId);
+
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
 
@@ -81,13 +106,11 @@ public class OrderServiceImpl implements OrderService {
         order.setPaymentStatus(Order.PaymentStatus.PAID);
 
         BigDecimal totalAmount = BigDecimal.ZERO;
+        Map<Long, Integer> quantities = new HashMap<>();
+        Map<Long, Product> products = new HashMap<>();
 
         for (CartItem cartItem : cart.getCartItems()) {
             Product product = cartItem.getProduct();
-            
-            if (product.getStockQuantity() < cartItem.getQuantity()) {
-                throw new RuntimeException("Insufficient stock for product: " + product.getName());
-            }
 
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
@@ -98,11 +121,10 @@ public class OrderServiceImpl implements OrderService {
             order.getOrderItems().add(orderItem);
 
             totalAmount = totalAmount.add(orderItem.getTotalPrice());
-
-            // Deduct inventory
-            product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-            productRepository.save(product);
+            quantities.merge(product.getId(), cartItem.getQuantity(), Integer::sum);
+            products.put(product.getId(), product);
         }
+        deductStock(userId, quantities, products);
 
         order.setTotalAmount(totalAmount);
         order.setShippingCharges(BigDecimal.ZERO);
@@ -110,6 +132,9 @@ public class OrderServiceImpl implements OrderService {
         order.setFinalAmount(totalAmount);
 
         Order savedOrder = orderRepository.save(order);
+        relatedProductsIndex.recordOrder(savedOrder.getId(), savedOrder.getOrderItems().stream()
+                .map(item -> item.getProduct().getId())
+                .collect(Collectors.toList()));
 
         // Create payment record
         Payment payment = new Payment();
@@ -136,6 +161,7 @@ public class OrderServiceImpl implements OrderService {
         for (CartItem item : itemsToDelete) {
             cartItemRepository.delete(item);
         }
+        cartStore.evict(userId);
 
         // Send order confirmation email to customer
         try {
@@ -150,6 +176,8 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public OrderDto createOrderWithPaymentMethod(Long userId, CheckoutRequest request) {
+        cartStore.flush(userId);
+
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
 
@@ -179,6 +207,8 @@ public class OrderServiceImpl implements OrderService {
         order.setShippingAddress(address);
 
         BigDecimal totalAmount = BigDecimal.ZERO;
+        Map<Long, Integer> quantities = new HashMap<>();
+        Map<Long, Product> products = new HashMap<>();
 
         for (CartItem cartItem : cartItemsCopy) {
             if (cartItem == null || cartItem.getProduct() == null || cartItem.getProduct().getId() == null) {
@@ -188,8 +218,7 @@ public class OrderServiceImpl implements OrderService {
             Product product = productRepository.findById(cartItem.getProduct().getId())
                     .orElseThrow(() -> new ResourceNotFoundException("Product", "id", cartItem.getProduct().getId()));
             
-            if (product.getStockQuantity() == null || cartItem.getQuantity() == null || 
-                product.getStockQuantity() < cartItem.getQuantity()) {
+            if (cartItem.getQuantity() == null) {
                 throw new RuntimeException("Insufficient stock for product: " + (product.getName() != null ? product.getName() : "Unknown"));
             }
 
@@ -202,11 +231,10 @@ public class OrderServiceImpl implements OrderService {
             order.getOrderItems().add(orderItem);
 
             totalAmount = totalAmount.add(orderItem.getTotalPrice());
-
-            // Deduct inventory
-            product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-            productRepository.save(product);
+            quantities.merge(product.getId(), cartItem.getQuantity(), Integer::sum);
+            products.put(product.getId(), product);
         }
+        deductStock(userId, quantities, products);
 
         order.setTotalAmount(totalAmount);
         order.setShippingCharges(BigDecimal.ZERO);
@@ -247,6 +275,9 @@ public class OrderServiceImpl implements OrderService {
         }
 
         Order savedOrder = orderRepository.save(order);
+        relatedProductsIndex.recordOrder(savedOrder.getId(), savedOrder.getOrderItems().stream()
+                .map(item -> item.getProduct().getId())
+                .collect(Collectors.toList()));
 
         // Create payment record
         Payment payment = new Payment();
@@ -300,6 +331,7 @@ public class OrderServiceImpl implements OrderService {
         for (CartItem item : itemsToDelete) {
             cartItemRepository.delete(item);
         }
+        cartStore.evict(userId);
 
         // Send order confirmation email to customer
         try {
@@ -312,6 +344,24 @@ public class OrderServiceImpl implements OrderService {
         return mapToDto(savedOrder);
     }
 
+    // Conditional updates in the database instead of checking and subtracting here, so concurrent
+    // checkouts of the same product cannot both take the last units. Units held for other shoppers'
+    // payments are left alone; the user's own hold ends with this order. Products on a flash sale
+    // are taken from its counters instead, and the rest go to the database.
+    private void deductStock(Long userId, Map<Long, Integer> quantities, Map<Long, Product> products) {
+        Map<Long, Integer> regular = new HashMap<>(quantities);
+        List<Long> insufficient = new ArrayList<>(flashSaleInventory.take(regular));
+        if (insufficient.isEmpty()) {
+            insufficient.addAll(stockLedger.deduct(regular,
+                    inventoryReservations.heldByOthers(regular.keySet(), userId)));
+        }
+        if (!insufficient.isEmpty()) {
+            Product product = products.get(insufficient.get(0));
+            throw new RuntimeException("Insufficient stock for product: " + (product.getName() != null ? product.getName() : "Unknown"));
+        }
+        inventoryReservations.confirm(userId);
+    }
+
     @Override
     public OrderDto getOrderById(Long orderId) {
         Order order = orderRepository.findById(orderId)
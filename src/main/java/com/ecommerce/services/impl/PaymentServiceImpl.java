@@ -4,12 +4,18 @@ import com.ecommerce.dto.*;
 import com.ecommerce.entities.Order;
 import com.ecommerce.entities.Payment;
 import com.ecommerce.entities.PaymentTransaction;
+import com.ecommerce.entities.Product;
 import com.ecommerce.exceptions.ResourceNotFoundException;
 import com.ecommerce.repositories.OrderRepository;
 import com.ecommerce.repositories.PaymentRepository;
 import com.ecommerce.repositories.PaymentTransactionRepository;
+import com.ecommerce.repositories.ProductRepository;
 import com.ecommerce.repositories.UserRepository;
 import com.ecommerce.services.PaymentService;
+import com.ecommerce.utils.CartStore;
+import com.ecommerce.utils.CartStore.CartLine;
+import com.ecommerce.utils.FlashSaleInventory;
+import com.ecommerce.utils.InventoryReservations;
 import com.razorpay.Refund;
 import com.razorpay.RazorpayClient;
 import com.razorpay.RazorpayException;
@@ -21,6 +27,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.crypto.Mac;
@@ -57,6 +64,18 @@ public class PaymentServiceImpl implements PaymentService {
     @Autowired
     private ModelMapper modelMapper;
 
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private InventoryReservations inventoryReservations;
+
+    @Autowired
+    private FlashSaleInventory flashSaleInventory;
+
     private RazorpayClient getRazorpayClient() {
         if (razorpayKeyId == null || razorpayKeyId.isEmpty() || razorpayKeyId.equals("your_razorpay_key_id") ||
             razorpayKeySecret == null || razorpayKeySecret.isEmpty() || razorpayKeySecret.equals("your_razorpay_key_secret")) {
@@ -81,13 +100,18 @@ public class PaymentServiceImpl implements PaymentService {
         if (!razorpayConfigured) {
             RazorpayOrderResponse response = new RazorpayOrderResponse();
             response.setOrderId("test_order_" + System.currentTimeMillis());
+            holdCartStock(userId, response.getOrderId());
             response.setAmount(request.getAmount().toString());
             response.setCurrency(request.getCurrency() != null ? request.getCurrency() : "INR");
             response.setKey("test_key");
             return response;
         }
 
-        // Use real Razorpay if configured
+        // Hold the stock before creating the remote order, so a cart that cannot be held leaves no
+        // payment order behind; the hold takes the payment order's id once it exists
+        String pendingReference = "pending_" + UUID.randomUUID();
+        holdCartStock(userId, pendingReference);
+        boolean created = false;
         try {
             RazorpayClient razorpay = new RazorpayClient(razorpayKeyId, razorpayKeySecret);
             
@@ -101,6 +125,8 @@ public class PaymentServiceImpl implements PaymentService {
 
             RazorpayOrderResponse response = new RazorpayOrderResponse();
             response.setOrderId(razorpayOrder.get("id"));
+            inventoryReservations.rename(pendingReference, response.getOrderId());
+            created = true;
             response.setAmount(request.getAmount().toString());
             response.setCurrency(request.getCurrency() != null ? request.getCurrency() : "INR");
             response.setKey(razorpayKeyId);
@@ -112,20 +138,75 @@ public class PaymentServiceImpl implements PaymentService {
                 throw new RuntimeException("Razorpay authentication failed. Please check your API keys in application.properties.");
             }
             throw new RuntimeException("Error creating Razorpay order: " + errorMessage);
+        } finally {
+            if (!created) {
+                inventoryReservations.release(userId, pendingReference);
+            }
+        }
+    }
+
+    // Holds the stock in the user's cart while they pay, so the order created after payment does
+    // not find it sold out. The order confirms the hold; failed payments and expiry release it.
+    // Products on a flash sale are not held: they sell first come, first served from the sale's
+    // counters when the order is placed, and products.stock_quantity lags those counters anyway.
+    private void holdCartStock(Long userId, String razorpayOrderId) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartLine line : cartStore.get(userId).getLines()) {
+            quantities.put(line.getProductId(), line.getQuantity());
+        }
+        if (quantities.isEmpty()) {
+            throw new RuntimeException("Cart is empty");
+        }
+        quantities.keySet().removeAll(flashSaleInventory.activeAmong(quantities.keySet()));
+        Map<Long, Integer> stockByProduct = new HashMap<>();
+        for (Object[] row : productRepository.findStockByIdIn(quantities.keySet())) {
+            stockByProduct.put((Long) row[0], (Integer) row[1]);
+        }
+        List<Long> insufficient = inventoryReservations.hold(userId, razorpayOrderId, quantities, stockByProduct);
+        if (!insufficient.isEmpty()) {
+            String name = productRepository.findById(insufficient.get(0)).map(Product::getName).orElse("Unknown");
+            throw new RuntimeException("Insufficient stock for product: " + name);
         }
     }
 
     @Override
-    public Boolean verifyPayment(PaymentVerificationRequest request) {
+    public Boolean verifyPayment(PaymentVerificationRequest request, Long userId) {
+        boolean valid;
         try {
             String generatedSignature = calculateSignature(
                     request.getRazorpayOrderId() + "|" + request.getRazorpayPaymentId(),
                     razorpayKeySecret
             );
-            return generatedSignature.equals(request.getRazorpaySignature());
+            valid = generatedSignature.equals(request.getRazorpaySignature());
         } catch (Exception e) {
             throw new RuntimeException("Error verifying payment: " + e.getMessage());
         }
+        if (!valid) {
+            inventoryReservations.release(userId, request.getRazorpayOrderId());
+        }
+        return valid;
+    }
+
+    // The signature proves the payment was made against the order; the order's notes, set when it
+    // was created, name the user it was created for. Asked while checkout is full, so it holds no
+    // database connection while Razorpay answers.
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean isPaymentOf(Long userId, String razorpayOrderId, String razorpayPaymentId, String razorpaySignature) {
+        if (razorpayOrderId == null || razorpayPaymentId == null || razorpaySignature == null) {
+            return false;
+        }
+        try {
+            String generatedSignature = calculateSignature(razorpayOrderId + "|" + razorpayPaymentId, razorpayKeySecret);
+            if (!generatedSignature.equals(razorpaySignature)) {
+                return false;
+            }
+            com.razorpay.Order razorpayOrder = getRazorpayClient().orders.fetch(razorpayOrderId);
+            Object notes = razorpayOrder.get("notes");
+            return notes instanceof JSONObject && userId.toString().equals(((JSONObject) notes).optString("userId"));
+        } catch (Exception e) {
+            return false;
+        }
     }
 
     @Override
@@ -391,6 +472,7 @@ public class PaymentServiceImpl implements PaymentService {
     private void handlePaymentFailed(JSONObject payload) {
         JSONObject payment = payload.getJSONObject("payload").getJSONObject("payment").getJSONObject("entity");
         String razorpayPaymentId = payment.getString("id");
+        inventoryReservations.release(payment.optString("order_id", null));
         
         Optional<Payment> paymentOpt = paymentRepository.findByRazorpayPaymentId(razorpayPaymentId);
         if (paymentOpt.isPresent()) {
@@ -0,0 +1,240 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.services.ProductExportService;
+import com.ecommerce.utils.CatalogFormats;
+import com.ecommerce.utils.CsvWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Catalog export over plain JDBC: one forward-only, read-only query streamed row by row into the
+// response, so memory stays flat and no entities are loaded into a persistence context. Images
+// come from the same query and are folded into their product, which is why rows are ordered by id.
+@Service
+@Transactional(readOnly = true)
+public class ProductExportServiceImpl implements ProductExportService {
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int WRITE_BUFFER_CHARS = 64 * 1024;
+
+    // Same column names the bulk import accepts. The import always creates new products and ignores
+    // id and the other columns it does not know, so importing an export copies the catalog rather
+    // than updating it.
+    private static final List<String> COLUMNS = List.of("id", "name", "description", "price", "discountPrice",
+            "stockQuantity", "categoryId", "category", "subCategoryId", "subCategory", "brand", "color", "size",
+            "weight", "dimensions", "images", "isActive", "isApproved", "averageRating", "totalReviews",
+            "sellerId", "createdAt", "updatedAt");
+
+    private static final String EXPORT_SQL = "SELECT p.id, p.name, p.description, p.price, p.discount_price, " +
+            "p.stock_quantity, p.category_id, c.name AS category_name, p.sub_category_id, sc.name AS sub_category_name, " +
+            "p.brand, p.color, p.size, p.weight, p.dimensions, i.image_url, p.is_active, p.is_approved, " +
+            "p.average_rating, p.total_reviews, p.seller_id, p.created_at, p.updated_at " +
+            "FROM products p " +
+            "JOIN categories c ON c.id = p.category_id " +
+            "LEFT JOIN sub_categories sc ON sc.id = p.sub_category_id " +
+            "LEFT JOIN product_images i ON i.product_id = p.id ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public String contentType(String format) {
+        if (CatalogFormats.CSV.equals(format)) {
+            return "text/csv;charset=UTF-8";
+        }
+        if (CatalogFormats.NDJSON.equals(format)) {
+            return "application/x-ndjson;charset=UTF-8";
+        }
+        throw new IllegalArgumentException("Unsupported export format: " + format);
+    }
+
+    // sellerId null exports the whole catalog
+    @Override
+    public void exportProducts(Long sellerId, String format, OutputStream out) throws IOException {
+        contentType(format);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_CHARS);
+        RowSink sink = CatalogFormats.NDJSON.equals(format) ? new NdjsonSink(writer) : new CsvSink(writer);
+        sink.start();
+
+        String sql = EXPORT_SQL + (sellerId != null ? "WHERE p.seller_id = ? " : "") + "ORDER BY p.id";
+        ProductRowFolder folder = new ProductRowFolder(sink);
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize(connection));
+                if (sellerId != null) {
+                    statement.setLong(1, sellerId);
+                }
+                return statement;
+            }, folder);
+            folder.finish();
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; nothing more can be written either way
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    // Connector/J buffers the whole result unless the fetch size is Integer.MIN_VALUE (row streaming)
+    // or the URL enables useCursorFetch; other drivers honour a plain fetch size
+    private static int fetchSize(Connection connection) throws SQLException {
+        String database = connection.getMetaData().getDatabaseProductName();
+        if (database != null && (database.contains("MySQL") || database.contains("MariaDB"))
+                && !connection.getMetaData().getURL().contains("useCursorFetch=true")) {
+            return Integer.MIN_VALUE;
+        }
+        return FETCH_SIZE;
+    }
+
+    private static class ProductRowFolder implements RowCallbackHandler {
+        private final RowSink sink;
+        private Object[] current;
+        private List<String> images;
+
+        ProductRowFolder(RowSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long id = rs.getLong("id");
+            if (current == null || (Long) current[0] != id) {
+                finish();
+                images = new ArrayList<>();
+                current = new Object[]{
+                        id,
+                        rs.getString("name"),
+                        rs.getString("description"),
+                        plain(rs.getBigDecimal("price")),
+                        plain(rs.getBigDecimal("discount_price")),
+                        rs.getInt("stock_quantity"),
+                        rs.getLong("category_id"),
+                        rs.getString("category_name"),
+                        nullableLong(rs, "sub_category_id"),
+                        rs.getString("sub_category_name"),
+                        rs.getString("brand"),
+                        rs.getString("color"),
+                        rs.getString("size"),
+                        rs.getString("weight"),
+                        rs.getString("dimensions"),
+                        images,
+                        rs.getBoolean("is_active"),
+                        rs.getBoolean("is_approved"),
+                        rs.getDouble("average_rating"),
+                        rs.getInt("total_reviews"),
+                        rs.getLong("seller_id"),
+                        timestamp(rs.getTimestamp("created_at")),
+                        timestamp(rs.getTimestamp("updated_at"))
+                };
+            }
+            String image = rs.getString("image_url");
+            if (image != null) {
+                images.add(image);
+            }
+        }
+
+        void finish() {
+            if (current == null) {
+                return;
+            }
+            try {
+                sink.write(current);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            current = null;
+        }
+
+        private static String plain(BigDecimal value) {
+            return value != null ? value.toPlainString() : null;
+        }
+
+        private static Long nullableLong(ResultSet rs, String column) throws SQLException {
+            long value = rs.getLong(column);
+            return rs.wasNull() ? null : value;
+        }
+
+        private static String timestamp(Timestamp value) {
+            return value != null ? value.toLocalDateTime().toString() : null;
+        }
+    }
+
+    private interface RowSink {
+        void start() throws IOException;
+
+        void write(Object[] product) throws IOException;
+    }
+
+    private static class CsvSink implements RowSink {
+        private final CsvWriter csv;
+
+        CsvSink(Writer writer) {
+            this.csv = new CsvWriter(writer);
+        }
+
+        @Override
+        public void start() throws IOException {
+            csv.writeRecord(COLUMNS);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void write(Object[] product) throws IOException {
+            Object[] fields = product.clone();
+            int imagesColumn = COLUMNS.indexOf("images");
+            fields[imagesColumn] = String.join("|", (List<String>) product[imagesColumn]);
+            csv.writeRecord(Arrays.asList(fields));
+        }
+    }
+
+    private class NdjsonSink implements RowSink {
+        private final Writer writer;
+        private final JsonGenerator json;
+
+        NdjsonSink(Writer writer) throws IOException {
+            this.writer = writer;
+            this.json = objectMapper.getFactory().createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void write(Object[] product) throws IOException {
+            json.writeStartObject();
+            for (int i = 0; i < COLUMNS.size(); i++) {
+                json.writeObjectField(COLUMNS.get(i), product[i]);
+            }
+            json.writeEndObject();
+            json.flush();
+            writer.write('\n');
+        }
+    }
+}
@@ -0,0 +1,615 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.dto.ProductDto;
+import com.ecommerce.dto.ProductImportError;
+import com.ecommerce.dto.ProductImportReport;
+import com.ecommerce.entities.Category;
+import com.ecommerce.entities.Product;
+import com.ecommerce.entities.SubCategory;
+import com.ecommerce.entities.User;
+import com.ecommerce.exceptions.ResourceNotFoundException;
+import com.ecommerce.repositories.CategoryRepository;
+import com.ecommerce.repositories.SubCategoryRepository;
+import com.ecommerce.repositories.UserRepository;
+import com.ecommerce.services.ProductImportService;
+import com.ecommerce.utils.CatalogFormats;
+import com.ecommerce.utils.CsvReader;
+import com.ecommerce.utils.ProductListingUpdater;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Bulk product import. The upload is spooled to a temp file, then parsed one row at a time on a
+// background thread; valid rows are persisted in chunks, each chunk one transaction and one JDBC
+// batch per table, with ids taken from the pooled product sequence.
+@Service
+@Transactional
+public class ProductImportServiceImpl implements ProductImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportServiceImpl.class);
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int MAX_IMAGES = 10;
+    // Length of product_images.image_url
+    private static final int MAX_IMAGE_URL_LENGTH = 255;
+    private static final long FINISHED_JOB_RETENTION_MS = 60 * 60 * 1000L;
+
+    @Value("${app.import.max-bytes:524288000}")
+    private long maxBytes;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private SubCategoryRepository subCategoryRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductListingUpdater productListingUpdater;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ProductImportReport submitImport(InputStream content, String format, Long sellerId) {
+        User seller = userRepository.findById(sellerId)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", sellerId));
+        if (seller.getRole() != User.Role.ROLE_SELLER && seller.getRole() != User.Role.ROLE_ADMIN) {
+            throw new RuntimeException("Only sellers can create products");
+        }
+        if (!CatalogFormats.CSV.equals(format) && !CatalogFormats.NDJSON.equals(format)) {
+            throw new IllegalArgumentException("Unsupported import format: " + format);
+        }
+
+        Path file;
+        try {
+            file = Files.createTempFile("product-import-", "." + format);
+        } catch (IOException e) {
+            throw new RuntimeException("Error storing import file: " + e.getMessage());
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            long total = 0;
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                total += read;
+                if (total > maxBytes) {
+                    throw new IllegalArgumentException("Import file exceeds " + maxBytes + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(file);
+            if (e instanceof IllegalArgumentException illegalArgument) {
+                throw illegalArgument;
+            }
+            throw new RuntimeException("Error storing import file: " + e.getMessage());
+        }
+
+        purgeFinishedJobs();
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), sellerId, format, file);
+        jobs.put(job.id, job);
+        return job.toReport();
+    }
+
+    @Override
+    @Async
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void runImport(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            return;
+        }
+        job.status = "RUNNING";
+        job.startedAt = LocalDateTime.now();
+        try (RowReader reader = open(job)) {
+            CatalogLookup lookup = new CatalogLookup(categoryRepository.findAll(), subCategoryRepository.findAll());
+            List<PendingRow> chunk = new ArrayList<>(BATCH_SIZE);
+            while (true) {
+                Map<String, String> row;
+                long rowNumber = job.rowsRead.get() + 1;
+                try {
+                    row = reader.next();
+                } catch (IllegalArgumentException e) {
+                    job.rowsRead.incrementAndGet();
+                    job.fail(rowNumber, e.getMessage());
+                    continue;
+                }
+                if (row == null) {
+                    break;
+                }
+                job.rowsRead.incrementAndGet();
+                try {
+                    chunk.add(new PendingRow(rowNumber, toProduct(row, lookup)));
+                } catch (IllegalArgumentException e) {
+                    job.fail(rowNumber, e.getMessage());
+                }
+                if (chunk.size() == BATCH_SIZE) {
+                    write(job, chunk);
+                    chunk.clear();
+                }
+            }
+            write(job, chunk);
+            job.status = "COMPLETED";
+            logger.info("Product import {} finished: {} imported, {} failed", jobId, job.imported.get(), job.failed.get());
+        } catch (Exception e) {
+            logger.error("Product import {} failed", jobId, e);
+            job.status = "FAILED";
+            job.message = e.getMessage();
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            job.finishedAtMillis = System.currentTimeMillis();
+            deleteQuietly(job.file);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public ProductImportReport getImportStatus(String jobId, Long sellerId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null || !job.sellerId.equals(sellerId)) {
+            throw new ResourceNotFoundException("Import", "id", jobId);
+        }
+        return job.toReport();
+    }
+
+    private void write(ImportJob job, List<PendingRow> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try {
+            transaction.executeWithoutResult(status -> persist(chunk, job.sellerId));
+            job.imported.addAndGet(chunk.size());
+        } catch (RuntimeException e) {
+            // Retry row by row so one bad row does not cost the rest of its batch
+            for (PendingRow row : chunk) {
+                try {
+                    transaction.executeWithoutResult(status -> persist(List.of(row), job.sellerId));
+                    job.imported.incrementAndGet();
+                } catch (RuntimeException rowError) {
+                    job.fail(row.rowNumber, "Could not be saved: " + rootMessage(rowError));
+                }
+            }
+        }
+    }
+
+    private void persist(List<PendingRow> rows, Long sellerId) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(BATCH_SIZE);
+        User seller = entityManager.getReference(User.class, sellerId);
+        List<Product> products = new ArrayList<>(rows.size());
+        for (PendingRow row : rows) {
+            ProductDto source = row.product;
+            Product product = new Product();
+            product.setName(source.getName());
+            product.setDescription(source.getDescription());
+            product.setPrice(source.getPrice());
+            product.setDiscountPrice(source.getDiscountPrice());
+            product.setStockQuantity(source.getStockQuantity());
+            product.setBrand(source.getBrand());
+            product.setColor(source.getColor());
+            product.setSize(source.getSize());
+            product.setWeight(source.getWeight());
+            product.setDimensions(source.getDimensions());
+            product.setSeller(seller);
+            product.setCategory(entityManager.getReference(Category.class, source.getCategoryId()));
+            if (source.getSubCategoryId() != null) {
+                product.setSubCategory(entityManager.getReference(SubCategory.class, source.getSubCategoryId()));
+            }
+            // Same defaults as createProduct: active, awaiting admin approval
+            product.setIsActive(true);
+            product.setIsApproved(false);
+            product.setAverageRating(0.0);
+            product.setTotalReviews(0);
+            product.setImages(new ArrayList<>(source.getImages()));
+            entityManager.persist(product);
+            products.add(product);
+        }
+        // After all products, so the listing inserts form their own JDBC batch
+        for (Product product : products) {
+            productListingUpdater.add(product);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    // Mirrors the validation on ProductDto and in ProductController.createProduct
+    private ProductDto toProduct(Map<String, String> row, CatalogLookup lookup) {
+        ProductDto product = new ProductDto();
+        String name = text(row, "name");
+        if (name == null || name.length() < 3 || name.length() > 200) {
+            throw new IllegalArgumentException("Product name is required and must be between 3 and 200 characters");
+        }
+        product.setName(name);
+        String description = text(row, "description");
+        if (description != null && description.length() > 2000) {
+            throw new IllegalArgumentException("Description cannot exceed 2000 characters");
+        }
+        product.setDescription(description);
+
+        BigDecimal price = money(row, "price");
+        if (price == null) {
+            throw new IllegalArgumentException("Valid price is required");
+        }
+        BigDecimal discountPrice = money(row, "discountprice");
+        product.setPrice(price);
+        product.setDiscountPrice(discountPrice != null ? discountPrice : price);
+
+        String stock = text(row, "stockquantity");
+        try {
+            product.setStockQuantity(stock != null ? Integer.valueOf(stock) : null);
+        } catch (NumberFormatException e) {
+            product.setStockQuantity(null);
+        }
+        if (product.getStockQuantity() == null || product.getStockQuantity() < 0) {
+            throw new IllegalArgumentException("Valid stock quantity is required");
+        }
+
+        Long categoryId = lookup.category(text(row, "categoryid"), text(row, "category"));
+        product.setCategoryId(categoryId);
+        product.setSubCategoryId(lookup.subCategory(categoryId, text(row, "subcategoryid"), text(row, "subcategory")));
+
+        product.setBrand(text(row, "brand"));
+        product.setColor(text(row, "color"));
+        product.setSize(text(row, "size"));
+        product.setWeight(text(row, "weight"));
+        product.setDimensions(text(row, "dimensions"));
+        String images = text(row, "images");
+        if (images != null) {
+            List<String> urls = Arrays.stream(images.split("\\|"))
+                    .map(String::trim)
+                    .filter(url -> !url.isEmpty())
+                    .collect(Collectors.toList());
+            if (urls.size() > MAX_IMAGES) {
+                throw new IllegalArgumentException("At most " + MAX_IMAGES + " images are allowed");
+            }
+            urls.forEach(ProductImportServiceImpl::checkImageUrl);
+            product.setImages(urls);
+        }
+        return product;
+    }
+
+    // Images are shown as given, so only web URLs and files uploaded here are accepted
+    private static void checkImageUrl(String url) {
+        if (url.length() > MAX_IMAGE_URL_LENGTH) {
+            throw new IllegalArgumentException("Image URL cannot exceed " + MAX_IMAGE_URL_LENGTH + " characters");
+        }
+        boolean valid;
+        try {
+            URI uri = new URI(url);
+            if (uri.isAbsolute()) {
+                String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+                valid = (scheme.equals("http") || scheme.equals("https")) && uri.getHost() != null;
+            } else {
+                valid = url.startsWith("/uploads/") && !url.contains("..");
+            }
+        } catch (URISyntaxException e) {
+            valid = false;
+        }
+        if (!valid) {
+            throw new IllegalArgumentException("Invalid image URL: " + url);
+        }
+    }
+
+    private static String text(Map<String, String> row, String column) {
+        String value = row.get(column);
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static BigDecimal money(Map<String, String> row, String column) {
+        String value = text(row, column);
+        if (value == null) {
+            return null;
+        }
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+        if (amount.signum() <= 0 || amount.scale() > 2 || amount.precision() - amount.scale() > 8) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+        return amount;
+    }
+
+    // Header names are matched loosely: "discountPrice", "discount_price" and "Discount Price" are the same column
+    private static String columnKey(String header) {
+        return header.toLowerCase(Locale.ROOT).replaceAll("[\\s_-]", "");
+    }
+
+    private RowReader open(ImportJob job) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(job.file, StandardCharsets.UTF_8);
+        return CatalogFormats.NDJSON.equals(job.format) ? new NdjsonRowReader(reader, objectMapper) : new CsvRowReader(reader);
+    }
+
+    private void purgeFinishedJobs() {
+        long cutoff = System.currentTimeMillis() - FINISHED_JOB_RETENTION_MS;
+        jobs.values().removeIf(job -> job.finishedAtMillis > 0 && job.finishedAtMillis < cutoff);
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete import file {}", file);
+        }
+    }
+
+    private interface RowReader extends Closeable {
+        // Next row keyed by column, null at end of input; IllegalArgumentException for an unreadable row
+        Map<String, String> next() throws IOException;
+    }
+
+    private static class CsvRowReader implements RowReader {
+        private final CsvReader csv;
+        private List<String> header;
+
+        CsvRowReader(BufferedReader reader) {
+            this.csv = new CsvReader(reader);
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            if (header == null) {
+                List<String> names = csv.readRecord();
+                if (names == null) {
+                    return null;
+                }
+                header = names.stream().map(ProductImportServiceImpl::columnKey).collect(Collectors.toList());
+            }
+            List<String> record = csv.readRecord();
+            if (record == null) {
+                return null;
+            }
+            if (record.size() != header.size()) {
+                throw new IllegalArgumentException("Expected " + header.size() + " columns but found " + record.size());
+            }
+            Map<String, String> row = new HashMap<>(header.size() * 2);
+            for (int i = 0; i < header.size(); i++) {
+                row.put(header.get(i), record.get(i));
+            }
+            return row;
+        }
+
+        @Override
+        public void close() throws IOException {
+            csv.close();
+        }
+    }
+
+    private static class NdjsonRowReader implements RowReader {
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+
+        NdjsonRowReader(BufferedReader reader, ObjectMapper objectMapper) {
+            this.reader = reader;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+            }
+            if (node == null || !node.isObject()) {
+                throw new IllegalArgumentException("Each line must be a JSON object");
+            }
+            Map<String, String> row = new HashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode value = field.getValue();
+                String text;
+                if (value.isArray()) {
+                    List<String> items = new ArrayList<>();
+                    value.forEach(item -> items.add(item.asText()));
+                    text = String.join("|", items);
+                } else {
+                    text = value.isNull() ? null : value.asText();
+                }
+                row.put(columnKey(field.getKey()), text);
+            }
+            return row;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    // Categories and subcategories loaded once per import instead of one findById per row
+    private static class CatalogLookup {
+        private final Map<Long, String> categoryNames = new HashMap<>();
+        private final Map<String, Long> categoriesByName = new HashMap<>();
+        private final Map<Long, Long> subCategoryParents = new HashMap<>();
+        private final Map<String, Long> subCategoriesByName = new HashMap<>();
+
+        CatalogLookup(List<Category> categories, List<SubCategory> subCategories) {
+            for (Category category : categories) {
+                categoryNames.put(category.getId(), category.getName());
+                categoriesByName.put(category.getName().toLowerCase(Locale.ROOT), category.getId());
+            }
+            for (SubCategory subCategory : subCategories) {
+                Long parentId = subCategory.getCategory().getId();
+                subCategoryParents.put(subCategory.getId(), parentId);
+                subCategoriesByName.put(parentId + ":" + subCategory.getName().toLowerCase(Locale.ROOT), subCategory.getId());
+            }
+        }
+
+        Long category(String id, String name) {
+            if (id != null) {
+                Long categoryId = parseId(id, "categoryId");
+                if (!categoryNames.containsKey(categoryId)) {
+                    throw new IllegalArgumentException("Category not found with id : '" + id + "'");
+                }
+                return categoryId;
+            }
+            if (name != null) {
+                Long categoryId = categoriesByName.get(name.toLowerCase(Locale.ROOT));
+                if (categoryId == null) {
+                    throw new IllegalArgumentException("Category not found with name : '" + name + "'");
+                }
+                return categoryId;
+            }
+            throw new IllegalArgumentException("Category is required");
+        }
+
+        Long subCategory(Long categoryId, String id, String name) {
+            Long subCategoryId;
+            if (id != null) {
+                subCategoryId = parseId(id, "subCategoryId");
+                if (subCategoryId == 0) {
+                    return null;
+                }
+                if (!subCategoryParents.containsKey(subCategoryId)) {
+                    throw new IllegalArgumentException("SubCategory not found with id : '" + id + "'");
+                }
+            } else if (name != null) {
+                subCategoryId = subCategoriesByName.get(categoryId + ":" + name.toLowerCase(Locale.ROOT));
+                if (subCategoryId == null) {
+                    throw new IllegalArgumentException("SubCategory not found with name : '" + name + "'");
+                }
+            } else {
+                return null;
+            }
+            if (!subCategoryParents.get(subCategoryId).equals(categoryId)) {
+                throw new IllegalArgumentException("SubCategory does not belong to the selected Category");
+            }
+            return subCategoryId;
+        }
+
+        private static Long parseId(String value, String column) {
+            try {
+                return Long.valueOf(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + column + ": " + value);
+            }
+        }
+    }
+
+    private static class PendingRow {
+        final long rowNumber;
+        final ProductDto product;
+
+        PendingRow(long rowNumber, ProductDto product) {
+            this.rowNumber = rowNumber;
+            this.product = product;
+        }
+    }
+
+    private static class ImportJob {
+        final String id;
+        final Long sellerId;
+        final String format;
+        final Path file;
+        final LocalDateTime submittedAt = LocalDateTime.now();
+        final AtomicLong rowsRead = new AtomicLong();
+        final AtomicLong imported = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final List<ProductImportError> errors = new ArrayList<>();
+        volatile String status = "QUEUED";
+        volatile String message;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        volatile long finishedAtMillis;
+
+        ImportJob(String id, Long sellerId, String format, Path file) {
+            this.id = id;
+            this.sellerId = sellerId;
+            this.format = format;
+            this.file = file;
+        }
+
+        void fail(long rowNumber, String reason) {
+            failed.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add(new ProductImportError(rowNumber, reason));
+                }
+            }
+        }
+
+        ProductImportReport toReport() {
+            List<ProductImportError> errorsSoFar;
+            synchronized (errors) {
+                errorsSoFar = new ArrayList<>(errors);
+            }
+            return new ProductImportReport(id, status, format, rowsRead.get(), imported.get(), failed.get(),
+                    errorsSoFar, message, submittedAt, startedAt, finishedAt);
+        }
+    }
+}
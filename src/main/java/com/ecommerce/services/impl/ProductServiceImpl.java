@@ -1,36 +1,77 @@
 package com.ecommerce.services.impl;
 
+import com.ecommerce.dto.BulkModerationRequest;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.ProductCardDto;
 import com.ecommerce.dto.ProductDto;
+import com.ecommerce.dto.ProductFacetsDto;
+import com.ecommerce.dto.ProductRelationsDto;
+import com.ecommerce.dto.ProductSearchPage;
 import com.ecommerce.dto.ProductSearchRequest;
+import com.ecommerce.dto.SuggestionDto;
 import com.ecommerce.entities.Category;
 import com.ecommerce.entities.Product;
+import com.ecommerce.entities.ProductListing;
 import com.ecommerce.entities.SubCategory;
 import com.ecommerce.entities.User;
 import com.ecommerce.exceptions.ResourceNotFoundException;
 import com.ecommerce.repositories.CategoryRepository;
+import com.ecommerce.repositories.ProductListingRepository;
 import com.ecommerce.repositories.ProductRepository;
+import com.ecommerce.repositories.ProductSeekRepository;
 import com.ecommerce.repositories.SubCategoryRepository;
 import com.ecommerce.repositories.UserRepository;
 import com.ecommerce.services.ProductService;
 import com.ecommerce.utils.FileStorageService;
+import com.ecommerce.utils.FlashSaleInventory;
+import com.ecommerce.utils.ProductCursor;
+import com.ecommerce.utils.ProductDtoCache;
+import com.ecommerce.utils.ProductListingUpdater;
+import com.ecommerce.utils.ProductSearchIndex;
+import com.ecommerce.utils.ProductSuggestIndex;
+import com.ecommerce.utils.RelatedProductsIndex;
+import com.ecommerce.utils.SearchResultCache;
+import com.ecommerce.utils.SearchResultCache.SearchResult;
+import com.ecommerce.utils.StockLedger;
+import com.ecommerce.utils.TransactionHooks;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class ProductServiceImpl implements ProductService {
 
+    private static final int MAX_BATCH_IDS = 200;
+    private static final int MODERATION_CHUNK_SIZE = 1000;
+    // Above this many products a bulk moderation rebuilds the search indexes instead of updating them one by one
+    private static final int MAX_INCREMENTAL_INDEX_UPDATES = 1000;
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductSeekRepository productSeekRepository;
+
     @Autowired
     private CategoryRepository categoryRepository;
 
@@ -43,6 +84,33 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private ProductDtoCache productDtoCache;
+
+    @Autowired
+    private FlashSaleInventory flashSaleInventory;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private RelatedProductsIndex relatedProductsIndex;
+
+    @Autowired
+    private ProductListingRepository productListingRepository;
+
+    @Autowired
+    private ProductListingUpdater productListingUpdater;
+
     @Override
     public ProductDto createProduct(ProductDto productDto, List<MultipartFile> images, Long sellerId) {
         User seller = userRepository.findById(sellerId)
@@ -103,6 +171,9 @@ public class ProductServiceImpl implements ProductService {
         }
 
         Product savedProduct = productRepository.save(product);
+        productListingUpdater.add(savedProduct);
+        productSearchIndex.update(savedProduct);
+        productSuggestIndex.update(savedProduct);
         return mapToDto(savedProduct);
     }
 
@@ -119,7 +190,15 @@ public class ProductServiceImpl implements ProductService {
         if (productDto.getDescription() != null) product.setDescription(productDto.getDescription());
         if (productDto.getPrice() != null) product.setPrice(productDto.getPrice());
         if (productDto.getDiscountPrice() != null) product.setDiscountPrice(productDto.getDiscountPrice());
-        if (productDto.getStockQuantity() != null) product.setStockQuantity(productDto.getStockQuantity());
+        // Stock is not written by saving the entity; see Product.stockQuantity
+        Integer stock = productDto.getStockQuantity();
+        if (stock != null && !stock.equals(product.getStockQuantity())) {
+            if (flashSaleInventory.isActive(productId)) {
+                throw new RuntimeException("Stock of a product on a flash sale can be changed once the sale ends");
+            }
+            stockLedger.set(productId, stock);
+            product.setStockQuantity(stock);
+        }
         if (productDto.getBrand() != null) product.setBrand(productDto.getBrand());
         if (productDto.getColor() != null) product.setColor(productDto.getColor());
         if (productDto.getSize() != null) product.setSize(productDto.getSize());
@@ -163,6 +242,11 @@ public class ProductServiceImpl implements ProductService {
         }
 
         Product updatedProduct = productRepository.save(product);
+        productListingUpdater.refresh(updatedProduct);
+        productSearchIndex.update(updatedProduct);
+        productSuggestIndex.update(updatedProduct);
+        productDtoCache.invalidate(productId);
+        searchResultCache.invalidateAll();
         return mapToDto(updatedProduct);
     }
 
@@ -176,27 +260,102 @@ public class ProductServiceImpl implements ProductService {
         }
 
         productRepository.delete(product);
+        productListingUpdater.remove(productId);
+        productSearchIndex.remove(productId);
+        productSuggestIndex.remove(productId);
+        productDtoCache.invalidate(productId);
+        searchResultCache.invalidateAll();
     }
 
+    // No transaction of its own: a cache hit should not have to borrow a database connection
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public ProductDto getProductById(Long productId) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product", "id", productId));
-        return mapToDto(product);
+        return productDtoCache.get(productId, () -> {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product", "id", productId));
+            return mapToDtos(List.of(product)).get(0);
+        });
+    }
+
+    // Cached products come from memory; the rest are loaded together with one IN query each for
+    // the products, their associations and their images. Unknown ids are left out.
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<ProductDto> getProductsByIds(List<Long> productIds) {
+        List<Long> distinctIds = productIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (distinctIds.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " product ids can be requested at once");
+        }
+        return productDtoCache.getAll(distinctIds, ids -> mapToDtos(findAllInOrder(ids)));
     }
 
     @Override
     public Page<ProductDto> getAllProducts(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         Page<Product> products = productRepository.findByIsActiveTrueAndIsApprovedTrue(pageable);
-        return products.map(this::mapToDto);
+        return mapPage(products);
+    }
+
+    // From the product_listing read model once it has caught up; until then from a projection query
+    @Override
+    public Page<ProductCardDto> getAllProductCards(int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        if (productListingUpdater.isReady()) {
+            return productListingRepository.findByVisibleTrue(pageable).map(ProductServiceImpl::toCard);
+        }
+        Page<ProductCardDto> cards = productRepository.findVisibleCards(pageable);
+        addFirstImages(cards.getContent());
+        return cards;
     }
 
     @Override
+    public CursorPage<ProductCardDto> getAllProductCards(String cursor, int size, String sortBy, boolean includeTotal) {
+        return seekCards(null, true, cursor, size, sortBy, includeTotal);
+    }
+
+    // Runs outside a transaction like getProductById, so cached results can be served and stored
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Page<ProductDto> searchProducts(ProductSearchRequest searchRequest) {
-        Sort sort = getSort(searchRequest.getSortBy());
-        Pageable pageable = PageRequest.of(searchRequest.getPage(), searchRequest.getSize(), sort);
-        
+        return searchPage(searchRequest, this::hydrate);
+    }
+
+    // Same cached result pages as searchProducts; only the hydration differs
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Page<ProductCardDto> searchProductCards(ProductSearchRequest searchRequest) {
+        return searchPage(searchRequest, this::hydrateCards);
+    }
+
+    private <T> Page<T> searchPage(ProductSearchRequest searchRequest, Function<SearchResult, List<T>> hydrator) {
+        ProductSearchRequest request = SearchResultCache.normalize(searchRequest);
+        Pageable pageable = PageRequest.of(request.getPage(), request.getSize(), getSort(request.getSortBy()));
+        boolean indexed = productSearchIndex.isReady();
+        SearchResult result = searchResultCache.get(SearchResultCache.key(request, indexed),
+                () -> loadSearchPage(request, pageable, indexed));
+
+        Page<T> page = new PageImpl<>(hydrator.apply(result), pageable, result.getTotal());
+        if (request.getIncludeFacets()) {
+            return new ProductSearchPage<>(page, result.getFacets());
+        }
+        return page;
+    }
+
+    private SearchResult loadSearchPage(ProductSearchRequest searchRequest, Pageable pageable, boolean indexed) {
+        // Keyword searches are answered by the in-memory index; the database only hydrates one page
+        if (indexed && !ProductSearchIndex.tokenize(searchRequest.getKeyword()).isEmpty()) {
+            List<Long> matchingIds = productSearchIndex.search(searchRequest);
+            int from = (int) Math.min(pageable.getOffset(), matchingIds.size());
+            int to = Math.min(from + pageable.getPageSize(), matchingIds.size());
+            List<ProductDto> content = mapToDtos(findAllInOrder(matchingIds.subList(from, to)));
+            ProductFacetsDto facets = null;
+            if (searchRequest.getIncludeFacets()) {
+                facets = productSearchIndex.facetSnapshot().count(matchingIds);
+            }
+            return new SearchResult(content, (long) matchingIds.size(), null, to < matchingIds.size(), facets);
+        }
+
         Page<Product> products = productRepository.searchProducts(
                 searchRequest.getKeyword(),
                 searchRequest.getCategoryId(),
@@ -207,21 +366,150 @@ public class ProductServiceImpl implements ProductService {
                 pageable
         );
 
-        return products.map(this::mapToDto);
+        // Facets for a filter-only search come from the same in-memory snapshot; they are
+        // omitted while the index is still loading rather than computed with GROUP BY queries
+        ProductFacetsDto facets = null;
+        if (searchRequest.getIncludeFacets() && indexed && !StringUtils.hasText(searchRequest.getKeyword())) {
+            facets = productSearchIndex.facetSnapshot().count(searchRequest);
+        }
+        return new SearchResult(mapToDtos(products.getContent()), products.getTotalElements(), null,
+                products.hasNext(), facets);
+    }
+
+    @Override
+    public List<SuggestionDto> getSuggestions(String query, int limit) {
+        return productSuggestIndex.suggest(query, Math.min(limit, ProductSuggestIndex.MAX_SUGGESTIONS));
+    }
+
+    // Neighbours come from memory and their contents from the detail cache; products that are no
+    // longer visible are skipped, which is why all precomputed neighbours are hydrated
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<ProductDto> getRelatedProducts(Long productId, int limit) {
+        int max = Math.min(limit, RelatedProductsIndex.TOP_K);
+        List<ProductDto> related = new ArrayList<>();
+        List<Long> relatedIds = relatedProductsIndex.related(productId);
+        for (ProductDto product : productDtoCache.getAll(relatedIds, ids -> mapToDtos(findAllInOrder(ids)))) {
+            if (related.size() >= max) {
+                break;
+            }
+            if (Boolean.TRUE.equals(product.getIsActive()) && Boolean.TRUE.equals(product.getIsApproved())) {
+                related.add(product);
+            }
+        }
+        return related;
     }
 
     @Override
     public Page<ProductDto> getProductsByCategory(Long categoryId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         Page<Product> products = productRepository.findByCategoryId(categoryId, pageable);
-        return products.map(this::mapToDto);
+        return mapPage(products);
+    }
+
+    @Override
+    public Page<ProductCardDto> getProductCardsByCategory(Long categoryId, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        if (productListingUpdater.isReady()) {
+            return productListingRepository.findByCategoryId(categoryId, pageable).map(ProductServiceImpl::toCard);
+        }
+        Page<ProductCardDto> cards = productRepository.findCardsByCategoryId(categoryId, pageable);
+        addFirstImages(cards.getContent());
+        return cards;
     }
 
     @Override
     public Page<ProductDto> getProductsBySeller(Long sellerId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         Page<Product> products = productRepository.findBySellerId(sellerId, pageable);
-        return products.map(this::mapToDto);
+        return mapPage(products);
+    }
+
+    @Override
+    public CursorPage<ProductDto> getAllProducts(String cursor, int size, String sortBy, boolean includeTotal) {
+        return seekProducts(null, null, new ProductSearchRequest(), true, cursor, size, sortBy, includeTotal,
+                this::mapToDtos);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public CursorPage<ProductDto> searchProducts(ProductSearchRequest searchRequest, String cursor, boolean includeTotal) {
+        return searchCursorPage(searchRequest, cursor, includeTotal, this::hydrate);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public CursorPage<ProductCardDto> searchProductCards(ProductSearchRequest searchRequest, String cursor, boolean includeTotal) {
+        return searchCursorPage(searchRequest, cursor, includeTotal, this::hydrateCards);
+    }
+
+    private <T> CursorPage<T> searchCursorPage(ProductSearchRequest searchRequest, String cursor, boolean includeTotal,
+                                               Function<SearchResult, List<T>> hydrator) {
+        ProductSearchRequest request = SearchResultCache.normalize(searchRequest);
+        int size = request.getSize();
+        boolean indexed = productSearchIndex.isReady();
+        SearchResult result = searchResultCache.get(SearchResultCache.key(request, indexed, cursor, includeTotal),
+                () -> loadSearchCursorPage(request, cursor, includeTotal, indexed));
+        return new CursorPage<>(hydrator.apply(result), result.getNextCursor(), result.isHasNext(), size, result.getTotal());
+    }
+
+    private SearchResult loadSearchCursorPage(ProductSearchRequest searchRequest, String cursor,
+                                              boolean includeTotal, boolean indexed) {
+        int size = searchRequest.getSize();
+
+        // Index results are ranked in memory, so their cursor is simply a position in that ranking
+        if (indexed && !ProductSearchIndex.tokenize(searchRequest.getKeyword()).isEmpty()) {
+            if (size < 1) {
+                throw new IllegalArgumentException("Page size must be at least 1");
+            }
+            ProductCursor position = ProductCursor.decode(cursor, ProductCursor.RELEVANCE);
+            List<Long> matchingIds = productSearchIndex.search(searchRequest);
+            int from = Math.min(position != null ? position.offset() : 0, matchingIds.size());
+            int to = Math.min(from + size, matchingIds.size());
+            List<ProductDto> content = mapToDtos(findAllInOrder(matchingIds.subList(from, to)));
+            boolean hasNext = to < matchingIds.size();
+            String nextCursor = hasNext ? ProductCursor.encode(ProductCursor.RELEVANCE, to, matchingIds.get(to - 1)) : null;
+            return new SearchResult(content, includeTotal ? Long.valueOf(matchingIds.size()) : null,
+                    nextCursor, hasNext, null);
+        }
+
+        CursorPage<ProductDto> page = seekProducts(null, searchRequest.getCategoryId(), searchRequest, true,
+                cursor, size, searchRequest.getSortBy(), includeTotal, this::mapToDtos);
+        return new SearchResult(page.getContent(), page.getTotalElements(), page.getNextCursor(),
+                page.getHasNext(), null);
+    }
+
+    // Products of a search result: fresh loads carry them, cached results go through the detail cache
+    private List<ProductDto> hydrate(SearchResult result) {
+        if (result.getProducts() != null) {
+            return result.getProducts();
+        }
+        return productDtoCache.getAll(result.getProductIds(), ids -> mapToDtos(findAllInOrder(ids)));
+    }
+
+    private List<ProductCardDto> hydrateCards(SearchResult result) {
+        if (result.getProducts() != null) {
+            return result.getProducts().stream().map(ProductCardDto::of).collect(Collectors.toList());
+        }
+        return cardsInOrder(result.getProductIds());
+    }
+
+    @Override
+    public CursorPage<ProductDto> getProductsByCategory(Long categoryId, String cursor, int size, String sortBy, boolean includeTotal) {
+        // Same rows as the offset variant, which does not filter on approval
+        return seekProducts(null, categoryId, new ProductSearchRequest(), false, cursor, size, sortBy, includeTotal,
+                this::mapToDtos);
+    }
+
+    @Override
+    public CursorPage<ProductCardDto> getProductCardsByCategory(Long categoryId, String cursor, int size, String sortBy, boolean includeTotal) {
+        return seekCards(categoryId, false, cursor, size, sortBy, includeTotal);
+    }
+
+    @Override
+    public CursorPage<ProductDto> getProductsBySeller(Long sellerId, String cursor, int size, String sortBy, boolean includeTotal) {
+        return seekProducts(sellerId, null, new ProductSearchRequest(), false, cursor, size, sortBy, includeTotal,
+                this::mapToDtos);
     }
 
     @Override
@@ -230,6 +518,11 @@ public class ProductServiceImpl implements ProductService {
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "id", productId));
         product.setIsApproved(true);
         Product savedProduct = productRepository.save(product);
+        productListingUpdater.refresh(savedProduct);
+        productSearchIndex.update(savedProduct);
+        productSuggestIndex.update(savedProduct);
+        productDtoCache.invalidate(productId);
+        searchResultCache.invalidateAll();
         return mapToDto(savedProduct);
     }
 
@@ -240,10 +533,255 @@ public class ProductServiceImpl implements ProductService {
         product.setIsApproved(false);
         product.setIsActive(false);
         Product savedProduct = productRepository.save(product);
+        productListingUpdater.refresh(savedProduct);
+        productSearchIndex.remove(productId);
+        productSuggestIndex.remove(productId);
+        productDtoCache.invalidate(productId);
+        searchResultCache.invalidateAll();
         return mapToDto(savedProduct);
     }
 
+    @Override
+    public int approveProducts(BulkModerationRequest request) {
+        return moderateProducts(request, true);
+    }
+
+    @Override
+    public int rejectProducts(BulkModerationRequest request) {
+        return moderateProducts(request, false);
+    }
+
+    // Only ids are loaded: the state changes are UPDATE ... WHERE id IN statements per chunk, and the
+    // caches are cleared once for the whole batch instead of once per product
+    private int moderateProducts(BulkModerationRequest request, boolean approving) {
+        List<Long> productIds = findModerationTargets(request, approving);
+        if (productIds.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < productIds.size(); from += MODERATION_CHUNK_SIZE) {
+            List<Long> chunk = productIds.subList(from, Math.min(from + MODERATION_CHUNK_SIZE, productIds.size()));
+            if (approving) {
+                productRepository.approveByIds(chunk, now);
+                productListingRepository.showActive(chunk, now);
+            } else {
+                productRepository.rejectByIds(chunk, now);
+                productListingRepository.hide(chunk, now);
+            }
+        }
+
+        if (productIds.size() > MAX_INCREMENTAL_INDEX_UPDATES) {
+            // Both rebuilds run asynchronously; keyword search falls back to the database meanwhile
+            TransactionHooks.afterCommit(() -> {
+                productSearchIndex.rebuild();
+                productSuggestIndex.rebuild();
+            });
+        } else if (approving) {
+            for (Product product : productRepository.findAllById(productIds)) {
+                productSearchIndex.update(product);
+                productSuggestIndex.update(product);
+            }
+        } else {
+            for (Long productId : productIds) {
+                productSearchIndex.remove(productId);
+                productSuggestIndex.remove(productId);
+            }
+        }
+        productDtoCache.invalidateAll();
+        searchResultCache.invalidateAll();
+        return productIds.size();
+    }
+
+    private List<Long> findModerationTargets(BulkModerationRequest request, boolean approving) {
+        if (request.getIds() == null || request.getIds().isEmpty()) {
+            return productRepository.findIdsForModeration(approving, request.getSellerId(), request.getCategoryId(),
+                    request.getCreatedFrom(), request.getCreatedTo());
+        }
+        List<Long> requestedIds = request.getIds().stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        List<Long> productIds = new ArrayList<>();
+        for (int from = 0; from < requestedIds.size(); from += MODERATION_CHUNK_SIZE) {
+            List<Long> chunk = requestedIds.subList(from, Math.min(from + MODERATION_CHUNK_SIZE, requestedIds.size()));
+            productIds.addAll(productRepository.findIdsForModerationIn(chunk, approving, request.getSellerId(),
+                    request.getCategoryId(), request.getCreatedFrom(), request.getCreatedTo()));
+        }
+        return productIds;
+    }
+
+    private <T> CursorPage<T> seekProducts(Long sellerId, Long categoryId, ProductSearchRequest filters,
+                                           boolean visibleOnly, String cursorToken, int size, String sortBy,
+                                           boolean includeTotal, Function<List<Product>, List<T>> mapper) {
+        return seek(Product.class, sellerId, categoryId, filters, visibleOnly, cursorToken, size, sortBy, includeTotal,
+                (last, sort) -> ProductCursor.encode(sort,
+                        sortKey(sort, last.getDiscountPrice(), last.getAverageRating(), last.getCreatedAt()), last.getId()),
+                mapper);
+    }
+
+    // Card pages seek on product_listing and build their tiles from the same rows, so products are
+    // not read at all; before the listing has caught up they seek on products instead
+    private CursorPage<ProductCardDto> seekCards(Long categoryId, boolean visibleOnly, String cursorToken, int size,
+                                                 String sortBy, boolean includeTotal) {
+        if (!productListingUpdater.isReady()) {
+            return seekProducts(null, categoryId, new ProductSearchRequest(), visibleOnly, cursorToken, size, sortBy,
+                    includeTotal, this::mapToCards);
+        }
+        return seek(ProductListing.class, null, categoryId, new ProductSearchRequest(), visibleOnly, cursorToken, size,
+                sortBy, includeTotal,
+                (last, sort) -> ProductCursor.encode(sort,
+                        sortKey(sort, last.getDiscountPrice(), last.getAverageRating(), last.getCreatedAt()),
+                        last.getProductId()),
+                listings -> listings.stream().map(ProductServiceImpl::toCard).collect(Collectors.toList()));
+    }
+
+    private <E, T> CursorPage<T> seek(Class<E> entity, Long sellerId, Long categoryId, ProductSearchRequest filters,
+                                      boolean visibleOnly, String cursorToken, int size, String sortBy,
+                                      boolean includeTotal, BiFunction<E, String, String> cursorAfter,
+                                      Function<List<E>, List<T>> mapper) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        String sort = ProductCursor.normalizeSort(sortBy);
+        ProductCursor cursor = ProductCursor.decode(cursorToken, sort);
+        // One extra row tells us whether there is a next page without a count query
+        List<E> rows = productSeekRepository.seek(entity, sellerId, categoryId, filters, visibleOnly, sort, cursor,
+                size + 1);
+
+        boolean hasNext = rows.size() > size;
+        if (hasNext) {
+            rows = rows.subList(0, size);
+        }
+        String nextCursor = hasNext ? cursorAfter.apply(rows.get(rows.size() - 1), sort) : null;
+
+        Long total = null;
+        if (includeTotal) {
+            total = productSeekRepository.count(entity, sellerId, categoryId, filters, visibleOnly);
+        }
+
+        return new CursorPage<>(mapper.apply(rows), nextCursor, hasNext, size, total);
+    }
+
+    private static Object sortKey(String sort, BigDecimal discountPrice, Double averageRating, LocalDateTime createdAt) {
+        return switch (sort) {
+            case ProductCursor.PRICE_ASC, ProductCursor.PRICE_DESC -> discountPrice.toPlainString();
+            case ProductCursor.RATING_DESC -> averageRating;
+            default -> createdAt;
+        };
+    }
+
+    // Cards for products already sought; only the listing rows are needed for them
+    private List<ProductCardDto> mapToCards(List<Product> products) {
+        return cardsInOrder(products.stream().map(Product::getId).collect(Collectors.toList()));
+    }
+
+    // One primary key lookup on product_listing instead of the association and image queries a
+    // full product needs; before the listing has caught up, cards are trimmed from full products
+    private List<ProductCardDto> cardsInOrder(List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (!productListingUpdater.isReady()) {
+            return mapToDtos(findAllInOrder(productIds)).stream().map(ProductCardDto::of).collect(Collectors.toList());
+        }
+        Map<Long, ProductListing> listingsById = productListingRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(ProductListing::getProductId, Function.identity()));
+        return productIds.stream()
+                .map(listingsById::get)
+                .filter(Objects::nonNull)
+                .map(ProductServiceImpl::toCard)
+                .collect(Collectors.toList());
+    }
+
+    private static ProductCardDto toCard(ProductListing listing) {
+        List<String> images = new ArrayList<>();
+        if (listing.getFirstImage() != null) {
+            images.add(listing.getFirstImage());
+        }
+        return new ProductCardDto(listing.getProductId(), listing.getName(), listing.getBrand(), listing.getPrice(),
+                listing.getDiscountPrice(), listing.getStockQuantity(), listing.getAverageRating(),
+                listing.getTotalReviews(), listing.getSellerName(), listing.getUpdatedAt(), images);
+    }
+
+    private List<Product> findAllInOrder(List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> productsById = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return productIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    // Element collections have no order column, so "first" is the first row the batched query returns,
+    // the same image a full product lists first
+    private void addFirstImages(List<ProductCardDto> cards) {
+        if (cards.isEmpty()) {
+            return;
+        }
+        Map<Long, ProductCardDto> cardsById = cards.stream()
+                .collect(Collectors.toMap(ProductCardDto::getId, Function.identity()));
+        for (Object[] row : productRepository.findImagesByProductIds(cardsById.keySet())) {
+            ProductCardDto card = cardsById.get((Long) row[0]);
+            if (card.getImages().isEmpty()) {
+                card.getImages().add((String) row[1]);
+            }
+        }
+    }
+
+    private Page<ProductDto> mapPage(Page<Product> products) {
+        return new PageImpl<>(mapToDtos(products.getContent()), products.getPageable(), products.getTotalElements());
+    }
+
+    // Maps a page of products with two batched queries for their associations and images,
+    // instead of the four lazy loads per product that mapToDto would trigger
+    private List<ProductDto> mapToDtos(List<Product> products) {
+        if (products.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> productIds = products.stream().map(Product::getId).collect(Collectors.toList());
+        Map<Long, ProductRelationsDto> relationsByProductId = productRepository.findRelationsByProductIds(productIds).stream()
+                .collect(Collectors.toMap(ProductRelationsDto::getProductId, Function.identity()));
+        Map<Long, List<String>> imagesByProductId = new HashMap<>();
+        for (Object[] row : productRepository.findImagesByProductIds(productIds)) {
+            imagesByProductId.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+
+        List<ProductDto> dtos = new ArrayList<>(products.size());
+        for (Product product : products) {
+            ProductDto dto = mapBasicFields(product);
+            dto.setImages(imagesByProductId.getOrDefault(product.getId(), new ArrayList<>()));
+            ProductRelationsDto relations = relationsByProductId.get(product.getId());
+            if (relations != null) {
+                dto.setSellerId(relations.getSellerId());
+                dto.setSellerName(relations.getSellerFirstName() + " " + relations.getSellerLastName());
+                dto.setCategoryId(relations.getCategoryId());
+                dto.setCategoryName(relations.getCategoryName());
+                dto.setSubCategoryId(relations.getSubCategoryId());
+                dto.setSubCategoryName(relations.getSubCategoryName());
+            }
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
     private ProductDto mapToDto(Product product) {
+        ProductDto dto = mapBasicFields(product);
+        dto.setImages(product.getImages() != null ? product.getImages() : new java.util.ArrayList<>());
+
+        // Map relationship fields manually
+        dto.setSellerId(product.getSeller().getId());
+        dto.setSellerName(product.getSeller().getFirstName() + " " + product.getSeller().getLastName());
+        dto.setCategoryId(product.getCategory().getId());
+        dto.setCategoryName(product.getCategory().getName());
+        if (product.getSubCategory() != null) {
+            dto.setSubCategoryId(product.getSubCategory().getId());
+            dto.setSubCategoryName(product.getSubCategory().getName());
+        }
+
+        return dto;
+    }
+
+    private ProductDto mapBasicFields(Product product) {
         ProductDto dto = new ProductDto();
         
         // Map basic fields
@@ -260,22 +798,11 @@ public class ProductServiceImpl implements ProductService {
         dto.setSize(product.getSize());
         dto.setWeight(product.getWeight());
         dto.setDimensions(product.getDimensions());
-        dto.setImages(product.getImages() != null ? product.getImages() : new java.util.ArrayList<>());
         dto.setAverageRating(product.getAverageRating());
         dto.setTotalReviews(product.getTotalReviews());
         dto.setCreatedAt(product.getCreatedAt());
         dto.setUpdatedAt(product.getUpdatedAt());
         
-        // Map relationship fields manually
-        dto.setSellerId(product.getSeller().getId());
-        dto.setSellerName(product.getSeller().getFirstName() + " " + product.getSeller().getLastName());
-        dto.setCategoryId(product.getCategory().getId());
-        dto.setCategoryName(product.getCategory().getName());
-        if (product.getSubCategory() != null) {
-            dto.setSubCategoryId(product.getSubCategory().getId());
-            dto.setSubCategoryName(product.getSubCategory().getName());
-        }
-        
         return dto;
     }
 
@@ -11,6 +11,9 @@ import com.ecommerce.repositories.ProductRepository;
 import com.ecommerce.repositories.ReviewRepository;
 import com.ecommerce.repositories.UserRepository;
 import com.ecommerce.services.ReviewService;
+import com.ecommerce.utils.ProductDtoCache;
+import com.ecommerce.utils.ProductListingUpdater;
+import com.ecommerce.utils.SearchResultCache;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -38,6 +41,16 @@ public class ReviewServiceImpl implements ReviewService {
     @Autowired
     private ModelMapper modelMapper;
 
+    @Autowired
+    private ProductDtoCache productDtoCache;
+
+    @Autowired
+    private ProductListingUpdater productListingUpdater;
+
+    // Ratings decide the rating_desc order of search results
+    @Autowired
+    private SearchResultCache searchResultCache;
+
     @Override
     public ReviewDto createReview(ReviewDto reviewDto, Long userId) {
         User user = userRepository.findById(userId)
@@ -134,6 +147,9 @@ public class ReviewServiceImpl implements ReviewService {
             product.setTotalReviews(reviews.size());
         }
         productRepository.save(product);
+        productListingUpdater.refresh(product);
+        productDtoCache.invalidate(product.getId());
+        searchResultCache.invalidateAll();
     }
 
     private ReviewDto mapToDto(Review review) {
@@ -0,0 +1,727 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.entities.Cart;
+import com.ecommerce.entities.CartItem;
+import com.ecommerce.entities.Product;
+import com.ecommerce.entities.User;
+import com.ecommerce.repositories.CartItemRepository;
+import com.ecommerce.repositories.CartRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Active carts kept in memory by user id and written back to carts/cart_items in the background.
+// Mutations only touch memory; a periodic flush writes every dirty cart in batched transactions,
+// checkout writes its cart inside the order transaction, and whatever is left is written when the
+// context closes. The store is bounded by evicting the least recently used carts that are clean.
+@Component
+public class CartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartStore.class);
+
+    @Value("${app.cart.store.max-carts:50000}")
+    private int maxCarts;
+
+    @Value("${app.cart.flush-batch-size:200}")
+    private int flushBatchSize;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Access-ordered, so iteration starts at the least recently used cart
+    private final LinkedHashMap<Long, CartState> carts = new LinkedHashMap<>(256, 0.75f, true);
+    // Bumped by every evict, under the store's lock; a load that straddles one may have read rows
+    // checkout has since deleted
+    private long evictions;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder flushedCarts = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder lruEvictions = new LongAdder();
+    private final LongAdder droppedLines = new LongAdder();
+
+    public CartSnapshot get(Long userId) {
+        CartState cart = state(userId);
+        synchronized (cart) {
+            return cart.snapshot();
+        }
+    }
+
+    // Applies the mutation under the cart's lock and marks the cart dirty if it returns normally;
+    // mutations validate before they change anything
+    public CartSnapshot update(Long userId, Consumer<CartState> mutation) {
+        while (true) {
+            CartState cart = state(userId);
+            synchronized (cart) {
+                // Evicted between the lookup and the lock: the change would be lost with it, so
+                // start again from whatever replaced it
+                if (cart.evicted) {
+                    continue;
+                }
+                mutation.accept(cart);
+                cart.touch();
+                return cart.snapshot();
+            }
+        }
+    }
+
+    // Writes the user's cart in the current transaction, creating one if there is none. Checkout
+    // calls this before reading the cart from the database; the cart only counts as written if
+    // that transaction commits.
+    public void flush(Long userId) {
+        CartState cart;
+        synchronized (this) {
+            cart = carts.get(userId);
+        }
+        if (cart == null) {
+            return;
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            cart.flushLock.lock();
+            TransactionHooks.afterCompletion(cart.flushLock::unlock);
+            long version = write(List.of(cart)).get(cart);
+            synchronized (cart) {
+                cart.checkoutVersion = version;
+            }
+        });
+    }
+
+    // Once the current transaction commits, marks the user's cart dead and drops it from memory,
+    // so writers holding it and loads that began before the commit start again from the database;
+    // used after checkout has emptied the cart there. Lines changed after checkout flushed the cart
+    // were not ordered, so they are kept in a fresh cart rather than lost. The flush lock taken by
+    // flush is still held here, so no background flush can write the dead cart back.
+    public void evict(Long userId) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                evictions++;
+                CartState cart = carts.remove(userId);
+                if (cart == null) {
+                    return;
+                }
+                CartState rest;
+                synchronized (cart) {
+                    cart.evicted = true;
+                    rest = cart.changedSince(cart.checkoutVersion);
+                }
+                if (rest != null) {
+                    carts.put(userId, rest);
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.flush-interval-ms:2000}")
+    public void flushDirty() {
+        List<CartState> dirty = new ArrayList<>();
+        synchronized (this) {
+            for (CartState cart : carts.values()) {
+                if (cart.isDirty()) {
+                    dirty.add(cart);
+                }
+            }
+        }
+        for (int from = 0; from < dirty.size(); from += flushBatchSize) {
+            List<CartState> batch = dirty.subList(from, Math.min(from + flushBatchSize, dirty.size()));
+            try {
+                writeBatch(batch);
+            } catch (Exception e) {
+                // Retry cart by cart so one bad cart does not hold back the rest of its batch; carts
+                // that still fail stay dirty for the next run
+                for (CartState cart : batch) {
+                    try {
+                        writeBatch(List.of(cart));
+                    } catch (Exception single) {
+                        // A product deleted since it was added can never be written; without its
+                        // lines the cart goes out on the next run instead of failing forever
+                        if (single instanceof DataIntegrityViolationException && dropDeletedProducts(cart)) {
+                            continue;
+                        }
+                        failedFlushes.increment();
+                        logger.warn("Could not flush the cart of user {}: {}", cart.userId, single.getMessage());
+                    }
+                }
+            }
+        }
+        synchronized (this) {
+            evictToFit();
+        }
+    }
+
+    // True if any line was dropped
+    private boolean dropDeletedProducts(CartState cart) {
+        List<Long> productIds;
+        synchronized (cart) {
+            productIds = new ArrayList<>(cart.lines.keySet());
+        }
+        if (productIds.isEmpty()) {
+            return false;
+        }
+        Set<Long> existing = new HashSet<>(entityManager
+                .createQuery("SELECT p.id FROM Product p WHERE p.id IN :ids", Long.class)
+                .setParameter("ids", productIds)
+                .getResultList());
+        int dropped = 0;
+        synchronized (cart) {
+            for (Long productId : productIds) {
+                if (!existing.contains(productId) && cart.lines.containsKey(productId)) {
+                    cart.remove(productId);
+                    dropped++;
+                }
+            }
+            if (dropped > 0) {
+                cart.touch();
+            }
+        }
+        if (dropped > 0) {
+            droppedLines.add(dropped);
+            logger.info("Dropped {} lines of deleted products from the cart of user {}", dropped, cart.userId);
+        }
+        return dropped > 0;
+    }
+
+    private void writeBatch(List<CartState> batch) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // Carts being written by a checkout are skipped; they are flushed there
+            List<CartState> locked = new ArrayList<>(batch.size());
+            TransactionHooks.afterCompletion(() -> locked.forEach(cart -> cart.flushLock.unlock()));
+            for (CartState cart : batch) {
+                if (cart.flushLock.tryLock()) {
+                    locked.add(cart);
+                }
+            }
+            write(locked);
+        });
+    }
+
+    // The web server has stopped taking requests by the time beans are destroyed
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushDirty();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int dirty = 0;
+        int size;
+        synchronized (this) {
+            size = carts.size();
+            for (CartState cart : carts.values()) {
+                if (cart.isDirty()) {
+                    dirty++;
+                }
+            }
+        }
+        stats.put("carts", size);
+        stats.put("dirty", dirty);
+        stats.put("maxCarts", maxCarts);
+        stats.put("hits", hits.sum());
+        stats.put("loads", loads.sum());
+        stats.put("flushedCarts", flushedCarts.sum());
+        stats.put("failedFlushes", failedFlushes.sum());
+        stats.put("evictions", lruEvictions.sum());
+        stats.put("droppedLines", droppedLines.sum());
+        return stats;
+    }
+
+    private CartState state(Long userId) {
+        synchronized (this) {
+            CartState cart = carts.get(userId);
+            if (cart != null) {
+                hits.increment();
+                return cart;
+            }
+        }
+        while (true) {
+            long evictedBefore;
+            synchronized (this) {
+                evictedBefore = evictions;
+            }
+            // Loaded outside the lock; a concurrent load of the same cart is discarded below, which
+            // is safe because nothing can have changed a cart that was not in memory yet
+            CartState loaded = load(userId);
+            synchronized (this) {
+                CartState cart = carts.get(userId);
+                if (cart != null) {
+                    return cart;
+                }
+                // A checkout committed while loading: the rows read may be ones it has deleted
+                if (evictions != evictedBefore) {
+                    continue;
+                }
+                carts.put(userId, loaded);
+                loads.increment();
+                evictToFit();
+                return loaded;
+            }
+        }
+    }
+
+    private CartState load(Long userId) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        return transaction.execute(status -> {
+            CartState cart = new CartState(userId);
+            cartRepository.findByUserId(userId).ifPresent(entity -> {
+                cart.cartId = entity.getId();
+                cart.createdAt = entity.getCreatedAt();
+                cart.updatedAt = entity.getUpdatedAt();
+                for (Object[] row : cartItemRepository.findLinesByCartId(entity.getId())) {
+                    Long productId = (Long) row[1];
+                    CartLine line = new CartLine((Long) row[0], productId, (Long) row[4], (Integer) row[2],
+                            Money.toMinor((BigDecimal) row[3]), 0L);
+                    // Rows written by the old code path could repeat a product; the first one wins
+                    if (!cart.lines.containsKey(productId)) {
+                        cart.add(line);
+                    }
+                }
+            });
+            return cart;
+        });
+    }
+
+    // Reconciles each cart's rows with its snapshot by product id: changed lines are updated, new
+    // ones inserted and missing ones deleted. Inside the caller's transaction. Returns, for each
+    // cart, the version its rows hold once that transaction commits.
+    private Map<CartState, Long> write(List<CartState> states) {
+        Map<CartState, Long> versions = new HashMap<>();
+        List<CartState> dirty = new ArrayList<>(states.size());
+        List<CartSnapshot> snapshots = new ArrayList<>(states.size());
+        for (CartState state : states) {
+            synchronized (state) {
+                versions.put(state, state.version);
+                if (state.isDirty()) {
+                    dirty.add(state);
+                    snapshots.add(state.snapshot());
+                }
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return versions;
+        }
+
+        List<Long> cartIds = snapshots.stream().map(CartSnapshot::getCartId).filter(id -> id != null).toList();
+        Map<Long, Cart> cartsById = new HashMap<>();
+        Map<Long, List<CartItem>> itemsByCartId = new HashMap<>();
+        if (!cartIds.isEmpty()) {
+            for (Cart cart : cartRepository.findAllById(cartIds)) {
+                cartsById.put(cart.getId(), cart);
+            }
+            for (CartItem item : cartItemRepository.findByCartIdIn(cartIds)) {
+                itemsByCartId.computeIfAbsent(item.getCart().getId(), id -> new ArrayList<>()).add(item);
+            }
+        }
+
+        List<Cart> written = new ArrayList<>(snapshots.size());
+        List<Map<Long, CartItem>> writtenItems = new ArrayList<>(snapshots.size());
+        for (CartSnapshot snapshot : snapshots) {
+            Cart cart = snapshot.getCartId() != null ? cartsById.get(snapshot.getCartId()) : null;
+            List<CartItem> existing = cart != null ? itemsByCartId.getOrDefault(cart.getId(), List.of()) : List.of();
+            if (cart == null) {
+                cart = cartRepository.findByUserId(snapshot.getUserId()).orElse(null);
+                if (cart != null) {
+                    existing = cartItemRepository.findByCartId(cart.getId());
+                } else {
+                    cart = new Cart();
+                    cart.setUser(entityManager.getReference(User.class, snapshot.getUserId()));
+                    cart.setTotalAmount(BigDecimal.ZERO);
+                    entityManager.persist(cart);
+                }
+            }
+            cart.setTotalAmount(Money.toDecimal(snapshot.getTotalMinor()));
+
+            Map<Long, CartItem> itemsByProductId = new HashMap<>();
+            for (CartItem item : existing) {
+                // Rows written by the old code path could repeat a product; keep the first one
+                if (itemsByProductId.putIfAbsent(item.getProduct().getId(), item) != null) {
+                    entityManager.remove(item);
+                }
+            }
+            Map<Long, CartItem> items = new HashMap<>();
+            for (CartLine line : snapshot.getLines()) {
+                CartItem item = itemsByProductId.remove(line.getProductId());
+                if (item == null) {
+                    item = new CartItem();
+                    item.setCart(cart);
+                    item.setProduct(entityManager.getReference(Product.class, line.getProductId()));
+                    item.setQuantity(line.getQuantity());
+                    item.setPrice(Money.toDecimal(line.getPriceMinor()));
+                    entityManager.persist(item);
+                } else {
+                    item.setQuantity(line.getQuantity());
+                    item.setPrice(Money.toDecimal(line.getPriceMinor()));
+                }
+                items.put(line.getProductId(), item);
+            }
+            for (CartItem removed : itemsByProductId.values()) {
+                entityManager.remove(removed);
+            }
+            written.add(cart);
+            writtenItems.add(items);
+        }
+        entityManager.flush();
+
+        List<Runnable> confirmations = new ArrayList<>(snapshots.size());
+        for (int i = 0; i < snapshots.size(); i++) {
+            CartState state = dirty.get(i);
+            CartSnapshot snapshot = snapshots.get(i);
+            Long cartId = written.get(i).getId();
+            Map<Long, Long> itemIds = new HashMap<>();
+            writtenItems.get(i).forEach((productId, item) -> itemIds.put(productId, item.getId()));
+            confirmations.add(() -> state.written(snapshot.getVersion(), cartId, itemIds));
+            // A caller reading the cart next (checkout) must see its items, not this cart's
+            // uninitialized collection
+            entityManager.detach(written.get(i));
+        }
+        TransactionHooks.afterCommit(() -> {
+            confirmations.forEach(Runnable::run);
+            flushedCarts.add(confirmations.size());
+        });
+        return versions;
+    }
+
+    // Least recently used first; dirty carts and carts being written stay until they are flushed
+    private void evictToFit() {
+        Iterator<CartState> iterator = carts.values().iterator();
+        int excess = carts.size() - maxCarts;
+        while (excess > 0 && iterator.hasNext()) {
+            CartState cart = iterator.next();
+            synchronized (cart) {
+                if (cart.isDirty() || cart.flushLock.isLocked()) {
+                    continue;
+                }
+                cart.evicted = true;
+            }
+            iterator.remove();
+            lruEvictions.increment();
+            excess--;
+        }
+    }
+
+    // A cart as held in memory. Only changed through CartStore.update or GuestCartStore.update,
+    // which hold its lock.
+    public static final class CartState {
+        private final Long userId;
+        private Long cartId;
+        // By product id, in the order products were added
+        private final LinkedHashMap<Long, CartLine> lines = new LinkedHashMap<>();
+        // Maintained as each line changes, so no mutation walks the whole cart
+        private long totalMinor;
+        private int itemCount;
+        private final Map<Long, SellerSubtotal> subtotalsBySeller = new HashMap<>();
+        private LocalDateTime createdAt;
+        private LocalDateTime updatedAt;
+        private long version;
+        private long writtenVersion;
+        // The version checkout wrote, set by flush
+        private long checkoutVersion;
+        private boolean evicted;
+        // Guest carts are capped; signed-in users' carts are not
+        private int maxLines = Integer.MAX_VALUE;
+        private final ReentrantLock flushLock = new ReentrantLock();
+
+        CartState(Long userId) {
+            this.userId = userId;
+            this.createdAt = LocalDateTime.now();
+        }
+
+        public CartLine getLine(Long productId) {
+            return lines.get(productId);
+        }
+
+        public int lineCount() {
+            return lines.size();
+        }
+
+        public int getMaxLines() {
+            return maxLines;
+        }
+
+        void setMaxLines(int maxLines) {
+            this.maxLines = maxLines;
+        }
+
+        // By the id a client was given: the row id once written, or the negated product id before that
+        public CartLine findLine(Long cartItemId) {
+            if (cartItemId == null) {
+                return null;
+            }
+            if (cartItemId < 0) {
+                return lines.get(-cartItemId);
+            }
+            for (CartLine line : lines.values()) {
+                if (cartItemId.equals(line.getItemId())) {
+                    return line;
+                }
+            }
+            return null;
+        }
+
+        public void put(Long productId, Long sellerId, int quantity, long priceMinor) {
+            CartLine current = lines.get(productId);
+            if (current == null && lines.size() >= maxLines) {
+                throw new IllegalArgumentException("A cart can hold at most " + maxLines + " products");
+            }
+            CartLine line = new CartLine(current != null ? current.getItemId() : null, productId, sellerId, quantity,
+                    priceMinor, version + 1);
+            // Checked before anything changes, so an overflow leaves the cart as it was. Amounts are
+            // never negative, so no seller's subtotal can overflow when the total does not.
+            Math.addExact(totalMinor - (current != null ? current.getTotalMinor() : 0L), line.getTotalMinor());
+            Math.addExact(itemCount - (current != null ? current.getQuantity() : 0), quantity);
+            if (current != null) {
+                subtract(current);
+            }
+            add(line);
+        }
+
+        public void remove(Long productId) {
+            CartLine current = lines.remove(productId);
+            if (current != null) {
+                subtract(current);
+            }
+        }
+
+        public void clear() {
+            lines.clear();
+            totalMinor = 0L;
+            itemCount = 0;
+            subtotalsBySeller.clear();
+        }
+
+        private void add(CartLine line) {
+            lines.put(line.getProductId(), line);
+            totalMinor = Math.addExact(totalMinor, line.getTotalMinor());
+            itemCount += line.getQuantity();
+            SellerSubtotal subtotal = subtotalsBySeller.computeIfAbsent(line.getSellerId(), id -> new SellerSubtotal());
+            subtotal.lines++;
+            subtotal.minor = Math.addExact(subtotal.minor, line.getTotalMinor());
+        }
+
+        private void subtract(CartLine line) {
+            totalMinor -= line.getTotalMinor();
+            itemCount -= line.getQuantity();
+            SellerSubtotal subtotal = subtotalsBySeller.get(line.getSellerId());
+            subtotal.minor -= line.getTotalMinor();
+            if (--subtotal.lines == 0) {
+                subtotalsBySeller.remove(line.getSellerId());
+            }
+        }
+
+        // A new, dirty cart holding the lines changed after the given version, with no rows yet;
+        // null if there are none
+        private CartState changedSince(long since) {
+            CartState rest = null;
+            for (CartLine line : lines.values()) {
+                if (line.changedAt > since) {
+                    if (rest == null) {
+                        rest = new CartState(userId);
+                        rest.cartId = cartId;
+                    }
+                    rest.add(line.withItemId(null));
+                }
+            }
+            if (rest != null) {
+                // Carries on the old numbering, so the lines' versions still compare with the cart's
+                rest.version = version;
+                rest.updatedAt = updatedAt;
+            }
+            return rest;
+        }
+
+        void touch() {
+            version++;
+            updatedAt = LocalDateTime.now();
+        }
+
+        private synchronized boolean isDirty() {
+            return version != writtenVersion;
+        }
+
+        private synchronized void written(long writtenAt, Long cartId, Map<Long, Long> itemIds) {
+            this.cartId = cartId;
+            for (Map.Entry<Long, Long> entry : itemIds.entrySet()) {
+                CartLine line = lines.get(entry.getKey());
+                if (line != null && !entry.getValue().equals(line.getItemId())) {
+                    lines.put(entry.getKey(), line.withItemId(entry.getValue()));
+                }
+            }
+            // Changes made while the write was running keep the cart dirty
+            if (writtenAt > writtenVersion) {
+                writtenVersion = writtenAt;
+            }
+        }
+
+        // Copies the lines and subtotals, so the snapshot can be used after the lock is released
+        CartSnapshot snapshot() {
+            Map<Long, Long> subtotals = new HashMap<>(subtotalsBySeller.size() * 2);
+            subtotalsBySeller.forEach((sellerId, subtotal) -> subtotals.put(sellerId, subtotal.minor));
+            return new CartSnapshot(userId, cartId, List.copyOf(lines.values()), totalMinor, itemCount,
+                    Collections.unmodifiableMap(subtotals), createdAt, updatedAt, version);
+        }
+    }
+
+    private static final class SellerSubtotal {
+        int lines;
+        long minor;
+    }
+
+    // Prices in minor units; see Money
+    public static final class CartLine {
+        private final Long itemId;
+        private final Long productId;
+        private final Long sellerId;
+        private final int quantity;
+        private final long priceMinor;
+        private final long totalMinor;
+        // Version of the cart that last set this line
+        private final long changedAt;
+
+        CartLine(Long itemId, Long productId, Long sellerId, int quantity, long priceMinor, long changedAt) {
+            this.itemId = itemId;
+            this.productId = productId;
+            this.sellerId = sellerId;
+            this.quantity = quantity;
+            this.priceMinor = priceMinor;
+            this.totalMinor = Money.times(priceMinor, quantity);
+            this.changedAt = changedAt;
+        }
+
+        CartLine withItemId(Long itemId) {
+            return new CartLine(itemId, productId, sellerId, quantity, priceMinor, changedAt);
+        }
+
+        // The id clients use to address the line; see CartState.findLine
+        public Long getId() {
+            return itemId != null ? itemId : -productId;
+        }
+
+        // Null until the line has been written
+        public Long getItemId() {
+            return itemId;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public Long getSellerId() {
+            return sellerId;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public long getPriceMinor() {
+            return priceMinor;
+        }
+
+        public long getTotalMinor() {
+            return totalMinor;
+        }
+    }
+
+    // Immutable copy of a cart, safe to use outside its lock
+    public static final class CartSnapshot {
+        private final Long userId;
+        private final Long cartId;
+        private final List<CartLine> lines;
+        private final long totalMinor;
+        private final int itemCount;
+        private final Map<Long, Long> subtotalMinorBySeller;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime updatedAt;
+        private final long version;
+
+        private CartSnapshot(Long userId, Long cartId, List<CartLine> lines, long totalMinor, int itemCount,
+                             Map<Long, Long> subtotalMinorBySeller, LocalDateTime createdAt, LocalDateTime updatedAt,
+                             long version) {
+            this.userId = userId;
+            this.cartId = cartId;
+            this.lines = lines;
+            this.totalMinor = totalMinor;
+            this.itemCount = itemCount;
+            this.subtotalMinorBySeller = subtotalMinorBySeller;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+            this.version = version;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        // Null until the cart has been written for the first time
+        public Long getCartId() {
+            return cartId;
+        }
+
+        public Collection<CartLine> getLines() {
+            return lines;
+        }
+
+        public int getLineCount() {
+            return lines.size();
+        }
+
+        public long getTotalMinor() {
+            return totalMinor;
+        }
+
+        // Sum of quantities over all lines
+        public int getItemCount() {
+            return itemCount;
+        }
+
+        public Map<Long, Long> getSubtotalMinorBySeller() {
+            return subtotalMinorBySeller;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+
+        long getVersion() {
+            return version;
+        }
+    }
+}
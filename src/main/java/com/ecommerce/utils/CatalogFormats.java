@@ -0,0 +1,11 @@
+package com.ecommerce.utils;
+
+// File formats of the product import and export, which read and write the same column names
+public final class CatalogFormats {
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    private CatalogFormats() {
+    }
+}
@@ -0,0 +1,127 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.dto.CategoryDto;
+import com.ecommerce.dto.CategoryTreeDto;
+import com.ecommerce.dto.SubCategoryDto;
+import com.ecommerce.entities.Category;
+import com.ecommerce.entities.SubCategory;
+import com.ecommerce.repositories.CategoryRepository;
+import com.ecommerce.repositories.SubCategoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Active categories with their active subcategories, built with two queries and kept until a
+// category write commits. The version is a hash of the content, so it is stable across restarts
+// and identical on every instance serving the same data.
+@Component
+public class CategoryTreeCache {
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private SubCategoryRepository subCategoryRepository;
+
+    private volatile CategoryTreeDto tree;
+
+    public CategoryTreeDto get() {
+        CategoryTreeDto current = tree;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (tree != null) {
+                return tree;
+            }
+            // Invalidation takes the same lock, so a build that read pre-commit rows is dropped right after
+            CategoryTreeDto built = build();
+            if (!TransactionHooks.inReadWriteTransaction()) {
+                tree = built;
+            }
+            return built;
+        }
+    }
+
+    public void invalidate() {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                tree = null;
+            }
+        });
+    }
+
+    private CategoryTreeDto build() {
+        List<Category> categories = new ArrayList<>(categoryRepository.findByIsActiveTrue());
+        categories.sort(Comparator.comparing(Category::getName, String.CASE_INSENSITIVE_ORDER));
+
+        Map<Long, CategoryDto> nodes = new LinkedHashMap<>();
+        for (Category category : categories) {
+            CategoryDto node = new CategoryDto();
+            node.setId(category.getId());
+            node.setName(category.getName());
+            node.setDescription(category.getDescription());
+            node.setImageUrl(category.getImageUrl());
+            node.setIsActive(category.getIsActive());
+            node.setCreatedAt(category.getCreatedAt());
+            node.setUpdatedAt(category.getUpdatedAt());
+            nodes.put(category.getId(), node);
+        }
+
+        List<SubCategory> subCategories = new ArrayList<>(subCategoryRepository.findByIsActiveTrue());
+        subCategories.sort(Comparator.comparing(SubCategory::getName, String.CASE_INSENSITIVE_ORDER));
+        for (SubCategory subCategory : subCategories) {
+            // Reading the id of the lazy category does not load it
+            CategoryDto parent = nodes.get(subCategory.getCategory().getId());
+            if (parent == null) {
+                continue;
+            }
+            SubCategoryDto child = new SubCategoryDto();
+            child.setId(subCategory.getId());
+            child.setCategoryId(parent.getId());
+            child.setCategoryName(parent.getName());
+            child.setName(subCategory.getName());
+            child.setDescription(subCategory.getDescription());
+            child.setIsActive(subCategory.getIsActive());
+            child.setCreatedAt(subCategory.getCreatedAt());
+            child.setUpdatedAt(subCategory.getUpdatedAt());
+            parent.getSubCategories().add(child);
+        }
+
+        List<CategoryDto> roots = new ArrayList<>(nodes.values());
+        for (CategoryDto node : roots) {
+            node.setSubCategories(Collections.unmodifiableList(node.getSubCategories()));
+        }
+        return new CategoryTreeDto(hash(roots), Collections.unmodifiableList(roots));
+    }
+
+    private static String hash(List<CategoryDto> categories) {
+        StringBuilder canonical = new StringBuilder();
+        for (CategoryDto category : categories) {
+            canonical.append('C').append(category.getId()).append('|').append(category.getName())
+                    .append('|').append(category.getDescription()).append('|').append(category.getImageUrl())
+                    .append('|').append(category.getUpdatedAt()).append('\n');
+            for (SubCategoryDto subCategory : category.getSubCategories()) {
+                canonical.append('S').append(subCategory.getId()).append('|').append(subCategory.getName())
+                        .append('|').append(subCategory.getDescription())
+                        .append('|').append(subCategory.getUpdatedAt()).append('\n');
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.dto.ApiResponse;
+import com.ecommerce.dto.CheckoutTicket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+// Admission control for checkout, which holds a database connection for a long transaction. At most
+// `limit` checkouts run at once; the limit follows observed latency, shrinking when recent checkouts
+// are slower than the long-run average and growing back while they are not. Shoppers over the limit
+// get a ticket in a FIFO waiting room instead of a blocked request, poll it for their position, and
+// send the checkout again with the ticket once admitted. Request threads and connections are
+// therefore left for browsing however many shoppers are waiting.
+//
+// State lives in memory on each node, since the limit protects that node's connection pool; after
+// a restart waiting shoppers simply queue again. Behind a load balancer the checkout routes need
+// session affinity on the CHECKOUT_NODE cookie sent with every ticket. Tickets name the node that
+// issued them, and a request carrying another node's ticket is refused with 421 Misdirected Request
+// rather than answered as if the ticket had expired.
+@Component
+public class CheckoutAdmission {
+
+    public static final String TICKET_HEADER = "X-Checkout-Ticket";
+    public static final String NODE_COOKIE = "CHECKOUT_NODE";
+    // Misdirected Request, for a ticket issued by another node
+    public static final int MISDIRECTED = 421;
+    public static final String MISDIRECTED_MESSAGE = "Checkout ticket was issued by another server";
+
+    private static final long SWEEP_MS = 1000L;
+    // Weights of a new latency sample in the recent and long-run averages
+    private static final double SHORT_WEIGHT = 0.1;
+    private static final double LONG_WEIGHT = 0.005;
+    // How far each sample moves the limit toward its new target
+    private static final double SMOOTHING = 0.2;
+
+    @Value("${app.checkout.min-concurrency:1}")
+    private int minConcurrency;
+
+    // Keep below the connection pool size, so some connections stay free for browsing
+    @Value("${app.checkout.max-concurrency:6}")
+    private int maxConcurrency;
+
+    @Value("${app.checkout.initial-concurrency:4}")
+    private double limit;
+
+    @Value("${app.checkout.max-waiting:10000}")
+    private int maxWaiting;
+
+    // How long an admitted shopper has to come back before their slot goes to the next one
+    @Value("${app.checkout.admit-seconds:30}")
+    private long admitSeconds;
+
+    // Tickets not polled for this long are taken to be abandoned
+    @Value("${app.checkout.ticket-idle-seconds:30}")
+    private long ticketIdleSeconds;
+
+    private final SecureRandom random = new SecureRandom();
+    private final String nodeId = newToken(6);
+    private final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+    private final Map<String, Ticket> ticketsByToken = new HashMap<>();
+    // One ticket per user, so retrying cannot take several places
+    private final Map<Long, Ticket> ticketsByUser = new HashMap<>();
+    private int inFlight;
+    // Slots kept for admitted shoppers who have not come back yet
+    private int reserved;
+    // Tickets admitted so far; positions are worked out from how far this has moved
+    private long admissions;
+
+    private double shortLatencyMs;
+    private double longLatencyMs;
+    private long samples;
+
+    private final LongAdder direct = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    // Lets the checkout run now, or hands back the user's ticket. A user holding a ticket waits
+    // for it even if a slot is free, so nobody overtakes the queue by retrying. Shoppers who have
+    // already paid are queued even when the room is full, since turning them away would leave
+    // the payment without an order; whether they have is only asked once the room is full, and
+    // outside the lock, since it may mean a call to the payment provider.
+    public Admission enter(Long userId, String token, BooleanSupplier paid) {
+        Admission admission = enter(userId, token, false);
+        if (admission.isFull() && paid.getAsBoolean()) {
+            admission = enter(userId, token, true);
+        }
+        if (admission.isFull()) {
+            rejected.increment();
+        }
+        return admission;
+    }
+
+    private synchronized Admission enter(Long userId, String token, boolean paid) {
+        long now = System.currentTimeMillis();
+        Ticket ticket = ticketsByUser.get(userId);
+        if (ticket != null && ticket.admitted && ticket.token.equals(token)) {
+            forget(ticket);
+            reserved--;
+            return start();
+        }
+        if (ticket != null) {
+            ticket.touchedAt = now;
+            return new Admission(toDto(ticket), false);
+        }
+        if (waiting.isEmpty() && inFlight + reserved < limit()) {
+            direct.increment();
+            return start();
+        }
+        if (waiting.size() >= maxWaiting && !paid) {
+            return new Admission(null, true);
+        }
+        ticket = new Ticket(userId, nodeId + "." + newToken(18), now);
+        ticket.ahead = waiting.size();
+        ticket.admissionsBase = admissions;
+        waiting.add(ticket);
+        ticketsByToken.put(ticket.token, ticket);
+        ticketsByUser.put(userId, ticket);
+        queued.increment();
+        return new Admission(toDto(ticket), false);
+    }
+
+    // Call once for every admitted checkout, however it ended
+    public synchronized void exit(Admission admission) {
+        inFlight--;
+        record((System.nanoTime() - admission.startedAt) / 1_000_000.0);
+        admitNext();
+    }
+
+    // Whether the ticket, if any, was issued by this node
+    public boolean isLocal(String token) {
+        return token == null || token.startsWith(nodeId + ".");
+    }
+
+    // 503 while the waiting room is full, otherwise 202 with the ticket and the cookie the load
+    // balancer routes the shopper's later checkout requests by
+    public ResponseEntity<ApiResponse<?>> notAdmitted(Admission admission) {
+        if (admission.isFull()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(ApiResponse.error("Checkout is busy, please try again shortly"));
+        }
+        ResponseCookie cookie = ResponseCookie.from(NODE_COOKIE, nodeId).path("/api").httpOnly(true)
+                .sameSite("Lax").build();
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header(HttpHeaders.SET_COOKIE, cookie.toString())
+                .body(ApiResponse.success("Waiting for checkout", admission.getTicket()));
+    }
+
+    // Null when the token is unknown, has expired, or belongs to someone else
+    public synchronized CheckoutTicket status(Long userId, String token) {
+        Ticket ticket = ticketsByToken.get(token);
+        if (ticket == null || !ticket.userId.equals(userId)) {
+            return null;
+        }
+        ticket.touchedAt = System.currentTimeMillis();
+        return toDto(ticket);
+    }
+
+    public synchronized boolean leave(Long userId, String token) {
+        Ticket ticket = ticketsByToken.get(token);
+        if (ticket == null || !ticket.userId.equals(userId)) {
+            return false;
+        }
+        forget(ticket);
+        if (ticket.admitted) {
+            reserved--;
+            admitNext();
+        } else {
+            waiting.remove(ticket);
+        }
+        return true;
+    }
+
+    // Frees the slots of admitted shoppers who never came back, drops tickets nobody polls any
+    // more, and recounts positions, which between sweeps only move with admissions
+    @Scheduled(fixedDelay = SWEEP_MS)
+    public synchronized void sweep() {
+        long now = System.currentTimeMillis();
+        Iterator<Ticket> tickets = ticketsByToken.values().iterator();
+        while (tickets.hasNext()) {
+            Ticket ticket = tickets.next();
+            if (ticket.admitted && now - ticket.admittedAt > admitSeconds * 1000L) {
+                tickets.remove();
+                ticketsByUser.remove(ticket.userId, ticket);
+                reserved--;
+                expired.increment();
+            }
+        }
+        int ahead = 0;
+        Iterator<Ticket> queue = waiting.iterator();
+        while (queue.hasNext()) {
+            Ticket ticket = queue.next();
+            if (now - ticket.touchedAt > ticketIdleSeconds * 1000L) {
+                queue.remove();
+                forget(ticket);
+                abandoned.increment();
+            } else {
+                ticket.ahead = ahead++;
+                ticket.admissionsBase = admissions;
+            }
+        }
+        admitNext();
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nodeId", nodeId);
+        stats.put("limit", limit());
+        stats.put("inFlight", inFlight);
+        stats.put("reserved", reserved);
+        stats.put("waiting", waiting.size());
+        stats.put("recentLatencyMs", Math.round(shortLatencyMs));
+        stats.put("longRunLatencyMs", Math.round(longLatencyMs));
+        stats.put("direct", direct.sum());
+        stats.put("queued", queued.sum());
+        stats.put("admitted", admitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("abandoned", abandoned.sum());
+        stats.put("expired", expired.sum());
+        return stats;
+    }
+
+    private Admission start() {
+        inFlight++;
+        return new Admission(null, false);
+    }
+
+    private void admitNext() {
+        long now = System.currentTimeMillis();
+        while (!waiting.isEmpty() && inFlight + reserved < limit()) {
+            Ticket ticket = waiting.poll();
+            ticket.admitted = true;
+            ticket.admittedAt = now;
+            reserved++;
+            admissions++;
+            admitted.increment();
+        }
+    }
+
+    // Gradient limiter: the ratio of long-run to recent latency scales the limit down when
+    // checkouts slow, and a headroom of sqrt(limit) lets it probe upward while they do not
+    private void record(double latencyMs) {
+        if (samples++ == 0) {
+            shortLatencyMs = latencyMs;
+            longLatencyMs = latencyMs;
+            return;
+        }
+        shortLatencyMs += (latencyMs - shortLatencyMs) * SHORT_WEIGHT;
+        longLatencyMs += (latencyMs - longLatencyMs) * LONG_WEIGHT;
+        // After a slow spell the long-run average would hold the limit down long after latency recovered
+        if (longLatencyMs > 2 * shortLatencyMs) {
+            longLatencyMs *= 0.95;
+        }
+        // Nothing to learn about the limit while demand is well below it
+        if (waiting.isEmpty() && (inFlight + reserved + 1) * 2 < limit) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, longLatencyMs / shortLatencyMs));
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minConcurrency, Math.min(maxConcurrency, limit + (target - limit) * SMOOTHING));
+    }
+
+    private int limit() {
+        return (int) limit;
+    }
+
+    private void forget(Ticket ticket) {
+        ticketsByToken.remove(ticket.token, ticket);
+        ticketsByUser.remove(ticket.userId, ticket);
+    }
+
+    private CheckoutTicket toDto(Ticket ticket) {
+        if (ticket.admitted) {
+            return new CheckoutTicket(ticket.token, "ADMITTED", 0, 0L, 0L);
+        }
+        int position = (int) Math.max(0, ticket.ahead - (admissions - ticket.admissionsBase)) + 1;
+        // Little's law: slots free up at about limit / latency per second
+        long waitSeconds = (long) Math.ceil(position * shortLatencyMs / 1000.0 / Math.max(1, limit()));
+        long pollAfterMs = Math.max(1000L, Math.min(5000L, waitSeconds * 500L));
+        return new CheckoutTicket(ticket.token, "WAITING", position, waitSeconds, pollAfterMs);
+    }
+
+    private String newToken(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public static final class Admission {
+        private final long startedAt = System.nanoTime();
+        private final CheckoutTicket ticket;
+        private final boolean full;
+
+        private Admission(CheckoutTicket ticket, boolean full) {
+            this.ticket = ticket;
+            this.full = full;
+        }
+
+        public boolean isAdmitted() {
+            return ticket == null && !full;
+        }
+
+        // The waiting room is full; the shopper should try again later
+        public boolean isFull() {
+            return full;
+        }
+
+        public CheckoutTicket getTicket() {
+            return ticket;
+        }
+    }
+
+    private static final class Ticket {
+        final Long userId;
+        final String token;
+        long touchedAt;
+        boolean admitted;
+        long admittedAt;
+        // Waiting tickets ahead of this one when admissions stood at admissionsBase
+        int ahead;
+        long admissionsBase;
+
+        Ticket(Long userId, String token, long touchedAt) {
+            this.userId = userId;
+            this.token = token;
+            this.touchedAt = touchedAt;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.ecommerce.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Minimal streaming RFC 4180 reader: comma separated, double-quoted fields with "" escapes and
+// line breaks inside quotes. Holds one record at a time, so file size does not matter. A field is
+// bounded in length, so a stray quote cannot make it buffer the rest of the file.
+public class CsvReader implements Closeable {
+
+    public static final int DEFAULT_MAX_FIELD_LENGTH = 64 * 1024;
+
+    private final Reader reader;
+    private final int maxFieldLength;
+    private int peeked = -2;
+    private boolean started;
+
+    public CsvReader(Reader reader) {
+        this(reader, DEFAULT_MAX_FIELD_LENGTH);
+    }
+
+    public CsvReader(Reader reader, int maxFieldLength) {
+        this.reader = reader;
+        this.maxFieldLength = maxFieldLength;
+    }
+
+    // Next record, skipping blank lines; null at end of input
+    public List<String> readRecord() throws IOException {
+        while (true) {
+            int c = read();
+            if (!started) {
+                started = true;
+                if (c == '\uFEFF') {
+                    c = read();
+                }
+            }
+            if (c == -1) {
+                return null;
+            }
+            if (c == '\n') {
+                continue;
+            }
+            if (c == '\r') {
+                if (peek() == '\n') {
+                    read();
+                }
+                continue;
+            }
+            return parseRecord(c);
+        }
+    }
+
+    private List<String> parseRecord(int first) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean fieldWasQuoted = false;
+        int c = first;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field");
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        append(field, '"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    append(field, c);
+                }
+            } else if (c == '"' && field.length() == 0 && !fieldWasQuoted) {
+                quoted = true;
+                fieldWasQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                fieldWasQuoted = false;
+            } else if (c == '\n' || c == -1) {
+                break;
+            } else if (c == '\r') {
+                if (peek() == '\n') {
+                    read();
+                }
+                break;
+            } else {
+                append(field, c);
+            }
+            c = read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Past the limit the record cannot be told apart from the rest of the input, so reading stops
+    private void append(StringBuilder field, int c) throws IOException {
+        if (field.length() >= maxFieldLength) {
+            throw new IOException("Field longer than " + maxFieldLength + " characters; is a quote unterminated?");
+        }
+        field.append((char) c);
+    }
+
+    private int read() throws IOException {
+        if (peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,473 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.exceptions.ResourceNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Opt-in flash-sale mode for products that many buyers check out at once. While a product's sale
+// is active, checkouts decrement shards of in-memory counters with compare-and-set instead of all
+// of them queueing on the product row. Each unit taken is written as a flash_sale_debits row in the
+// order's transaction.
+//
+// The counters never hold more than this node has leased. A lease is a flash_sale_allocations row
+// granting a slice of the remaining stock to one node; it is claimed under the product row's lock,
+// and only while the stock not already leased to a node covers it, so nodes cannot sell the same
+// unit however many of them there are. Every debit is written only while its lease row still exists,
+// read with a shared lock. Leases are not renewed: once one expires the node claims another, and the
+// reconciliation on any node releases it, moving its debits onto products.stock_quantity and
+// returning what it did not sell. Stock therefore reaches the product row up to lease-seconds late,
+// and units left on a node that stops selling wait that long before other nodes can have them.
+//
+// The flash_sales row decides which path a checkout takes. Checkouts taking from the counters read
+// it with a shared lock, and StockLedger's update refuses products whose sale is active, so the two
+// paths never sell the same unit. Nothing in memory is trusted on its own: counters built for an
+// earlier run of the sale, or for a lease that is gone, are dropped and a new lease is claimed.
+@Component
+public class FlashSaleInventory {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlashSaleInventory.class);
+
+    public static final int MAX_SHARDS = 64;
+    // Ints between neighbouring shards, so each shard sits on its own cache line
+    private static final int STRIDE = 16;
+    // Nodes stop using a lease when it expires; it is released a little later, so a checkout that
+    // took units just before the deadline can still commit its debit
+    private static final long RELEASE_GRACE_SECONDS = 5L;
+
+    private static final String ENABLE_SQL = "INSERT INTO flash_sales (product_id, shards, generation, active, " +
+            "started_at) VALUES (?, ?, 1, true, ?) ON DUPLICATE KEY UPDATE shards = VALUES(shards), " +
+            "generation = generation + 1, active = true, started_at = VALUES(started_at), ended_at = NULL";
+
+    private static final String CLAIM_SQL = "INSERT INTO flash_sale_allocations (product_id, generation, node_id, " +
+            "units, expires_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String INSERT_DEBIT_SQL = "INSERT INTO flash_sale_debits (product_id, allocation_id, " +
+            "quantity, created_at) VALUES (?, ?, ?, ?)";
+
+    private static final String APPLY_SQL = "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = ? " +
+            "WHERE id = ? AND stock_quantity >= ?";
+
+    private static final String APPLY_LISTING_SQL = "UPDATE product_listing SET stock_quantity = stock_quantity - ?, " +
+            "updated_at = ? WHERE product_id = ? AND stock_quantity >= ?";
+
+    // Units claimed at a time; larger leases mean fewer claims, smaller ones strand less stock on
+    // a node when the sale is nearly sold out
+    @Value("${app.flash-sale.lease-units:200}")
+    private int leaseUnits;
+
+    @Value("${app.flash-sale.lease-seconds:15}")
+    private long leaseSeconds;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProductDtoCache productDtoCache;
+
+    // Names this node's leases, so a reload can release them
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<Long, Counters> sales = new ConcurrentHashMap<>();
+    // Claims for one product on this node go one at a time; each holds the product row until its
+    // checkout commits, so a node-wide lock could wait on a checkout that is waiting for it
+    private final ConcurrentHashMap<Long, Object> claimLocks = new ConcurrentHashMap<>();
+    // Lets checkouts skip the flash_sales query until a sale has existed
+    private volatile boolean anyEnabled;
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+
+    private final LongAdder unitsTaken = new LongAdder();
+    private final LongAdder unitsReturned = new LongAdder();
+    private final LongAdder soldOut = new LongAdder();
+    private final LongAdder unitsReconciled = new LongAdder();
+    private final LongAdder leases = new LongAdder();
+    private final LongAdder leasesReleased = new LongAdder();
+
+    // Asks the database rather than this node's counters, which only exist once a checkout has used them
+    public boolean isActive(Long productId) {
+        Integer active = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM flash_sales WHERE product_id = ? " +
+                "AND active = true", Integer.class, productId);
+        return active != null && active > 0;
+    }
+
+    // The given products that are on an active flash sale, from the database like isActive
+    public Set<Long> activeAmong(Collection<Long> productIds) {
+        if (!anyEnabled || productIds.isEmpty()) {
+            return Set.of();
+        }
+        String placeholders = String.join(",", Collections.nCopies(productIds.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT product_id FROM flash_sales WHERE product_id IN (" +
+                placeholders + ") AND active = true", Long.class, productIds.toArray()));
+    }
+
+    // Joins the caller's transaction. The row lock waits for checkouts already taking stock by
+    // either path to commit; whatever an earlier run of the sale sold is then settled, so leases
+    // for this run are claimed against the product's whole remaining stock.
+    public void enable(Long productId, int shards) {
+        if (shards < 1 || shards > MAX_SHARDS) {
+            throw new IllegalArgumentException("Shards must be between 1 and " + MAX_SHARDS);
+        }
+        Integer exists = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products WHERE id = ?",
+                Integer.class, productId);
+        if (exists == null || exists == 0) {
+            throw new ResourceNotFoundException("Product", "id", productId);
+        }
+        anyEnabled = true;
+        jdbcTemplate.update(ENABLE_SQL, productId, shards, Timestamp.valueOf(LocalDateTime.now()));
+        settle(productId);
+        TransactionHooks.afterCommit(() -> sales.remove(productId));
+    }
+
+    // Joins the caller's transaction. Once checkouts holding the row have committed, every lease is
+    // settled here, so ordinary updates see the right stock straight away.
+    public void disable(Long productId) {
+        int updated = jdbcTemplate.update("UPDATE flash_sales SET active = false, ended_at = ? " +
+                "WHERE product_id = ? AND active = true", Timestamp.valueOf(LocalDateTime.now()), productId);
+        if (updated == 0) {
+            throw new IllegalArgumentException("Product " + productId + " has no active flash sale");
+        }
+        settle(productId);
+        TransactionHooks.afterCommit(() -> sales.remove(productId));
+    }
+
+    // Takes the quantities of products on an active flash sale from their counters, removing those
+    // products from the map; what is left must go through StockLedger in the same transaction.
+    // Returns the ids of flash-sale products that have sold out, in which case the caller must roll
+    // back. Units taken go back to the counters if the transaction does not commit. Products are
+    // visited in id order, so checkouts claiming leases for several of them lock rows in one order.
+    public List<Long> take(Map<Long, Integer> quantities) {
+        if (!anyEnabled || quantities.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>(quantities.keySet());
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        List<Object[]> active = jdbcTemplate.query("SELECT product_id, generation, shards FROM flash_sales " +
+                        "WHERE product_id IN (" + placeholders + ") AND active = true ORDER BY product_id " +
+                        "LOCK IN SHARE MODE",
+                (rs, i) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getInt(3)}, ids.toArray());
+        if (active.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> insufficient = new ArrayList<>();
+        for (Object[] row : active) {
+            Long productId = (Long) row[0];
+            int quantity = quantities.remove(productId);
+            if (!insufficient.isEmpty()) {
+                continue;
+            }
+            if (!take(productId, (Long) row[1], (Integer) row[2], quantity)) {
+                soldOut.increment();
+                insufficient.add(productId);
+            }
+        }
+        return insufficient;
+    }
+
+    // Releases expired leases, one per transaction, moving what they sold onto the products. Runs on
+    // every node; a lease already released by another node is skipped.
+    @Scheduled(fixedDelayString = "${app.flash-sale.reconcile-interval-ms:1000}")
+    public void reconcile() {
+        if (!reconciling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusSeconds(RELEASE_GRACE_SECONDS));
+            List<Object[]> expired = jdbcTemplate.query("SELECT id, product_id FROM flash_sale_allocations " +
+                    "WHERE expires_at <= ?", (rs, i) -> new Object[]{rs.getLong(1), rs.getLong(2)}, cutoff);
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            for (Object[] lease : expired) {
+                transaction.executeWithoutResult(status -> release((Long) lease[0], (Long) lease[1], cutoff));
+            }
+        } catch (Exception e) {
+            logger.error("Flash sale reconciliation failed; expired leases will be retried", e);
+        } finally {
+            reconciling.set(false);
+        }
+    }
+
+    // Drops every counter and releases the leases this node still holds, which nothing else could
+    // use until they expire
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        sales.clear();
+        try {
+            Integer active = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM flash_sales WHERE active = true",
+                    Integer.class);
+            anyEnabled = active != null && active > 0;
+            List<Object[]> own = jdbcTemplate.query("SELECT id, product_id FROM flash_sale_allocations " +
+                    "WHERE node_id = ?", (rs, i) -> new Object[]{rs.getLong(1), rs.getLong(2)}, nodeId);
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            for (Object[] lease : own) {
+                transaction.executeWithoutResult(status -> release((Long) lease[0], (Long) lease[1], null));
+            }
+            if (anyEnabled) {
+                logger.info("{} active flash sales", active);
+            }
+        } catch (Exception e) {
+            // Checkouts claim leases on first use, and fail rather than oversell while they cannot
+            anyEnabled = true;
+            logger.error("Loading flash sales failed; leases will be claimed on first use", e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<Long, Integer> remaining = new LinkedHashMap<>();
+        sales.forEach((productId, counters) -> remaining.put(productId, counters.remaining()));
+        stats.put("nodeId", nodeId);
+        stats.put("activeSales", remaining.size());
+        stats.put("remainingByProduct", remaining);
+        stats.put("unitsTaken", unitsTaken.sum());
+        stats.put("unitsReturned", unitsReturned.sum());
+        stats.put("soldOut", soldOut.sum());
+        stats.put("unitsReconciled", unitsReconciled.sum());
+        stats.put("leases", leases.sum());
+        stats.put("leasesReleased", leasesReleased.sum());
+        return stats;
+    }
+
+    // Takes from this node's current lease, claiming a new one when it is used up, has expired, or
+    // was released under it
+    private boolean take(Long productId, long generation, int shards, int quantity) {
+        Counters counters = sales.get(productId);
+        if (counters != null && counters.usable(generation) && counters.take(quantity)) {
+            if (debit(productId, counters, quantity)) {
+                return true;
+            }
+            sales.remove(productId, counters);
+        }
+        counters = claim(productId, generation, shards, quantity);
+        return counters != null && counters.take(quantity) && debit(productId, counters, quantity);
+    }
+
+    // Writes the debit while the lease row, read with a shared lock, is still there; a release waits
+    // for the lock, so it sees every debit of the lease
+    private boolean debit(Long productId, Counters counters, int quantity) {
+        List<Integer> lease = jdbcTemplate.queryForList("SELECT 1 FROM flash_sale_allocations WHERE id = ? " +
+                "LOCK IN SHARE MODE", Integer.class, counters.allocationId);
+        if (lease.isEmpty()) {
+            return false;
+        }
+        jdbcTemplate.update(INSERT_DEBIT_SQL, productId, counters.allocationId, quantity,
+                Timestamp.valueOf(LocalDateTime.now()));
+        unitsTaken.add(quantity);
+        TransactionHooks.afterRollback(() -> {
+            counters.give(quantity);
+            unitsReturned.add(quantity);
+        });
+        return true;
+    }
+
+    // Leases a slice of the stock that no node holds yet, in the caller's transaction: the product
+    // row's lock orders claims and releases, and a claim rolled back with its checkout leaves counters
+    // whose debits are refused, so they are simply replaced. What is left of the lease being replaced
+    // is handed back first, so it is not stranded until the lease expires. Null when too little is left.
+    private Counters claim(Long productId, long generation, int shards, int quantity) {
+        synchronized (claimLocks.computeIfAbsent(productId, id -> new Object())) {
+            Counters current = sales.get(productId);
+            if (current != null && current.usable(generation) && current.remaining() >= quantity) {
+                // Another checkout on this node claimed while this one waited
+                return current;
+            }
+            Integer stock = jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ? " +
+                    "FOR UPDATE", Integer.class, productId);
+            Integer leased = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(units), 0) " +
+                    "FROM flash_sale_allocations WHERE product_id = ? LOCK IN SHARE MODE", Integer.class, productId);
+            int free = (stock != null ? stock : 0) - (leased != null ? leased : 0);
+            if (current != null && current.generation == generation && free + current.remaining() >= quantity) {
+                // A lease already released has given its units back by itself
+                int returned = current.drain();
+                if (returned > 0 && jdbcTemplate.update("UPDATE flash_sale_allocations SET units = units - ? " +
+                        "WHERE id = ?", returned, current.allocationId) > 0) {
+                    free += returned;
+                }
+            }
+            int units = Math.min(Math.max(leaseUnits, quantity), free);
+            if (units < quantity) {
+                return null;
+            }
+            LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(leaseSeconds);
+            KeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(CLAIM_SQL, Statement.RETURN_GENERATED_KEYS);
+                statement.setLong(1, productId);
+                statement.setLong(2, generation);
+                statement.setString(3, nodeId);
+                statement.setInt(4, units);
+                statement.setTimestamp(5, Timestamp.valueOf(expiresAt));
+                return statement;
+            }, keys);
+            Counters claimed = new Counters(generation, keys.getKey().longValue(), expiresAt, shards, units);
+            sales.put(productId, claimed);
+            leases.increment();
+            TransactionHooks.afterRollback(() -> sales.remove(productId, claimed));
+            return claimed;
+        }
+    }
+
+    // Deletes the lease, waiting for checkouts still writing debits against it, and moves its debits
+    // onto the product. Only leases expired before the cutoff are released, unless it is null.
+    private void release(Long allocationId, Long productId, Timestamp cutoff) {
+        jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ? FOR UPDATE",
+                Integer.class, productId);
+        int deleted = cutoff != null
+                ? jdbcTemplate.update("DELETE FROM flash_sale_allocations WHERE id = ? AND expires_at <= ?",
+                        allocationId, cutoff)
+                : jdbcTemplate.update("DELETE FROM flash_sale_allocations WHERE id = ?", allocationId);
+        if (deleted == 0) {
+            return;
+        }
+        Integer sold = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(quantity), 0) FROM flash_sale_debits " +
+                "WHERE allocation_id = ? FOR UPDATE", Integer.class, allocationId);
+        jdbcTemplate.update("DELETE FROM flash_sale_debits WHERE allocation_id = ?", allocationId);
+        apply(productId, sold != null ? sold : 0);
+        TransactionHooks.afterCommit(leasesReleased::increment);
+    }
+
+    // Releases every lease of the product at once, for enable and disable, which hold the sale's
+    // row exclusively so no checkout is writing debits meanwhile
+    private void settle(Long productId) {
+        jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ? FOR UPDATE",
+                Integer.class, productId);
+        Integer sold = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(quantity), 0) FROM flash_sale_debits " +
+                "WHERE product_id = ? FOR UPDATE", Integer.class, productId);
+        jdbcTemplate.update("DELETE FROM flash_sale_debits WHERE product_id = ?", productId);
+        jdbcTemplate.update("DELETE FROM flash_sale_allocations WHERE product_id = ?", productId);
+        apply(productId, sold != null ? sold : 0);
+    }
+
+    // Leases are only claimed against stock on hand, so a product short of its sold units means its
+    // stock was cut during the sale; the release fails rather than take it below zero
+    private void apply(Long productId, int sold) {
+        if (sold == 0) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (jdbcTemplate.update(APPLY_SQL, sold, now, productId, sold) == 0) {
+            throw new IllegalStateException("Product " + productId + " has less stock than the " + sold +
+                    " flash sale units sold");
+        }
+        jdbcTemplate.update(APPLY_LISTING_SQL, sold, now, productId, sold);
+        productDtoCache.invalidate(productId);
+        TransactionHooks.afterCommit(() -> unitsReconciled.add(sold));
+    }
+
+    private static final class Counters {
+        final long generation;
+        final long allocationId;
+        final LocalDateTime expiresAt;
+        final int shards;
+        final AtomicIntegerArray units;
+
+        Counters(long generation, long allocationId, LocalDateTime expiresAt, int shards, int remaining) {
+            this.generation = generation;
+            this.allocationId = allocationId;
+            this.expiresAt = expiresAt;
+            this.shards = shards;
+            this.units = new AtomicIntegerArray(shards * STRIDE);
+            for (int i = 0; i < shards; i++) {
+                units.set(i * STRIDE, remaining / shards + (i < remaining % shards ? 1 : 0));
+            }
+        }
+
+        boolean usable(long currentGeneration) {
+            return generation == currentGeneration && LocalDateTime.now().isBefore(expiresAt);
+        }
+
+        // Starts at a random shard so buyers spread out, and moves on to the others as shards run
+        // dry. When no single shard has enough, takes what each has and puts it back if the total
+        // still falls short.
+        boolean take(int quantity) {
+            int start = ThreadLocalRandom.current().nextInt(shards);
+            for (int i = 0; i < shards; i++) {
+                if (takeFrom((start + i) % shards, quantity, false) == quantity) {
+                    return true;
+                }
+            }
+            int taken = 0;
+            int[] fromShard = new int[shards];
+            for (int i = 0; i < shards && taken < quantity; i++) {
+                int shard = (start + i) % shards;
+                fromShard[shard] = takeFrom(shard, quantity - taken, true);
+                taken += fromShard[shard];
+            }
+            if (taken == quantity) {
+                return true;
+            }
+            for (int shard = 0; shard < shards; shard++) {
+                if (fromShard[shard] > 0) {
+                    units.addAndGet(shard * STRIDE, fromShard[shard]);
+                }
+            }
+            return false;
+        }
+
+        // Units taken from the shard: all of quantity or none, or as many as it has when partial
+        private int takeFrom(int shard, int quantity, boolean partial) {
+            int index = shard * STRIDE;
+            while (true) {
+                int current = units.get(index);
+                int taken = partial ? Math.min(current, quantity) : (current >= quantity ? quantity : 0);
+                if (taken == 0) {
+                    return 0;
+                }
+                if (units.compareAndSet(index, current, current - taken)) {
+                    return taken;
+                }
+            }
+        }
+
+        // Empties every shard, returning the units that were left
+        int drain() {
+            int total = 0;
+            for (int i = 0; i < shards; i++) {
+                total += units.getAndSet(i * STRIDE, 0);
+            }
+            return total;
+        }
+
+        void give(int quantity) {
+            units.addAndGet(ThreadLocalRandom.current().nextInt(shards) * STRIDE, quantity);
+        }
+
+        int remaining() {
+            int total = 0;
+            for (int i = 0; i < shards; i++) {
+                total += units.get(i * STRIDE);
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.utils.CartStore.CartSnapshot;
+import com.ecommerce.utils.CartStore.CartState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Carts of shoppers who have not signed in, by guest token. They live only in memory: nothing is
+// written until the guest signs in and the cart is merged into theirs. Carts expire after a period
+// without use, and the least recently used are dropped when the store is full.
+//
+// The cart endpoints are open to anyone, so only carts holding at least one line are stored, and
+// each is capped in lines: requests alone cannot fill the store with empty carts or one huge cart.
+@Component
+public class GuestCartStore {
+
+    @Value("${app.cart.guest.max-carts:100000}")
+    private int maxCarts;
+
+    @Value("${app.cart.guest.ttl-minutes:4320}")
+    private long ttlMinutes;
+
+    @Value("${app.cart.guest.max-lines:50}")
+    private int maxLines;
+
+    // Access-ordered, so the least recently used cart, which is also the first to expire, comes first
+    private final LinkedHashMap<String, GuestCart> carts = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder merges = new LongAdder();
+
+    public long getTtlMinutes() {
+        return ttlMinutes;
+    }
+
+    // An empty cart for unknown or expired tokens
+    public CartSnapshot get(String token) {
+        GuestCart cart = token != null ? find(token) : null;
+        if (cart == null) {
+            return new CartState(null).snapshot();
+        }
+        synchronized (cart.state) {
+            return cart.state.snapshot();
+        }
+    }
+
+    // Mutations validate before they change anything, as with CartStore.update. A new cart is
+    // stored once a mutation leaves a line in it, and a cart left empty is dropped.
+    public CartSnapshot update(String token, Consumer<CartState> mutation) {
+        while (true) {
+            GuestCart existing = find(token);
+            GuestCart cart = existing != null ? existing : new GuestCart(maxLines);
+            synchronized (cart.state) {
+                // Dropped between the lookup and the lock: the change would be lost with it
+                if (cart.removed) {
+                    continue;
+                }
+                mutation.accept(cart.state);
+                cart.state.touch();
+                if (existing == null && cart.state.lineCount() > 0 && !store(token, cart)) {
+                    // Another request stored a cart for this token first; apply the change to that one
+                    continue;
+                }
+                if (existing != null && cart.state.lineCount() == 0) {
+                    drop(token, cart);
+                }
+                return cart.state.snapshot();
+            }
+        }
+    }
+
+    // Once the cart has been merged into a user's cart
+    public synchronized void remove(String token) {
+        GuestCart cart = carts.remove(token);
+        if (cart != null) {
+            cart.removed = true;
+            merges.increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.guest.sweep-interval-ms:60000}")
+    public synchronized void expire() {
+        long now = System.currentTimeMillis();
+        Iterator<GuestCart> iterator = carts.values().iterator();
+        while (iterator.hasNext()) {
+            GuestCart cart = iterator.next();
+            if (!isExpired(cart, now)) {
+                break;
+            }
+            iterator.remove();
+            cart.removed = true;
+            expirations.increment();
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("carts", carts.size());
+        stats.put("maxCarts", maxCarts);
+        stats.put("merges", merges.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    private synchronized GuestCart find(String token) {
+        long now = System.currentTimeMillis();
+        GuestCart cart = carts.get(token);
+        if (cart != null && isExpired(cart, now)) {
+            carts.remove(token);
+            cart.removed = true;
+            expirations.increment();
+            cart = null;
+        }
+        if (cart != null) {
+            cart.lastAccess = now;
+        }
+        return cart;
+    }
+
+    // False if a cart is already stored under the token
+    private synchronized boolean store(String token, GuestCart cart) {
+        if (find(token) != null) {
+            return false;
+        }
+        cart.lastAccess = System.currentTimeMillis();
+        carts.put(token, cart);
+        evictToFit();
+        return true;
+    }
+
+    private synchronized void drop(String token, GuestCart cart) {
+        if (carts.remove(token, cart)) {
+            cart.removed = true;
+        }
+    }
+
+    private void evictToFit() {
+        Iterator<GuestCart> iterator = carts.values().iterator();
+        while (carts.size() > maxCarts && iterator.hasNext()) {
+            GuestCart cart = iterator.next();
+            iterator.remove();
+            cart.removed = true;
+            evictions.increment();
+        }
+    }
+
+    private boolean isExpired(GuestCart cart, long now) {
+        return now - cart.lastAccess > ttlMinutes * 60_000L;
+    }
+
+    private static final class GuestCart {
+        final CartState state = new CartState(null);
+        // Set under the store's lock and read by update under the cart's
+        volatile boolean removed;
+        // Guarded by the store's lock
+        long lastAccess;
+
+        GuestCart(int maxLines) {
+            state.setMaxLines(maxLines);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.dto.ApiResponse;
+import com.ecommerce.dto.ProductCardDto;
+import com.ecommerce.dto.ProductDto;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+// Validators and Cache-Control policies for catalog reads. ETags are hashed from ids and updatedAt
+// stamps rather than the serialized body; Spring answers a matching If-None-Match or
+// If-Modified-Since on a 200 ResponseEntity with 304 and skips writing the body.
+public final class HttpCacheHeaders {
+
+    // Stock and price move, so shared caches keep product data briefly and then revalidate
+    public static final CacheControl PRODUCT_DETAIL = CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic();
+    public static final CacheControl PRODUCT_LIST = CacheControl.maxAge(30, TimeUnit.SECONDS).cachePublic();
+    public static final CacheControl SUGGESTIONS = CacheControl.maxAge(300, TimeUnit.SECONDS).cachePublic();
+    public static final CacheControl CATEGORIES = CacheControl.maxAge(300, TimeUnit.SECONDS).cachePublic();
+
+    // Review reads require a login, so only the browser may store them
+    public static final CacheControl REVIEWS = CacheControl.maxAge(60, TimeUnit.SECONDS).cachePrivate();
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private HttpCacheHeaders() {
+    }
+
+    public static <T> ResponseEntity<ApiResponse<T>> ok(T body, String etag, CacheControl cacheControl) {
+        return ok(body, etag, null, cacheControl);
+    }
+
+    public static <T> ResponseEntity<ApiResponse<T>> ok(T body, String etag, LocalDateTime lastModified, CacheControl cacheControl) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().eTag(etag).cacheControl(cacheControl);
+        if (lastModified != null) {
+            builder.lastModified(lastModified.atZone(ZoneId.systemDefault()));
+        }
+        return builder.body(ApiResponse.success(body));
+    }
+
+    // Everything a product response shows is covered by its updatedAt except the names it borrows
+    public static String etag(ProductDto product) {
+        return etag(product.getId(), product.getUpdatedAt(), product.getSellerName(),
+                product.getCategoryName(), product.getSubCategoryName());
+    }
+
+    public static String etag(Collection<ProductDto> products, Object... pageState) {
+        long hash = FNV_OFFSET;
+        for (ProductDto product : products) {
+            hash = mix(hash, product.getId(), product.getUpdatedAt(), product.getSellerName(),
+                    product.getCategoryName(), product.getSubCategoryName());
+        }
+        return format(mix(hash, pageState));
+    }
+
+    public static String cardsEtag(Collection<ProductCardDto> cards, Object... pageState) {
+        long hash = FNV_OFFSET;
+        for (ProductCardDto card : cards) {
+            hash = mix(hash, card.getId(), card.getUpdatedAt(), card.getSellerName());
+        }
+        return format(mix(hash, pageState));
+    }
+
+    public static String etag(Object... parts) {
+        return format(mix(FNV_OFFSET, parts));
+    }
+
+    private static long mix(long hash, Object... parts) {
+        for (Object part : parts) {
+            String value = String.valueOf(part);
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= FNV_PRIME;
+            }
+            // Separator, so ("ab", "c") and ("a", "bc") hash differently
+            hash ^= 0x1f;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static String format(long hash) {
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+}
@@ -0,0 +1,247 @@
+package com.ecommerce.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Short-lived holds on stock for shoppers who are paying. A hold is taken when the payment order is
+// created and ends when the order commits, the payment fails, or its time runs out. Holds live only
+// in memory: the held quantity per product is kept as a running sum, so available stock is stock
+// minus that sum without a query, and expiry is driven by a timer wheel rather than a scan.
+//
+// Holds protect paying shoppers from others buying the last units; they are not what prevents
+// overselling, which is the conditional update in StockLedger. Losing them on restart therefore
+// only means the next few checkouts are not held back.
+@Component
+public class InventoryReservations {
+
+    private static final long TICK_MS = 1000L;
+    // Power of two; holds further out than one turn of the wheel wait for later turns
+    private static final int WHEEL_SLOTS = 512;
+
+    @Value("${app.inventory.hold-minutes:10}")
+    private long holdMinutes;
+
+    // One hold per user: a new payment order replaces the previous one
+    private final Map<Long, Hold> holdsByUser = new HashMap<>();
+    private final Map<String, Hold> holdsByReference = new HashMap<>();
+    private final Map<Long, Integer> heldByProduct = new HashMap<>();
+
+    private final Clock clock;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final List<Hold>[] wheel = new List[WHEEL_SLOTS];
+    // Last tick whose slot has been processed
+    private long currentTick;
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    public InventoryReservations() {
+        this(Clock.systemUTC());
+    }
+
+    // For tests that drive the wheel by hand
+    public InventoryReservations(Clock clock) {
+        this.clock = clock;
+        this.currentTick = clock.millis() / TICK_MS;
+    }
+
+    // Holds the quantities for the user under the given reference (the payment order id), replacing
+    // any hold they had. stockByProduct is the current stock of every product in quantities. Returns
+    // the ids of products that do not have enough stock left outside other users' holds; nothing is
+    // held unless that is empty.
+    public synchronized List<Long> hold(Long userId, String reference, Map<Long, Integer> quantities,
+                                        Map<Long, Integer> stockByProduct) {
+        Hold previous = holdsByUser.get(userId);
+        List<Long> insufficient = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Integer stock = stockByProduct.get(entry.getKey());
+            int heldByOthers = heldByProduct.getOrDefault(entry.getKey(), 0)
+                    - (previous != null ? previous.quantityOf(entry.getKey()) : 0);
+            if (stock == null || stock - heldByOthers < entry.getValue()) {
+                insufficient.add(entry.getKey());
+            }
+        }
+        if (!insufficient.isEmpty()) {
+            rejected.increment();
+            return insufficient;
+        }
+        if (previous != null) {
+            end(previous);
+            released.increment();
+        }
+
+        long deadlineTick = Math.max(currentTick + 1,
+                (clock.millis() + holdMinutes * 60_000L + TICK_MS - 1) / TICK_MS);
+        Hold hold = new Hold(userId, reference, quantities, deadlineTick);
+        holdsByUser.put(userId, hold);
+        if (reference != null) {
+            holdsByReference.put(reference, hold);
+        }
+        for (int i = 0; i < hold.productIds.length; i++) {
+            heldByProduct.merge(hold.productIds[i], hold.quantities[i], Integer::sum);
+        }
+        int slot = (int) (deadlineTick & (WHEEL_SLOTS - 1));
+        if (wheel[slot] == null) {
+            wheel[slot] = new ArrayList<>();
+        }
+        wheel[slot].add(hold);
+        created.increment();
+        return insufficient;
+    }
+
+    // Quantities held by users other than this one (all users for null), for the given products
+    public synchronized Map<Long, Integer> heldByOthers(Collection<Long> productIds, Long userId) {
+        Hold own = userId != null ? holdsByUser.get(userId) : null;
+        Map<Long, Integer> held = new HashMap<>();
+        for (Long productId : productIds) {
+            int quantity = heldByProduct.getOrDefault(productId, 0) - (own != null ? own.quantityOf(productId) : 0);
+            if (quantity > 0) {
+                held.put(productId, quantity);
+            }
+        }
+        return held;
+    }
+
+    public int available(Long productId, int stock, Long userId) {
+        return stock - heldByOthers(List.of(productId), userId).getOrDefault(productId, 0);
+    }
+
+    // The user's order has taken the stock; the hold ends once that transaction commits
+    public void confirm(Long userId) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                Hold hold = holdsByUser.get(userId);
+                if (hold != null) {
+                    end(hold);
+                    confirmed.increment();
+                }
+            }
+        });
+    }
+
+    // Moves a hold to a new reference, once the payment order it was taken for has been created
+    public synchronized void rename(String reference, String newReference) {
+        Hold hold = holdsByReference.remove(reference);
+        if (hold != null) {
+            hold.reference = newReference;
+            holdsByReference.put(newReference, hold);
+        }
+    }
+
+    // The payment for this payment order failed or was abandoned
+    public synchronized void release(String reference) {
+        Hold hold = reference != null ? holdsByReference.get(reference) : null;
+        if (hold != null) {
+            end(hold);
+            released.increment();
+        }
+    }
+
+    // As release, for a reference sent by a shopper: only their own hold is released
+    public synchronized void release(Long userId, String reference) {
+        Hold hold = reference != null ? holdsByReference.get(reference) : null;
+        if (hold != null && hold.userId.equals(userId)) {
+            end(hold);
+            released.increment();
+        }
+    }
+
+    // Processes every slot the clock has passed since the last run. Ended holds are dropped from
+    // their slot here rather than when they end, which keeps confirm and release O(1).
+    @Scheduled(fixedDelay = TICK_MS)
+    public synchronized void advance() {
+        long nowTick = clock.millis() / TICK_MS;
+        while (currentTick < nowTick) {
+            currentTick++;
+            List<Hold> slot = wheel[(int) (currentTick & (WHEEL_SLOTS - 1))];
+            if (slot == null) {
+                continue;
+            }
+            Iterator<Hold> iterator = slot.iterator();
+            while (iterator.hasNext()) {
+                Hold hold = iterator.next();
+                if (hold.ended) {
+                    iterator.remove();
+                } else if (hold.deadlineTick <= currentTick) {
+                    end(hold);
+                    expired.increment();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("activeHolds", holdsByUser.size());
+        stats.put("heldProducts", heldByProduct.size());
+        stats.put("holdMinutes", holdMinutes);
+        stats.put("created", created.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("confirmed", confirmed.sum());
+        stats.put("released", released.sum());
+        stats.put("expired", expired.sum());
+        return stats;
+    }
+
+    private void end(Hold hold) {
+        hold.ended = true;
+        holdsByUser.remove(hold.userId, hold);
+        if (hold.reference != null) {
+            holdsByReference.remove(hold.reference, hold);
+        }
+        for (int i = 0; i < hold.productIds.length; i++) {
+            int remaining = heldByProduct.merge(hold.productIds[i], -hold.quantities[i], Integer::sum);
+            if (remaining <= 0) {
+                heldByProduct.remove(hold.productIds[i]);
+            }
+        }
+    }
+
+    private static final class Hold {
+        final Long userId;
+        String reference;
+        final long[] productIds;
+        final int[] quantities;
+        final long deadlineTick;
+        boolean ended;
+
+        Hold(Long userId, String reference, Map<Long, Integer> quantitiesByProduct, long deadlineTick) {
+            this.userId = userId;
+            this.reference = reference;
+            this.productIds = new long[quantitiesByProduct.size()];
+            this.quantities = new int[quantitiesByProduct.size()];
+            int i = 0;
+            for (Map.Entry<Long, Integer> entry : quantitiesByProduct.entrySet()) {
+                productIds[i] = entry.getKey();
+                quantities[i++] = entry.getValue();
+            }
+            this.deadlineTick = deadlineTick;
+        }
+
+        // Carts have a handful of lines, so a scan beats a map here
+        int quantityOf(Long productId) {
+            for (int i = 0; i < productIds.length; i++) {
+                if (productIds[i] == productId) {
+                    return quantities[i];
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.ecommerce.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Amounts as longs of minor units (paise), matching the scale-2 price columns, for arithmetic on
+// hot paths; BigDecimal only at the API and database boundaries
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    // A missing amount is a bug upstream, not zero
+    public static long toMinor(BigDecimal amount) {
+        if (amount == null) {
+            throw new IllegalArgumentException("Amount is required");
+        }
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    public static long times(long minor, int quantity) {
+        return Math.multiplyExact(minor, (long) quantity);
+    }
+}
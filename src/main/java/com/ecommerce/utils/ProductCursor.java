@@ -0,0 +1,94 @@
+package com.ecommerce.utils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Opaque continuation token for keyset pagination: the sort it was issued for, the last row's
+// sort key and its id. Clients must pass it back unchanged together with the same sortBy.
+public final class ProductCursor {
+
+    public static final String NEWEST = "newest";
+    public static final String PRICE_ASC = "price_asc";
+    public static final String PRICE_DESC = "price_desc";
+    public static final String RATING_DESC = "rating_desc";
+    public static final String RELEVANCE = "relevance";
+
+    private final String sortBy;
+    private final String key;
+    private final long id;
+
+    private ProductCursor(String sortBy, String key, long id) {
+        this.sortBy = sortBy;
+        this.key = key;
+        this.id = id;
+    }
+
+    public static String normalizeSort(String sortBy) {
+        if (PRICE_ASC.equals(sortBy) || PRICE_DESC.equals(sortBy) || RATING_DESC.equals(sortBy)) {
+            return sortBy;
+        }
+        return NEWEST;
+    }
+
+    public static String encode(String sortBy, Object key, long id) {
+        String raw = sortBy + "|" + key + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // A blank token means "first page" and decodes to null
+    public static ProductCursor decode(String token, String expectedSort) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        ProductCursor cursor;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 3);
+            cursor = new ProductCursor(parts[0], parts[1], Long.parseLong(parts[2]));
+            cursor.validateKey();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        if (!cursor.sortBy.equals(expectedSort)) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort order");
+        }
+        return cursor;
+    }
+
+    private void validateKey() {
+        switch (sortBy) {
+            case NEWEST -> createdAt();
+            case PRICE_ASC, PRICE_DESC -> price();
+            case RATING_DESC -> rating();
+            case RELEVANCE -> offset();
+            default -> throw new IllegalArgumentException("Unknown sort " + sortBy);
+        }
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public LocalDateTime createdAt() {
+        return LocalDateTime.parse(key);
+    }
+
+    public BigDecimal price() {
+        return new BigDecimal(key);
+    }
+
+    public Double rating() {
+        return Double.valueOf(key);
+    }
+
+    // Position in an in-memory ranked result, used for relevance-sorted keyword searches
+    public int offset() {
+        return Integer.parseInt(key);
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+}
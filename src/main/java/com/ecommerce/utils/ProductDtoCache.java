@@ -0,0 +1,260 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.dto.ProductDto;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Read-through cache of product detail DTOs, bounded by an estimate of retained bytes and evicted
+// least recently used first. Writers invalidate by id once their transaction commits.
+//
+// Split into segments, each with its own lock, LRU order and share of the byte budget, so readers
+// of different products do not queue on one monitor. Every segment keeps version counters for
+// stripes of its keys: invalidating a product bumps only its stripe, so a load racing with a
+// checkout on one product does not stop every other product's miss from being cached.
+@Component
+public class ProductDtoCache {
+
+    private static final long ENTRY_OVERHEAD_BYTES = 400L;
+    // Powers of two
+    private static final int SEGMENTS = 16;
+    private static final int STRIPES = 64;
+
+    @Value("${app.cache.product.max-bytes:33554432}")
+    private long maxBytes;
+
+    @Value("${app.cache.product.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ProductDtoCache() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    public ProductDto get(Long productId, Supplier<ProductDto> loader) {
+        Segment segment = segmentFor(productId);
+        long startVersion;
+        synchronized (segment) {
+            Entry entry = segment.entries.get(productId);
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                hits.increment();
+                return copy(entry.product);
+            }
+            if (entry != null) {
+                segment.remove(productId);
+            }
+            startVersion = segment.versions[stripe(productId)];
+        }
+        misses.increment();
+
+        ProductDto product = loader.get();
+
+        // A value read inside a read-write transaction may include uncommitted writes, so it is served but not cached
+        if (!TransactionHooks.inReadWriteTransaction()) {
+            store(productId, product, startVersion);
+        }
+        return product;
+    }
+
+    // Batch form for result pages: cached products are served from memory and the rest are loaded
+    // with one call. The result follows the order of the ids; ids the loader did not return are skipped.
+    public List<ProductDto> getAll(List<Long> productIds, Function<List<Long>, List<ProductDto>> loader) {
+        Map<Long, ProductDto> found = new HashMap<>();
+        Map<Long, Long> startVersions = new HashMap<>();
+        long now = System.currentTimeMillis();
+        for (Long productId : productIds) {
+            Segment segment = segmentFor(productId);
+            synchronized (segment) {
+                Entry entry = segment.entries.get(productId);
+                if (entry != null && entry.expiresAt > now) {
+                    found.put(productId, copy(entry.product));
+                } else {
+                    if (entry != null) {
+                        segment.remove(productId);
+                    }
+                    startVersions.put(productId, segment.versions[stripe(productId)]);
+                }
+            }
+        }
+        hits.add(found.size());
+        misses.add(startVersions.size());
+
+        if (!startVersions.isEmpty()) {
+            boolean cacheable = !TransactionHooks.inReadWriteTransaction();
+            for (ProductDto product : loader.apply(new ArrayList<>(startVersions.keySet()))) {
+                found.put(product.getId(), product);
+                Long startVersion = startVersions.get(product.getId());
+                if (cacheable && startVersion != null) {
+                    store(product.getId(), product, startVersion);
+                }
+            }
+        }
+
+        List<ProductDto> products = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            ProductDto product = found.get(productId);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    // Drops the product once the current transaction commits
+    public void invalidate(Long productId) {
+        TransactionHooks.afterCommit(() -> {
+            Segment segment = segmentFor(productId);
+            synchronized (segment) {
+                segment.versions[stripe(productId)]++;
+                segment.remove(productId);
+            }
+            invalidations.increment();
+        });
+    }
+
+    // For changes embedded in many products, such as a category rename
+    public void invalidateAll() {
+        TransactionHooks.afterCommit(() -> {
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    for (int i = 0; i < STRIPES; i++) {
+                        segment.versions[i]++;
+                    }
+                    segment.entries.clear();
+                    segment.weightBytes = 0;
+                }
+            }
+            invalidations.increment();
+        });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        int entryCount = 0;
+        long weight = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                entryCount += segment.entries.size();
+                weight += segment.weightBytes;
+            }
+        }
+        stats.put("entries", entryCount);
+        stats.put("weightBytes", weight);
+        stats.put("maxBytes", maxBytes);
+        return stats;
+    }
+
+    // Skipped if the product's stripe was invalidated after the load began, since the load may have
+    // read rows from before that change
+    private void store(Long productId, ProductDto product, long startVersion) {
+        Entry entry = new Entry(copy(product), System.currentTimeMillis() + ttlSeconds * 1000L);
+        long segmentBytes = maxBytes / SEGMENTS;
+        Segment segment = segmentFor(productId);
+        synchronized (segment) {
+            if (segment.versions[stripe(productId)] == startVersion && entry.weight <= segmentBytes) {
+                segment.remove(productId);
+                segment.entries.put(productId, entry);
+                segment.weightBytes += entry.weight;
+                segment.evictToFit(segmentBytes);
+            }
+        }
+    }
+
+    private Segment segmentFor(Long productId) {
+        return segments[spread(productId) & (SEGMENTS - 1)];
+    }
+
+    private static int stripe(Long productId) {
+        return (spread(productId) >>> 4) & (STRIPES - 1);
+    }
+
+    private static int spread(Long productId) {
+        return Long.hashCode(productId * 0x9E3779B97F4A7C15L);
+    }
+
+    private final class Segment {
+        // Access-ordered, so iteration starts at the least recently used entry
+        final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+        final long[] versions = new long[STRIPES];
+        long weightBytes;
+
+        void remove(Long productId) {
+            Entry removed = entries.remove(productId);
+            if (removed != null) {
+                weightBytes -= removed.weight;
+            }
+        }
+
+        void evictToFit(long budget) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (weightBytes > budget && iterator.hasNext()) {
+                weightBytes -= iterator.next().weight;
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private static ProductDto copy(ProductDto source) {
+        ProductDto target = new ProductDto();
+        BeanUtils.copyProperties(source, target);
+        target.setImages(source.getImages() != null ? new ArrayList<>(source.getImages()) : new ArrayList<>());
+        return target;
+    }
+
+    private static long estimateWeight(ProductDto product) {
+        long chars = length(product.getName()) + length(product.getDescription()) + length(product.getBrand())
+                + length(product.getColor()) + length(product.getSize()) + length(product.getWeight())
+                + length(product.getDimensions()) + length(product.getSellerName())
+                + length(product.getCategoryName()) + length(product.getSubCategoryName());
+        long bytes = ENTRY_OVERHEAD_BYTES + chars * 2;
+        List<String> images = product.getImages();
+        if (images != null) {
+            for (String image : images) {
+                bytes += 40L + length(image) * 2L;
+            }
+        }
+        return bytes;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private static final class Entry {
+        final ProductDto product;
+        final long expiresAt;
+        final long weight;
+
+        Entry(ProductDto product, long expiresAt) {
+            this.product = product;
+            this.expiresAt = expiresAt;
+            this.weight = estimateWeight(product);
+        }
+    }
+}
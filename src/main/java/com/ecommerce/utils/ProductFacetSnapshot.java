@@ -0,0 +1,215 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.dto.FacetCountDto;
+import com.ecommerce.dto.PriceRangeFacetDto;
+import com.ecommerce.dto.ProductFacetsDto;
+import com.ecommerce.dto.ProductSearchRequest;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+// Immutable column-per-attribute copy of the visible catalog. Facet counts are a single pass over
+// the rows selected in a BitSet, so adding a facet costs one more array, not one more query.
+public class ProductFacetSnapshot {
+
+    private static final long[] PRICE_BOUNDS_MINOR = {0L, 50000L, 100000L, 250000L, 500000L, 1000000L, 2500000L, 5000000L, 10000000L};
+    private static final int MAX_BRAND_FACETS = 50;
+    private static final int NO_VALUE = -1;
+
+    private final long version;
+    private final long builtAt;
+    private final int rows;
+    private final Map<Long, Integer> rowByProductId;
+
+    private final String[] brandValues;
+    private final int[] brandOrds;
+    private final long[] categoryValues;
+    private final String[] categoryNames;
+    private final int[] categoryOrds;
+    private final long[] subCategoryValues;
+    private final String[] subCategoryNames;
+    private final int[] subCategoryOrds;
+    private final long[] priceMinor;
+    private final byte[] priceBuckets;
+    private final byte[] ratingFloors;
+
+    private ProductFacetSnapshot(List<ProductSearchIndex.Document> documents, long version,
+                                 Map<Long, String> categoryNamesById, Map<Long, String> subCategoryNamesById) {
+        this.version = version;
+        this.builtAt = System.currentTimeMillis();
+        this.rows = documents.size();
+        this.rowByProductId = new HashMap<>(rows * 2);
+        this.brandOrds = new int[rows];
+        this.categoryOrds = new int[rows];
+        this.subCategoryOrds = new int[rows];
+        this.priceMinor = new long[rows];
+        this.priceBuckets = new byte[rows];
+        this.ratingFloors = new byte[rows];
+
+        // Brands are grouped case-insensitively and reported with the first spelling seen
+        Map<String, Integer> brandDictionary = new HashMap<>();
+        List<String> brandSpellings = new ArrayList<>();
+        Map<Long, Integer> categoryDictionary = new LinkedHashMap<>();
+        Map<Long, Integer> subCategoryDictionary = new LinkedHashMap<>();
+        for (int row = 0; row < rows; row++) {
+            ProductSearchIndex.Document document = documents.get(row);
+            rowByProductId.put(document.productId, row);
+            brandOrds[row] = document.brand == null || document.brand.isBlank()
+                    ? NO_VALUE
+                    : brandDictionary.computeIfAbsent(document.brand.trim().toLowerCase(Locale.ROOT), key -> {
+                        brandSpellings.add(document.brand.trim());
+                        return brandSpellings.size() - 1;
+                    });
+            categoryOrds[row] = document.categoryId == null
+                    ? NO_VALUE
+                    : categoryDictionary.computeIfAbsent(document.categoryId, key -> categoryDictionary.size());
+            subCategoryOrds[row] = document.subCategoryId == null
+                    ? NO_VALUE
+                    : subCategoryDictionary.computeIfAbsent(document.subCategoryId, key -> subCategoryDictionary.size());
+            priceMinor[row] = toMinor(document.discountPrice);
+            priceBuckets[row] = (byte) priceBucket(priceMinor[row]);
+            ratingFloors[row] = (byte) Math.max(0, Math.min(5, (int) Math.floor(document.averageRating)));
+        }
+        this.brandValues = brandSpellings.toArray(new String[0]);
+        this.categoryValues = categoryDictionary.keySet().stream().mapToLong(Long::longValue).toArray();
+        this.subCategoryValues = subCategoryDictionary.keySet().stream().mapToLong(Long::longValue).toArray();
+        this.categoryNames = names(categoryValues, categoryNamesById);
+        this.subCategoryNames = names(subCategoryValues, subCategoryNamesById);
+    }
+
+    static ProductFacetSnapshot build(List<ProductSearchIndex.Document> documents, long version,
+                                      Map<Long, String> categoryNames, Map<Long, String> subCategoryNames) {
+        return new ProductFacetSnapshot(documents, version, categoryNames, subCategoryNames);
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    long getBuiltAt() {
+        return builtAt;
+    }
+
+    // Facets for an already computed result, e.g. the ids returned by a keyword search
+    public ProductFacetsDto count(Collection<Long> productIds) {
+        BitSet selected = new BitSet(rows);
+        for (Long productId : productIds) {
+            Integer row = rowByProductId.get(productId);
+            if (row != null) {
+                selected.set(row);
+            }
+        }
+        return count(selected);
+    }
+
+    // Facets for a filter-only search, evaluated column by column without touching the database
+    public ProductFacetsDto count(ProductSearchRequest request) {
+        int categoryOrd = request.getCategoryId() != null ? indexOf(categoryValues, request.getCategoryId()) : NO_VALUE;
+        int subCategoryOrd = request.getSubCategoryId() != null ? indexOf(subCategoryValues, request.getSubCategoryId()) : NO_VALUE;
+        int brandOrd = NO_VALUE;
+        if (request.getBrand() != null) {
+            for (int i = 0; i < brandValues.length; i++) {
+                if (brandValues[i].equalsIgnoreCase(request.getBrand())) {
+                    brandOrd = i;
+                    break;
+                }
+            }
+        }
+        if ((request.getCategoryId() != null && categoryOrd == NO_VALUE)
+                || (request.getSubCategoryId() != null && subCategoryOrd == NO_VALUE)
+                || (request.getBrand() != null && brandOrd == NO_VALUE)) {
+            return count(new BitSet());
+        }
+        long minPrice = request.getMinPrice() != null ? toMinor(request.getMinPrice()) : Long.MIN_VALUE;
+        long maxPrice = request.getMaxPrice() != null ? toMinor(request.getMaxPrice()) : Long.MAX_VALUE;
+
+        BitSet selected = new BitSet(rows);
+        for (int row = 0; row < rows; row++) {
+            if ((request.getCategoryId() == null || categoryOrds[row] == categoryOrd)
+                    && (request.getSubCategoryId() == null || subCategoryOrds[row] == subCategoryOrd)
+                    && (request.getBrand() == null || brandOrds[row] == brandOrd)
+                    && priceMinor[row] >= minPrice && priceMinor[row] <= maxPrice) {
+                selected.set(row);
+            }
+        }
+        return count(selected);
+    }
+
+    private ProductFacetsDto count(BitSet selected) {
+        long[] brandCounts = new long[brandValues.length];
+        long[] categoryCounts = new long[categoryValues.length];
+        long[] subCategoryCounts = new long[subCategoryValues.length];
+        long[] priceCounts = new long[PRICE_BOUNDS_MINOR.length];
+        long[] ratingCounts = new long[6];
+
+        for (int row = selected.nextSetBit(0); row >= 0; row = selected.nextSetBit(row + 1)) {
+            if (brandOrds[row] != NO_VALUE) brandCounts[brandOrds[row]]++;
+            if (categoryOrds[row] != NO_VALUE) categoryCounts[categoryOrds[row]]++;
+            if (subCategoryOrds[row] != NO_VALUE) subCategoryCounts[subCategoryOrds[row]]++;
+            priceCounts[priceBuckets[row]]++;
+            ratingCounts[ratingFloors[row]]++;
+        }
+
+        ProductFacetsDto facets = new ProductFacetsDto();
+        List<FacetCountDto> brands = new ArrayList<>();
+        for (int i = 0; i < brandCounts.length; i++) {
+            if (brandCounts[i] > 0) brands.add(new FacetCountDto(brandValues[i], brandCounts[i]));
+        }
+        brands.sort(Comparator.comparing(FacetCountDto::getCount).reversed().thenComparing(FacetCountDto::getValue));
+        facets.setBrands(brands.size() > MAX_BRAND_FACETS ? new ArrayList<>(brands.subList(0, MAX_BRAND_FACETS)) : brands);
+
+        for (int i = 0; i < categoryCounts.length; i++) {
+            if (categoryCounts[i] > 0) facets.getCategories().add(new FacetCountDto(categoryValues[i], categoryNames[i], categoryCounts[i]));
+        }
+        facets.getCategories().sort(Comparator.comparing(FacetCountDto::getCount).reversed());
+        for (int i = 0; i < subCategoryCounts.length; i++) {
+            if (subCategoryCounts[i] > 0) facets.getSubCategories().add(new FacetCountDto(subCategoryValues[i], subCategoryNames[i], subCategoryCounts[i]));
+        }
+        facets.getSubCategories().sort(Comparator.comparing(FacetCountDto::getCount).reversed());
+
+        for (int i = 0; i < priceCounts.length; i++) {
+            if (priceCounts[i] > 0) {
+                BigDecimal min = BigDecimal.valueOf(PRICE_BOUNDS_MINOR[i], 2);
+                BigDecimal max = i + 1 < PRICE_BOUNDS_MINOR.length ? BigDecimal.valueOf(PRICE_BOUNDS_MINOR[i + 1], 2) : null;
+                facets.getPriceRanges().add(new PriceRangeFacetDto(min, max, priceCounts[i]));
+            }
+        }
+
+        long atLeast = 0;
+        for (int stars = 5; stars >= 1; stars--) {
+            atLeast += ratingCounts[stars];
+            if (stars < 5 && atLeast > 0) {
+                facets.getRatings().add(new FacetCountDto(String.valueOf(stars), atLeast));
+            }
+        }
+        return facets;
+    }
+
+    private static long toMinor(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private static int priceBucket(long minor) {
+        int bucket = Arrays.binarySearch(PRICE_BOUNDS_MINOR, minor);
+        return bucket >= 0 ? bucket : Math.max(0, -bucket - 2);
+    }
+
+    // An id whose name is not known yet (its category was created moments ago) is shown as the id
+    private static String[] names(long[] ids, Map<Long, String> namesById) {
+        String[] names = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            names[i] = namesById.getOrDefault(ids[i], String.valueOf(ids[i]));
+        }
+        return names;
+    }
+
+    private static int indexOf(long[] values, long value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return NO_VALUE;
+    }
+}
@@ -0,0 +1,154 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.entities.Product;
+import com.ecommerce.entities.ProductListing;
+import com.ecommerce.repositories.ProductListingRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+// Maintains the product_listing read model. Every method joins the caller's transaction, so a
+// listing row commits or rolls back together with the product change it mirrors. On startup the
+// table is reconciled with products in id ranges; until that has finished once, readers fall back
+// to querying products directly.
+@Component
+public class ProductListingUpdater {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductListingUpdater.class);
+
+    private static final long REBUILD_RANGE = 5000L;
+
+    private static final String UPSERT_RANGE_SQL = "INSERT INTO product_listing (product_id, name, brand, price, " +
+            "discount_price, stock_quantity, average_rating, total_reviews, seller_id, seller_name, category_id, " +
+            "category_name, sub_category_id, sub_category_name, first_image, visible, created_at, updated_at) " +
+            "SELECT p.id, p.name, p.brand, p.price, p.discount_price, p.stock_quantity, p.average_rating, " +
+            "p.total_reviews, u.id, CONCAT(u.first_name, ' ', u.last_name), c.id, c.name, sc.id, sc.name, " +
+            "(SELECT i.image_url FROM product_images i WHERE i.product_id = p.id LIMIT 1), " +
+            "p.is_active AND p.is_approved, p.created_at, COALESCE(p.updated_at, p.created_at, NOW()) " +
+            "FROM products p " +
+            "JOIN users u ON u.id = p.seller_id " +
+            "JOIN categories c ON c.id = p.category_id " +
+            "LEFT JOIN sub_categories sc ON sc.id = p.sub_category_id " +
+            "WHERE p.id > ? AND p.id <= ? " +
+            "ON DUPLICATE KEY UPDATE name = VALUES(name), brand = VALUES(brand), price = VALUES(price), " +
+            "discount_price = VALUES(discount_price), stock_quantity = VALUES(stock_quantity), " +
+            "average_rating = VALUES(average_rating), total_reviews = VALUES(total_reviews), " +
+            "seller_id = VALUES(seller_id), seller_name = VALUES(seller_name), category_id = VALUES(category_id), " +
+            "category_name = VALUES(category_name), sub_category_id = VALUES(sub_category_id), " +
+            "sub_category_name = VALUES(sub_category_name), first_image = VALUES(first_image), " +
+            "visible = VALUES(visible), created_at = VALUES(created_at), updated_at = VALUES(updated_at)";
+
+    private static final String DELETE_ORPHANS_SQL = "DELETE l FROM product_listing l " +
+            "LEFT JOIN products p ON p.id = l.product_id WHERE p.id IS NULL";
+
+    @Autowired
+    private ProductListingRepository productListingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // For products just persisted; skips the lookup a merge would do
+    public void add(Product product) {
+        entityManager.persist(toListing(product));
+    }
+
+    public void refresh(Product product) {
+        productListingRepository.save(toListing(product));
+    }
+
+    public void remove(Long productId) {
+        productListingRepository.deleteById(productId);
+    }
+
+    public void renameCategory(Long categoryId, String name) {
+        productListingRepository.renameCategory(categoryId, name, LocalDateTime.now());
+    }
+
+    public void renameSubCategory(Long subCategoryId, String name) {
+        productListingRepository.renameSubCategory(subCategoryId, name, LocalDateTime.now());
+    }
+
+    // Products of a deleted subcategory are left without one
+    public void removeSubCategory(Long subCategoryId) {
+        productListingRepository.clearSubCategory(subCategoryId, LocalDateTime.now());
+    }
+
+    // Deleting a category cascades to its products
+    public void removeCategory(Long categoryId) {
+        productListingRepository.deleteByCategory(categoryId);
+    }
+
+    // Catches up with products written without going through this class, such as seed data or rows
+    // written while the table did not exist yet. Each id range is its own statement, so row locks
+    // are held briefly.
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        try {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            if (database == null || !(database.contains("MySQL") || database.contains("MariaDB"))) {
+                logger.info("Product listing rebuild needs MySQL; listings will query products directly");
+                return;
+            }
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM products", Long.class);
+            long upper = maxId != null ? maxId : 0L;
+            for (long from = 0; from < upper; from += REBUILD_RANGE) {
+                jdbcTemplate.update(UPSERT_RANGE_SQL, from, from + REBUILD_RANGE);
+            }
+            jdbcTemplate.update(DELETE_ORPHANS_SQL);
+        } catch (Exception e) {
+            logger.error("Product listing rebuild failed; listings will query products directly", e);
+            return;
+        }
+        ready = true;
+        logger.info("Product listing read model reconciled in {} ms", System.currentTimeMillis() - startedAt);
+    }
+
+    private static ProductListing toListing(Product product) {
+        ProductListing listing = new ProductListing();
+        listing.setProductId(product.getId());
+        listing.setName(product.getName());
+        listing.setBrand(product.getBrand());
+        listing.setPrice(product.getPrice());
+        listing.setDiscountPrice(product.getDiscountPrice());
+        listing.setStockQuantity(product.getStockQuantity());
+        listing.setAverageRating(product.getAverageRating());
+        listing.setTotalReviews(product.getTotalReviews());
+        listing.setSellerId(product.getSeller().getId());
+        listing.setSellerName(product.getSeller().getFirstName() + " " + product.getSeller().getLastName());
+        listing.setCategoryId(product.getCategory().getId());
+        listing.setCategoryName(product.getCategory().getName());
+        if (product.getSubCategory() != null) {
+            listing.setSubCategoryId(product.getSubCategory().getId());
+            listing.setSubCategoryName(product.getSubCategory().getName());
+        }
+        listing.setFirstImage(product.getImages() != null && !product.getImages().isEmpty()
+                ? product.getImages().get(0) : null);
+        listing.setVisible(Boolean.TRUE.equals(product.getIsActive()) && Boolean.TRUE.equals(product.getIsApproved()));
+        listing.setCreatedAt(product.getCreatedAt());
+        // The product's own updatedAt is only stamped at flush, after this row is built
+        listing.setUpdatedAt(LocalDateTime.now());
+        return listing;
+    }
+}
@@ -0,0 +1,520 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.dto.ProductSearchRequest;
+import com.ecommerce.entities.Category;
+import com.ecommerce.entities.Product;
+import com.ecommerce.entities.SubCategory;
+import com.ecommerce.repositories.CategoryRepository;
+import com.ecommerce.repositories.ProductRepository;
+import com.ecommerce.repositories.SubCategoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final int MIN_DELETED_BEFORE_COMPACTION = 1024;
+    private static final long FACET_SNAPSHOT_MAX_AGE_MS = 5000L;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private SubCategoryRepository subCategoryRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Replaced whole by a rebuild, so searches keep using the old index while the new one loads
+    private Segment segment = new Segment();
+
+    // Live updates made while a rebuild is loading, by product id (null for a removal); they are
+    // replayed onto the new index before it replaces the old one
+    private Map<Long, Document> changedDuringRebuild;
+
+    // Facets count categories and subcategories by id and report them by these names
+    private final Map<Long, String> categoryNames = new ConcurrentHashMap<>();
+    private final Map<Long, String> subCategoryNames = new ConcurrentHashMap<>();
+
+    private final Object rebuildState = new Object();
+    private boolean rebuildRunning;
+    private boolean rebuildPending;
+
+    private volatile boolean ready;
+
+    // Bumped on every write so the facet snapshot knows when it is stale
+    private volatile long version;
+    private volatile ProductFacetSnapshot facetSnapshot;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return segment.docNoByProductId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Rebuilds never overlap, since they share changedDuringRebuild: one asked for while another
+    // runs (the startup rebuild and a bulk moderation, say) is coalesced into a single rebuild
+    // that starts when the running one ends
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildState) {
+            if (rebuildRunning) {
+                rebuildPending = true;
+                return;
+            }
+            rebuildRunning = true;
+        }
+        try {
+            while (true) {
+                rebuildOnce();
+                synchronized (rebuildState) {
+                    if (!rebuildPending) {
+                        return;
+                    }
+                    rebuildPending = false;
+                }
+            }
+        } finally {
+            synchronized (rebuildState) {
+                rebuildRunning = false;
+            }
+        }
+    }
+
+    // Loads a new index beside the one in use and swaps it in, so keyword search never falls back
+    // to the database because of a rebuild; only the first build starts from nothing
+    private void rebuildOnce() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long startedAt = System.currentTimeMillis();
+        Segment fresh = new Segment();
+        long afterId = 0L;
+        try {
+            // Renames are applied as they commit, so a rebuild only fills in names it has not seen
+            for (Category category : categoryRepository.findAll()) {
+                categoryNames.putIfAbsent(category.getId(), category.getName());
+            }
+            for (SubCategory subCategory : subCategoryRepository.findAll()) {
+                subCategoryNames.putIfAbsent(subCategory.getId(), subCategory.getName());
+            }
+            while (true) {
+                List<Product> batch = productRepository.findVisibleAfterId(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (Product product : batch) {
+                    fresh.put(Document.of(product));
+                }
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+        } catch (Exception e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.error(ready
+                    ? "Product search index rebuild failed; the previous index stays in use"
+                    : "Product search index rebuild failed; keyword search will use the database", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Document> change : changedDuringRebuild.entrySet()) {
+                if (change.getValue() != null) {
+                    fresh.put(change.getValue());
+                } else {
+                    fresh.delete(change.getKey());
+                }
+            }
+            changedDuringRebuild = null;
+            segment = fresh;
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        ready = true;
+        logger.info("Product search index built with {} products in {} ms", size(), System.currentTimeMillis() - startedAt);
+    }
+
+    public void renameCategory(Long categoryId, String name) {
+        TransactionHooks.afterCommit(() -> rename(categoryNames, categoryId, name));
+    }
+
+    public void renameSubCategory(Long subCategoryId, String name) {
+        TransactionHooks.afterCommit(() -> rename(subCategoryNames, subCategoryId, name));
+    }
+
+    private void rename(Map<Long, String> names, Long id, String name) {
+        lock.writeLock().lock();
+        try {
+            names.put(id, name);
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Snapshots the product now and applies it once the current transaction commits
+    public void update(Product product) {
+        Document document = Document.of(product);
+        TransactionHooks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                put(document);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void remove(Long productId) {
+        TransactionHooks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                if (segment.delete(productId)) {
+                    version++;
+                    segment.maybeCompact();
+                }
+                if (changedDuringRebuild != null) {
+                    changedDuringRebuild.put(productId, null);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Returns the ids of all visible products matching the request, best match first
+    // unless the request asks for an explicit sort
+    public List<Long> search(ProductSearchRequest request) {
+        List<String> tokens = tokenize(request.getKeyword());
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = null;
+            for (int i = 0; i < tokens.size(); i++) {
+                boolean prefix = i == tokens.size() - 1;
+                Map<Integer, Double> tokenScores = scoreToken(tokens.get(i), prefix, scores);
+                scores = tokenScores;
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                Document document = segment.docs.get(entry.getKey());
+                if (document != null && matchesFilters(document, request)) {
+                    hits.add(new Hit(document, entry.getValue()));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        hits.sort(comparator(request.getSortBy()));
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            ids.add(hit.document.productId);
+        }
+        return ids;
+    }
+
+    // Facet snapshots are rebuilt at most every few seconds under write traffic, so counts may trail
+    // the catalog briefly; a quiet catalog always gets an exact snapshot
+    public ProductFacetSnapshot facetSnapshot() {
+        ProductFacetSnapshot snapshot = facetSnapshot;
+        if (snapshot != null && (snapshot.getVersion() == version
+                || System.currentTimeMillis() - snapshot.getBuiltAt() < FACET_SNAPSHOT_MAX_AGE_MS)) {
+            return snapshot;
+        }
+        synchronized (this) {
+            snapshot = facetSnapshot;
+            if (snapshot == null || (snapshot.getVersion() != version
+                    && System.currentTimeMillis() - snapshot.getBuiltAt() >= FACET_SNAPSHOT_MAX_AGE_MS)) {
+                List<Document> live;
+                long liveVersion;
+                lock.readLock().lock();
+                try {
+                    liveVersion = version;
+                    live = new ArrayList<>(segment.docNoByProductId.size());
+                    for (Document document : segment.docs) {
+                        if (document != null) {
+                            live.add(document);
+                        }
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                snapshot = ProductFacetSnapshot.build(live, liveVersion, categoryNames, subCategoryNames);
+                facetSnapshot = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+            if (!token.isEmpty() && !tokens.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private Map<Integer, Double> scoreToken(String token, boolean prefix, Map<Integer, Double> previous) {
+        Map<Integer, Double> tokenScores = new HashMap<>();
+        int liveDocs = segment.docNoByProductId.size();
+
+        Map<String, Postings> matches;
+        if (prefix) {
+            matches = segment.postings.subMap(token, true, token + Character.MAX_VALUE, true);
+        } else {
+            Postings exact = segment.postings.get(token);
+            matches = exact != null ? Map.of(token, exact) : Map.of();
+        }
+
+        int expansions = 0;
+        for (Map.Entry<String, Postings> entry : matches.entrySet()) {
+            if (expansions++ >= MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            Postings termPostings = entry.getValue();
+            double idf = Math.log(1.0 + (double) liveDocs / termPostings.size);
+            // A partial match on the last token counts for less than the whole word
+            double boost = entry.getKey().equals(token) ? 1.0 : 0.5;
+            for (int i = 0; i < termPostings.size; i++) {
+                int docNo = termPostings.docNos[i];
+                Double previousScore = previous != null ? previous.get(docNo) : Double.valueOf(0.0);
+                if (previousScore == null) {
+                    continue;
+                }
+                double score = termPostings.weights[i] * idf * boost;
+                tokenScores.merge(docNo, previousScore + score, Math::max);
+            }
+        }
+        return tokenScores;
+    }
+
+    private boolean matchesFilters(Document document, ProductSearchRequest request) {
+        if (request.getCategoryId() != null && !request.getCategoryId().equals(document.categoryId)) {
+            return false;
+        }
+        if (request.getSubCategoryId() != null && !request.getSubCategoryId().equals(document.subCategoryId)) {
+            return false;
+        }
+        if (request.getMinPrice() != null && document.discountPrice.compareTo(request.getMinPrice()) < 0) {
+            return false;
+        }
+        if (request.getMaxPrice() != null && document.discountPrice.compareTo(request.getMaxPrice()) > 0) {
+            return false;
+        }
+        return request.getBrand() == null || request.getBrand().equalsIgnoreCase(document.brand);
+    }
+
+    private Comparator<Hit> comparator(String sortBy) {
+        Comparator<Hit> byScore = Comparator.comparingDouble((Hit hit) -> hit.score).reversed();
+        Comparator<Hit> primary;
+        if (sortBy == null || sortBy.equals("relevance")) {
+            primary = byScore;
+        } else {
+            primary = switch (sortBy) {
+                case "price_asc" -> Comparator.comparing((Hit hit) -> hit.document.discountPrice);
+                case "price_desc" -> Comparator.comparing((Hit hit) -> hit.document.discountPrice).reversed();
+                case "rating_desc" -> Comparator.comparingDouble((Hit hit) -> hit.document.averageRating).reversed();
+                default -> Comparator.comparing((Hit hit) -> hit.document.createdAt,
+                        Comparator.nullsLast(Comparator.reverseOrder()));
+            };
+            primary = primary.thenComparing(byScore);
+        }
+        return primary.thenComparing(hit -> hit.document.productId);
+    }
+
+    private void put(Document document) {
+        version++;
+        segment.put(document);
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.put(document.productId, document);
+        }
+    }
+
+    // The postings and documents of one build of the index. Changed under the write lock once it is
+    // in use; a rebuild fills a new one on its own thread before swapping it in.
+    private static final class Segment {
+        // term -> postings; a sorted map so the last query token can be expanded as a prefix
+        final TreeMap<String, Postings> postings = new TreeMap<>();
+
+        // Indexed by internal doc number; deleted documents leave a null slot until the next compaction
+        List<Document> docs = new ArrayList<>();
+        final Map<Long, Integer> docNoByProductId = new HashMap<>();
+        int deletedDocs;
+
+        void put(Document document) {
+            delete(document.productId);
+            if (!document.visible) {
+                maybeCompact();
+                return;
+            }
+            int docNo = docs.size();
+            docs.add(document);
+            docNoByProductId.put(document.productId, docNo);
+            for (int i = 0; i < document.terms.length; i++) {
+                postings.computeIfAbsent(document.terms[i], term -> new Postings()).add(docNo, document.weights[i]);
+            }
+            maybeCompact();
+        }
+
+        boolean delete(Long productId) {
+            Integer docNo = docNoByProductId.remove(productId);
+            if (docNo == null) {
+                return false;
+            }
+            docs.set(docNo, null);
+            deletedDocs++;
+            return true;
+        }
+
+        // Postings are append-only, so deletes only tombstone the document; once enough have piled up
+        // the live documents are renumbered and the postings rebuilt
+        void maybeCompact() {
+            if (deletedDocs < MIN_DELETED_BEFORE_COMPACTION || deletedDocs * 4 < docs.size()) {
+                return;
+            }
+            List<Document> live = new ArrayList<>(docNoByProductId.size());
+            for (Document document : docs) {
+                if (document != null) {
+                    live.add(document);
+                }
+            }
+            postings.clear();
+            docNoByProductId.clear();
+            docs = new ArrayList<>(live.size());
+            deletedDocs = 0;
+            for (Document document : live) {
+                int docNo = docs.size();
+                docs.add(document);
+                docNoByProductId.put(document.productId, docNo);
+                for (int i = 0; i < document.terms.length; i++) {
+                    postings.computeIfAbsent(document.terms[i], term -> new Postings()).add(docNo, document.weights[i]);
+                }
+            }
+        }
+    }
+
+    public static final class Document {
+        final Long productId;
+        final boolean visible;
+        final Long categoryId;
+        final Long subCategoryId;
+        final String brand;
+        final BigDecimal discountPrice;
+        final double averageRating;
+        final LocalDateTime createdAt;
+        final String[] terms;
+        final int[] weights;
+
+        private Document(Product product, String[] terms, int[] weights) {
+            this.productId = product.getId();
+            this.visible = Boolean.TRUE.equals(product.getIsActive()) && Boolean.TRUE.equals(product.getIsApproved());
+            this.categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+            this.subCategoryId = product.getSubCategory() != null ? product.getSubCategory().getId() : null;
+            this.brand = product.getBrand();
+            this.discountPrice = product.getDiscountPrice() != null ? product.getDiscountPrice() : BigDecimal.ZERO;
+            this.averageRating = product.getAverageRating() != null ? product.getAverageRating() : 0.0;
+            this.createdAt = product.getCreatedAt();
+            this.terms = terms;
+            this.weights = weights;
+        }
+
+        static Document of(Product product) {
+            Map<String, Integer> termWeights = new LinkedHashMap<>();
+            addTerms(termWeights, product.getName(), NAME_WEIGHT);
+            addTerms(termWeights, product.getBrand(), BRAND_WEIGHT);
+            addTerms(termWeights, product.getDescription(), DESCRIPTION_WEIGHT);
+
+            String[] terms = new String[termWeights.size()];
+            int[] weights = new int[termWeights.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : termWeights.entrySet()) {
+                terms[i] = entry.getKey();
+                weights[i] = entry.getValue();
+                i++;
+            }
+            return new Document(product, terms, weights);
+        }
+
+        private static void addTerms(Map<String, Integer> termWeights, String text, int weight) {
+            if (text == null || text.isBlank()) {
+                return;
+            }
+            for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+                if (!token.isEmpty()) {
+                    termWeights.merge(token, weight, Integer::sum);
+                }
+            }
+        }
+    }
+
+    private static final class Postings {
+        int[] docNos = new int[4];
+        int[] weights = new int[4];
+        int size;
+
+        void add(int docNo, int weight) {
+            if (size == docNos.length) {
+                docNos = Arrays.copyOf(docNos, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docNos[size] = docNo;
+            weights[size] = weight;
+            size++;
+        }
+    }
+
+    private record Hit(Document document, double score) {
+    }
+}
@@ -0,0 +1,523 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.dto.SuggestionDto;
+import com.ecommerce.entities.Category;
+import com.ecommerce.entities.Product;
+import com.ecommerce.entities.SubCategory;
+import com.ecommerce.repositories.CategoryRepository;
+import com.ecommerce.repositories.ProductRepository;
+import com.ecommerce.repositories.SubCategoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Radix trie over approved product names, brands and category/subcategory names. Nodes near the
+// root cache their subtree's best suggestions, so a type-ahead lookup is a walk down at most a few
+// edges followed by an array copy.
+@Component
+public class ProductSuggestIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggestIndex.class);
+
+    public static final int MAX_SUGGESTIONS = 10;
+    private static final int MAX_KEYS_PER_PRODUCT = 3;
+    private static final int CACHED_PREFIX_LENGTH = 12;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private static final String PRODUCT = "PRODUCT";
+    private static final String BRAND = "BRAND";
+    private static final String CATEGORY = "CATEGORY";
+    private static final String SUBCATEGORY = "SUBCATEGORY";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private SubCategoryRepository subCategoryRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Replaced whole by a rebuild, so type-ahead keeps answering from the old trie while the new one loads
+    private Trie trie = new Trie();
+
+    // Live changes made while a rebuild is loading, in order; they are replayed onto the new trie
+    // before it replaces the old one
+    private List<Consumer<Trie>> changedDuringRebuild;
+
+    private final Object rebuildState = new Object();
+    private boolean rebuildRunning;
+    private boolean rebuildPending;
+
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        Suggestion[] top;
+        lock.readLock().lock();
+        try {
+            top = trie.topFor(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<SuggestionDto> suggestions = new ArrayList<>(Math.min(limit, top.length));
+        for (int i = 0; i < top.length && i < limit; i++) {
+            suggestions.add(new SuggestionDto(top[i].text, top[i].type, top[i].id));
+        }
+        return suggestions;
+    }
+
+    // Rebuilds never overlap, since they share changedDuringRebuild: one asked for while another
+    // runs (the startup rebuild and a bulk moderation, say) is coalesced into a single rebuild
+    // that starts when the running one ends
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildState) {
+            if (rebuildRunning) {
+                rebuildPending = true;
+                return;
+            }
+            rebuildRunning = true;
+        }
+        try {
+            while (true) {
+                rebuildOnce();
+                synchronized (rebuildState) {
+                    if (!rebuildPending) {
+                        return;
+                    }
+                    rebuildPending = false;
+                }
+            }
+        } finally {
+            synchronized (rebuildState) {
+                rebuildRunning = false;
+            }
+        }
+    }
+
+    // Loads a new trie off-lock and swaps it in; a failed rebuild leaves the old one in use
+    private void rebuildOnce() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long startedAt = System.currentTimeMillis();
+        Trie fresh = new Trie();
+        long afterId = 0L;
+        try {
+            for (Category category : categoryRepository.findAll()) {
+                fresh.nameGroup(CATEGORY, category.getId(), category.getName(), Boolean.TRUE.equals(category.getIsActive()));
+            }
+            for (SubCategory subCategory : subCategoryRepository.findAll()) {
+                fresh.nameGroup(SUBCATEGORY, subCategory.getId(), subCategory.getName(), Boolean.TRUE.equals(subCategory.getIsActive()));
+            }
+            while (true) {
+                List<Product> batch = productRepository.findVisibleAfterId(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (Product product : batch) {
+                    fresh.apply(new ProductSnapshot(product));
+                }
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+        } catch (Exception e) {
+            logger.error("Suggest index rebuild failed; the previous index stays in use", e);
+            fresh = null;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (fresh != null) {
+                for (Consumer<Trie> change : changedDuringRebuild) {
+                    change.accept(fresh);
+                }
+                trie = fresh;
+            }
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (fresh != null) {
+            logger.info("Suggest index built with {} products in {} ms", fresh.products.size(), System.currentTimeMillis() - startedAt);
+        }
+    }
+
+    public void update(Product product) {
+        ProductSnapshot snapshot = new ProductSnapshot(product);
+        TransactionHooks.afterCommit(() -> write(target -> target.apply(snapshot)));
+    }
+
+    public void remove(Long productId) {
+        TransactionHooks.afterCommit(() -> write(target -> target.removeProduct(productId)));
+    }
+
+    public void updateCategory(Long categoryId, String name, boolean active) {
+        TransactionHooks.afterCommit(() -> write(target -> target.nameGroup(CATEGORY, categoryId, name, active)));
+    }
+
+    public void updateSubCategory(Long subCategoryId, String name, boolean active) {
+        TransactionHooks.afterCommit(() -> write(target -> target.nameGroup(SUBCATEGORY, subCategoryId, name, active)));
+    }
+
+    private void write(Consumer<Trie> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(trie);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{Nd}]+", " ").trim();
+    }
+
+    private static long popularity(Product product) {
+        long reviews = product.getTotalReviews() != null ? product.getTotalReviews() : 0;
+        double rating = product.getAverageRating() != null ? product.getAverageRating() : 0.0;
+        return 1 + reviews + Math.round(rating * 2);
+    }
+
+    // One build of the suggestions: the radix trie plus the product and group bookkeeping that keeps
+    // it in step. Changed under the write lock once in use; a rebuild fills a new one off-lock.
+    private static final class Trie {
+        private Node root = new Node("");
+        private final Map<Long, ProductEntry> products = new HashMap<>();
+
+        // Brands, categories and subcategories are suggested with the summed popularity of their products
+        private final Map<String, Group> groups = new HashMap<>();
+
+        void apply(ProductSnapshot snapshot) {
+            removeProduct(snapshot.id);
+            String key = normalize(snapshot.name);
+            if (!snapshot.visible || key.isEmpty()) {
+                return;
+            }
+
+            ProductEntry entry = new ProductEntry();
+            entry.suggestion = new Suggestion(snapshot.name, PRODUCT, snapshot.id, snapshot.weight);
+            entry.weight = snapshot.weight;
+            // The full name plus a few later word starts, so "case" finds "iphone case"
+            String[] words = key.split(" ");
+            for (int i = 0; i < words.length && entry.keys.size() < MAX_KEYS_PER_PRODUCT; i++) {
+                entry.keys.add(String.join(" ", Arrays.copyOfRange(words, i, words.length)));
+            }
+            for (String productKey : entry.keys) {
+                insert(productKey, entry.suggestion);
+            }
+
+            String brandKey = normalize(snapshot.brand);
+            if (!brandKey.isEmpty()) {
+                entry.groupKeys.add(adjustGroup(BRAND + ":" + brandKey, BRAND, null, snapshot.brand.trim(), entry.weight));
+            }
+            if (snapshot.categoryId != null) {
+                entry.groupKeys.add(adjustGroup(CATEGORY + ":" + snapshot.categoryId, CATEGORY, snapshot.categoryId, null, entry.weight));
+            }
+            if (snapshot.subCategoryId != null) {
+                entry.groupKeys.add(adjustGroup(SUBCATEGORY + ":" + snapshot.subCategoryId, SUBCATEGORY, snapshot.subCategoryId, null, entry.weight));
+            }
+            products.put(snapshot.id, entry);
+        }
+
+        void removeProduct(Long productId) {
+            ProductEntry entry = products.remove(productId);
+            if (entry == null) {
+                return;
+            }
+            for (String key : entry.keys) {
+                delete(key, entry.suggestion);
+            }
+            for (String groupKey : entry.groupKeys) {
+                Group group = groups.get(groupKey);
+                if (group != null) {
+                    adjustGroup(groupKey, group.type, group.id, null, -entry.weight);
+                }
+            }
+        }
+
+        String adjustGroup(String groupKey, String type, Long id, String display, long delta) {
+            Group group = groups.computeIfAbsent(groupKey, key -> new Group(type, id));
+            if (group.display == null) {
+                group.display = display;
+            }
+            group.weight += delta;
+            reindex(group);
+            if (group.weight <= 0 && BRAND.equals(type)) {
+                groups.remove(groupKey);
+            }
+            return groupKey;
+        }
+
+        void nameGroup(String type, Long id, String name, boolean active) {
+            Group group = groups.computeIfAbsent(type + ":" + id, key -> new Group(type, id));
+            group.display = name;
+            group.active = active;
+            reindex(group);
+        }
+
+        private void reindex(Group group) {
+            if (group.suggestion != null) {
+                delete(normalize(group.suggestion.text), group.suggestion);
+                group.suggestion = null;
+            }
+            if (group.active && group.weight > 0 && !normalize(group.display).isEmpty()) {
+                group.suggestion = new Suggestion(group.display, group.type, group.id, group.weight);
+                insert(normalize(group.display), group.suggestion);
+            }
+        }
+
+        private void insert(String key, Suggestion suggestion) {
+            List<Node> path = new ArrayList<>();
+            List<Integer> depths = new ArrayList<>();
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                Node child = childStartingWith(node, key.charAt(i));
+                if (child == null) {
+                    child = new Node(key.substring(i));
+                    node.children.add(child);
+                } else {
+                    int common = commonPrefixLength(child.label, key, i);
+                    if (common < child.label.length()) {
+                        // Split the edge so the new key can branch off where it diverges
+                        Node middle = new Node(child.label.substring(0, common));
+                        child.label = child.label.substring(common);
+                        middle.children.add(child);
+                        node.children.set(node.children.indexOf(child), middle);
+                        child = middle;
+                    }
+                }
+                i += child.label.length();
+                path.add(child);
+                depths.add(i);
+                node = child;
+            }
+            if (node.terminals == null) {
+                node.terminals = new ArrayList<>(1);
+            }
+            node.terminals.add(suggestion);
+            refreshTops(path, depths);
+        }
+
+        private void delete(String key, Suggestion suggestion) {
+            List<Node> path = new ArrayList<>();
+            List<Integer> depths = new ArrayList<>();
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                Node child = childStartingWith(node, key.charAt(i));
+                if (child == null || !key.startsWith(child.label, i)) {
+                    return;
+                }
+                i += child.label.length();
+                path.add(child);
+                depths.add(i);
+                node = child;
+            }
+            if (node.terminals == null || !node.terminals.remove(suggestion)) {
+                return;
+            }
+            if (node.terminals.isEmpty()) {
+                node.terminals = null;
+            }
+            // Drop nodes that no longer lead anywhere
+            for (int p = path.size() - 1; p >= 0; p--) {
+                Node current = path.get(p);
+                if (current.terminals != null || !current.children.isEmpty()) {
+                    break;
+                }
+                Node parent = p > 0 ? path.get(p - 1) : root;
+                parent.children.remove(current);
+                path.remove(p);
+                depths.remove(p);
+            }
+            refreshTops(path, depths);
+        }
+
+        // Recomputes the cached best suggestions bottom-up along the path that just changed
+        private void refreshTops(List<Node> path, List<Integer> depths) {
+            for (int p = path.size() - 1; p >= 0; p--) {
+                Node node = path.get(p);
+                if (depths.get(p) - node.label.length() >= CACHED_PREFIX_LENGTH) {
+                    node.top = null;
+                    continue;
+                }
+                List<Suggestion> candidates = new ArrayList<>();
+                if (node.terminals != null) {
+                    candidates.addAll(node.terminals);
+                }
+                for (Node child : node.children) {
+                    Collections.addAll(candidates, child.top != null ? child.top : collect(child));
+                }
+                node.top = best(candidates);
+            }
+        }
+
+        Suggestion[] topFor(String prefix) {
+            Node node = root;
+            int i = 0;
+            while (i < prefix.length()) {
+                Node child = childStartingWith(node, prefix.charAt(i));
+                if (child == null) {
+                    return Suggestion.NONE;
+                }
+                int common = commonPrefixLength(child.label, prefix, i);
+                if (i + common == prefix.length()) {
+                    return child.top != null ? child.top : collect(child);
+                }
+                if (common < child.label.length()) {
+                    return Suggestion.NONE;
+                }
+                i += common;
+                node = child;
+            }
+            return Suggestion.NONE;
+        }
+
+        // Deep nodes do not cache their best suggestions; their subtrees are small enough to walk
+        private Suggestion[] collect(Node node) {
+            List<Suggestion> candidates = new ArrayList<>();
+            Deque<Node> stack = new ArrayDeque<>();
+            stack.push(node);
+            while (!stack.isEmpty()) {
+                Node current = stack.pop();
+                if (current.top != null && current != node) {
+                    Collections.addAll(candidates, current.top);
+                    continue;
+                }
+                if (current.terminals != null) {
+                    candidates.addAll(current.terminals);
+                }
+                current.children.forEach(stack::push);
+            }
+            return best(candidates);
+        }
+    }
+
+    private static Suggestion[] best(List<Suggestion> candidates) {
+        candidates.sort(Comparator.comparingLong((Suggestion s) -> s.weight).reversed()
+                .thenComparing(s -> s.text));
+        List<Suggestion> top = new ArrayList<>(MAX_SUGGESTIONS);
+        for (Suggestion candidate : candidates) {
+            // The same product is reachable through several keys; show it once
+            if (!top.contains(candidate)) {
+                top.add(candidate);
+                if (top.size() == MAX_SUGGESTIONS) {
+                    break;
+                }
+            }
+        }
+        return top.toArray(Suggestion.NONE);
+    }
+
+    private static Node childStartingWith(Node node, char c) {
+        for (Node child : node.children) {
+            if (child.label.charAt(0) == c) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Node {
+        String label;
+        final List<Node> children = new ArrayList<>(2);
+        List<Suggestion> terminals;
+        Suggestion[] top = Suggestion.NONE;
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+
+    // Identity semantics on purpose: two products may share a name but are separate suggestions
+    private static final class Suggestion {
+        static final Suggestion[] NONE = new Suggestion[0];
+
+        final String text;
+        final String type;
+        final Long id;
+        final long weight;
+
+        Suggestion(String text, String type, Long id, long weight) {
+            this.text = text;
+            this.type = type;
+            this.id = id;
+            this.weight = weight;
+        }
+    }
+
+    private static final class ProductEntry {
+        Suggestion suggestion;
+        long weight;
+        final List<String> keys = new ArrayList<>(MAX_KEYS_PER_PRODUCT);
+        final List<String> groupKeys = new ArrayList<>(3);
+    }
+
+    private static final class Group {
+        final String type;
+        final Long id;
+        String display;
+        boolean active = true;
+        long weight;
+        Suggestion suggestion;
+
+        Group(String type, Long id) {
+            this.type = type;
+            this.id = id;
+        }
+    }
+
+    private static final class ProductSnapshot {
+        final Long id;
+        final boolean visible;
+        final String name;
+        final String brand;
+        final Long categoryId;
+        final Long subCategoryId;
+        final long weight;
+
+        ProductSnapshot(Product product) {
+            this.id = product.getId();
+            this.visible = Boolean.TRUE.equals(product.getIsActive()) && Boolean.TRUE.equals(product.getIsApproved());
+            this.name = product.getName();
+            this.brand = product.getBrand();
+            this.categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+            this.subCategoryId = product.getSubCategory() != null ? product.getSubCategory().getId() : null;
+            this.weight = popularity(product);
+        }
+    }
+}
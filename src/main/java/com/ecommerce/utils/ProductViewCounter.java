@@ -0,0 +1,96 @@
+package com.ecommerce.utils;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Product views counted in memory and added to product_stats every few seconds with one batched
+// upsert, instead of a write per view. Counters are striped LongAdders, so concurrent views of the
+// same product do not contend; a flush drains each one atomically and puts deltas back if the
+// write fails. The remainder is flushed when the context closes.
+@Component
+public class ProductViewCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductViewCounter.class);
+
+    private static final String UPSERT_SQL = "INSERT INTO product_stats (product_id, view_count, updated_at) " +
+            "VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE view_count = view_count + VALUES(view_count), updated_at = VALUES(updated_at)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // One adder per product ever viewed since startup, so the map is bounded by the catalog size;
+    // entries are never removed because a view could land on an adder that was just dropped
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder flushedViews = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+
+    public void recordView(Long productId) {
+        LongAdder counter = pending.get(productId);
+        if (counter == null) {
+            counter = pending.computeIfAbsent(productId, id -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${app.views.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        Map<Long, Long> drained = new LinkedHashMap<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Map.Entry<Long, LongAdder> entry : pending.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta > 0) {
+                drained.put(entry.getKey(), delta);
+                batch.add(new Object[]{entry.getKey(), delta, now});
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+            drained.values().forEach(flushedViews::add);
+        } catch (Exception e) {
+            // Keep the views for the next attempt rather than dropping them
+            drained.forEach((productId, delta) -> pending.computeIfAbsent(productId, id -> new LongAdder()).add(delta));
+            failedFlushes.increment();
+            logger.warn("Could not flush {} product view counts: {}", drained.size(), e.getMessage());
+        }
+    }
+
+    // The web server has stopped taking requests by the time beans are destroyed, and the data
+    // source outlives this bean because it depends on it
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long buffered = 0;
+        for (LongAdder counter : pending.values()) {
+            buffered += counter.sum();
+        }
+        stats.put("bufferedViews", buffered);
+        stats.put("trackedProducts", pending.size());
+        stats.put("flushedViews", flushedViews.sum());
+        stats.put("failedFlushes", failedFlushes.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,323 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.entities.Order;
+import com.ecommerce.repositories.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// "Frequently bought together": for every product, how many orders also contained each other
+// product, kept as a sparse row of primitive counts plus its precomputed top neighbours. New orders
+// are added as they commit; a periodic rebuild recounts from order_items, which also drops cancelled
+// orders and deleted products and trims every row back to its strongest neighbours.
+@Component
+public class RelatedProductsIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelatedProductsIndex.class);
+
+    public static final int TOP_K = 20;
+    private static final int MAX_NEIGHBOURS = 200;
+    private static final int MAX_PRODUCTS_PER_ORDER = 50;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final List<Order.OrderStatus> EXCLUDED_STATUSES =
+            List.of(Order.OrderStatus.CANCELLED, Order.OrderStatus.RETURNED);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private Map<Long, Row> rows = new HashMap<>();
+
+    // Orders committed while a rebuild is scanning; replayed onto the new rows if the scan missed them
+    private List<RecordedOrder> recordedDuringRebuild;
+
+    // Best first; empty for unknown products
+    public List<Long> related(Long productId) {
+        lock.readLock().lock();
+        try {
+            Row row = rows.get(productId);
+            if (row == null) {
+                return List.of();
+            }
+            List<Long> ids = new ArrayList<>(row.topSize);
+            for (int i = 0; i < row.topSize; i++) {
+                ids.add(row.topIds[i]);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // How many orders counted so far contained both products
+    public int count(Long productId, Long otherId) {
+        lock.readLock().lock();
+        try {
+            Row row = rows.get(productId);
+            return row != null ? row.count(otherId) : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Counts the order's products against each other once the current transaction commits
+    public void recordOrder(Long orderId, Collection<Long> productIds) {
+        long[] products = distinct(productIds);
+        if (products.length < 2) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                addOrder(rows, products, true);
+                if (recordedDuringRebuild != null) {
+                    recordedDuringRebuild.add(new RecordedOrder(orderId, products));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Async
+    @Scheduled(fixedDelayString = "${app.related.rebuild-interval-ms:21600000}",
+            initialDelayString = "${app.related.rebuild-interval-ms:21600000}")
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            recordedDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long startedAt = System.currentTimeMillis();
+        long afterId = 0L;
+        Map<Long, Row> built = new HashMap<>();
+        try {
+            // Keyset over order ids, then the items of that batch, so neither query grows with history
+            while (true) {
+                List<Long> orderIds = orderRepository.findIdsAfter(afterId, EXCLUDED_STATUSES,
+                        PageRequest.of(0, REBUILD_BATCH_SIZE));
+                if (orderIds.isEmpty()) {
+                    break;
+                }
+                Map<Long, List<Long>> productsByOrder = new HashMap<>();
+                for (Object[] item : orderRepository.findProductIdsByOrderIds(orderIds)) {
+                    productsByOrder.computeIfAbsent((Long) item[0], id -> new ArrayList<>()).add((Long) item[1]);
+                }
+                for (List<Long> productIds : productsByOrder.values()) {
+                    long[] products = distinct(productIds);
+                    if (products.length > 1) {
+                        addOrder(built, products, false);
+                    }
+                }
+                afterId = orderIds.get(orderIds.size() - 1);
+            }
+            for (Row row : built.values()) {
+                row.compact();
+            }
+        } catch (Exception e) {
+            logger.error("Related products rebuild failed; keeping the previous counts", e);
+            lock.writeLock().lock();
+            try {
+                recordedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            rebuilding.set(false);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // An order that committed below the scan position after the scan passed it is only
+            // counted by the live update, and picked up again by the next rebuild
+            for (RecordedOrder order : recordedDuringRebuild) {
+                if (order.orderId == null || order.orderId > afterId) {
+                    addOrder(built, order.productIds, true);
+                }
+            }
+            recordedDuringRebuild = null;
+            rows = built;
+        } finally {
+            lock.writeLock().unlock();
+            rebuilding.set(false);
+        }
+        logger.info("Related products built for {} products in {} ms", built.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    private static void addOrder(Map<Long, Row> target, long[] products, boolean maintainTop) {
+        for (long product : products) {
+            Row row = target.computeIfAbsent(product, id -> new Row());
+            for (long other : products) {
+                if (other != product) {
+                    int count = row.increment(other);
+                    if (maintainTop) {
+                        row.offerTop(other, count);
+                    }
+                }
+            }
+        }
+    }
+
+    // Very large orders would add a quadratic number of pairs while saying little about each one
+    private static long[] distinct(Collection<Long> productIds) {
+        Set<Long> unique = new LinkedHashSet<>(productIds);
+        unique.remove(null);
+        return unique.stream().limit(MAX_PRODUCTS_PER_ORDER).mapToLong(Long::longValue).toArray();
+    }
+
+    private static final class RecordedOrder {
+        final Long orderId;
+        final long[] productIds;
+
+        RecordedOrder(Long orderId, long[] productIds) {
+            this.orderId = orderId;
+            this.productIds = productIds;
+        }
+    }
+
+    // Open-addressing long -> int map of co-occurrence counts (product ids are never 0, which marks a
+    // free slot), with the top neighbours kept sorted by count alongside
+    private static final class Row {
+        long[] keys = new long[8];
+        int[] counts = new int[8];
+        int size;
+
+        final long[] topIds = new long[TOP_K];
+        final int[] topCounts = new int[TOP_K];
+        int topSize;
+
+        int increment(long key) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize(keys.length * 2);
+            }
+            int slot = slot(keys, key);
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                size++;
+            }
+            return ++counts[slot];
+        }
+
+        int count(long key) {
+            int slot = slot(keys, key);
+            return keys[slot] == key ? counts[slot] : 0;
+        }
+
+        // Counts only grow between rebuilds, so a neighbour can only enter the top list by passing
+        // its weakest member; the list therefore stays exact without rescanning the row
+        void offerTop(long key, int count) {
+            int position = -1;
+            for (int i = 0; i < topSize; i++) {
+                if (topIds[i] == key) {
+                    position = i;
+                    break;
+                }
+            }
+            if (position < 0) {
+                if (topSize < TOP_K) {
+                    position = topSize++;
+                } else if (count > topCounts[TOP_K - 1]) {
+                    position = TOP_K - 1;
+                } else {
+                    return;
+                }
+                topIds[position] = key;
+            }
+            topCounts[position] = count;
+            while (position > 0 && topCounts[position - 1] < count) {
+                topIds[position] = topIds[position - 1];
+                topCounts[position] = topCounts[position - 1];
+                topIds[position - 1] = key;
+                topCounts[position - 1] = count;
+                position--;
+            }
+        }
+
+        // Keeps the strongest MAX_NEIGHBOURS counts and recomputes the top list from them
+        void compact() {
+            Integer[] order = new Integer[keys.length];
+            int filled = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    order[filled++] = i;
+                }
+            }
+            Arrays.sort(order, 0, filled, (a, b) -> Integer.compare(counts[b], counts[a]));
+            int kept = Math.min(filled, MAX_NEIGHBOURS);
+
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            int capacity = 8;
+            while (kept * 4 > capacity * 3) {
+                capacity *= 2;
+            }
+            keys = new long[capacity];
+            counts = new int[capacity];
+            size = kept;
+            topSize = Math.min(kept, TOP_K);
+            for (int i = 0; i < kept; i++) {
+                long key = oldKeys[order[i]];
+                int slot = slot(keys, key);
+                keys[slot] = key;
+                counts[slot] = oldCounts[order[i]];
+                if (i < TOP_K) {
+                    topIds[i] = key;
+                    topCounts[i] = oldCounts[order[i]];
+                }
+            }
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new long[capacity];
+            counts = new int[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private static int slot(long[] keys, long key) {
+            int mask = keys.length - 1;
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
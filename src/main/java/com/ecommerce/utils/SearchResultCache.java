@@ -0,0 +1,272 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.dto.ProductDto;
+import com.ecommerce.dto.ProductFacetsDto;
+import com.ecommerce.dto.ProductSearchRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Search result pages keyed by the normalized request. Only the matching ids, the total and the
+// facets are kept; product contents are hydrated through ProductDtoCache, so stock and price
+// changes show up without touching this cache. Concurrent misses for one key share a single load.
+// Any change to which products match or how they sort clears everything once it commits.
+@Component
+public class SearchResultCache {
+
+    @Value("${app.cache.search.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.cache.search.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final ConcurrentHashMap<String, CompletableFuture<SearchResult>> inFlight = new ConcurrentHashMap<>();
+
+    // Bumped by every invalidation; a load that started before one may have read stale rows
+    private long epoch;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public SearchResult get(String key, Supplier<SearchResult> loader) {
+        // A result read inside a read-write transaction may include uncommitted writes
+        if (TransactionHooks.inReadWriteTransaction()) {
+            return loader.get();
+        }
+
+        long startEpoch;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                hits.increment();
+                return entry.result;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+            startEpoch = epoch;
+        }
+
+        CompletableFuture<SearchResult> flight = new CompletableFuture<>();
+        CompletableFuture<SearchResult> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            coalesced.increment();
+            return await(leader);
+        }
+
+        misses.increment();
+        try {
+            SearchResult result = loader.get();
+            Entry entry = new Entry(result.withoutProducts(), System.currentTimeMillis() + ttlSeconds * 1000L);
+            synchronized (this) {
+                if (epoch == startEpoch) {
+                    entries.put(key, entry);
+                    evictToFit();
+                }
+            }
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    // Clears every result once the current transaction commits
+    public void invalidateAll() {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                epoch++;
+                entries.clear();
+            }
+            // Requests arriving from now on start a fresh load instead of joining one that may be stale
+            inFlight.clear();
+            invalidations.increment();
+        });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long coalescedCount = coalesced.sum();
+        long requests = hitCount + missCount + coalescedCount;
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("coalesced", coalescedCount);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) (hitCount + coalescedCount) / requests);
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        synchronized (this) {
+            stats.put("entries", entries.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        return stats;
+    }
+
+    // Copy of the request with blank filters dropped, free text trimmed, lowercased and single-spaced,
+    // and prices without trailing zeros, so equivalent requests share a key and run the same query
+    public static ProductSearchRequest normalize(ProductSearchRequest request) {
+        ProductSearchRequest normalized = new ProductSearchRequest();
+        normalized.setKeyword(normalizeText(request.getKeyword()));
+        normalized.setCategoryId(request.getCategoryId());
+        normalized.setSubCategoryId(request.getSubCategoryId());
+        normalized.setMinPrice(normalizePrice(request.getMinPrice()));
+        normalized.setMaxPrice(normalizePrice(request.getMaxPrice()));
+        normalized.setBrand(normalizeText(request.getBrand()));
+        String sortBy = normalizeText(request.getSortBy());
+        // Both search paths treat relevance and no sort alike
+        normalized.setSortBy("relevance".equals(sortBy) ? null : sortBy);
+        normalized.setPage(request.getPage() != null ? request.getPage() : 0);
+        normalized.setSize(request.getSize() != null ? request.getSize() : 20);
+        normalized.setIncludeFacets(Boolean.TRUE.equals(request.getIncludeFacets()));
+        return normalized;
+    }
+
+    // Fields in a fixed order; free text is length-prefixed so no keyword can imitate another field
+    public static String key(ProductSearchRequest normalized, Object... pageState) {
+        StringBuilder key = new StringBuilder();
+        appendText(key, normalized.getKeyword());
+        key.append(normalized.getCategoryId()).append('|')
+                .append(normalized.getSubCategoryId()).append('|')
+                .append(plain(normalized.getMinPrice())).append('|')
+                .append(plain(normalized.getMaxPrice())).append('|');
+        appendText(key, normalized.getBrand());
+        appendText(key, normalized.getSortBy());
+        key.append(normalized.getPage()).append('|')
+                .append(normalized.getSize()).append('|')
+                .append(normalized.getIncludeFacets());
+        for (Object part : pageState) {
+            key.append('|');
+            appendText(key, part != null ? part.toString() : null);
+        }
+        return key.toString();
+    }
+
+    private static String normalizeText(String value) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static BigDecimal normalizePrice(BigDecimal price) {
+        return price != null ? price.stripTrailingZeros() : null;
+    }
+
+    private static String plain(BigDecimal price) {
+        return price != null ? price.toPlainString() : null;
+    }
+
+    private static void appendText(StringBuilder key, String value) {
+        if (value == null) {
+            key.append("-|");
+        } else {
+            key.append(value.length()).append(':').append(value).append('|');
+        }
+    }
+
+    private static SearchResult await(CompletableFuture<SearchResult> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void evictToFit() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    // One page of results. Fresh loads also carry the hydrated products, which callers use as they
+    // are; cached copies drop them and callers hydrate the ids again.
+    public static final class SearchResult {
+        private final List<Long> productIds;
+        private final List<ProductDto> products;
+        private final Long total;
+        private final String nextCursor;
+        private final boolean hasNext;
+        private final ProductFacetsDto facets;
+
+        public SearchResult(List<ProductDto> products, Long total, String nextCursor, boolean hasNext,
+                            ProductFacetsDto facets) {
+            this(products.stream().map(ProductDto::getId).toList(), products, total, nextCursor, hasNext, facets);
+        }
+
+        private SearchResult(List<Long> productIds, List<ProductDto> products, Long total, String nextCursor,
+                             boolean hasNext, ProductFacetsDto facets) {
+            this.productIds = productIds;
+            this.products = products;
+            this.total = total;
+            this.nextCursor = nextCursor;
+            this.hasNext = hasNext;
+            this.facets = facets;
+        }
+
+        SearchResult withoutProducts() {
+            return new SearchResult(productIds, null, total, nextCursor, hasNext, facets);
+        }
+
+        public List<Long> getProductIds() {
+            return productIds;
+        }
+
+        // Null when the result came from the cache
+        public List<ProductDto> getProducts() {
+            return products;
+        }
+
+        public Long getTotal() {
+            return total;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+
+        public boolean isHasNext() {
+            return hasNext;
+        }
+
+        public ProductFacetsDto getFacets() {
+            return facets;
+        }
+    }
+
+    private static final class Entry {
+        final SearchResult result;
+        final long expiresAt;
+
+        Entry(SearchResult result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
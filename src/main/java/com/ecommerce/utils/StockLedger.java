@@ -0,0 +1,93 @@
+package com.ecommerce.utils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Stock changes as conditional updates, so the check and the decrement are one statement and
+// concurrent checkouts cannot both pass a check against the same stale count. Must be called inside
+// the caller's transaction, which it relies on to undo a partly applied deduction.
+@Component
+public class StockLedger {
+
+    private static final String DEDUCT_SQL = "UPDATE products SET stock_quantity = stock_quantity - ?, " +
+            "updated_at = ? WHERE id = ? AND stock_quantity >= ? AND NOT EXISTS " +
+            "(SELECT 1 FROM flash_sales f WHERE f.product_id = ? AND f.active = true)";
+
+    private static final String DEDUCT_LISTING_SQL = "UPDATE product_listing " +
+            "SET stock_quantity = stock_quantity - ?, updated_at = ? WHERE product_id = ?";
+
+    private static final String SET_SQL = "UPDATE products SET stock_quantity = ?, updated_at = ? WHERE id = ?";
+
+    private static final String SET_LISTING_SQL = "UPDATE product_listing SET stock_quantity = ?, updated_at = ? " +
+            "WHERE product_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductDtoCache productDtoCache;
+
+    public List<Long> deduct(Map<Long, Integer> quantitiesByProduct) {
+        return deduct(quantitiesByProduct, Map.of());
+    }
+
+    // Takes the quantities off every product in one JDBC batch and returns the ids of products that
+    // did not have enough stock beyond what is held for other shoppers, or that are on an active
+    // flash sale and must be taken through FlashSaleInventory instead; if that is not empty the
+    // caller must roll back, since the other rows were still decremented. Rows are updated in
+    // product id order, so two checkouts sharing products lock them in the same order and cannot
+    // deadlock.
+    //
+    // Products loaded in the caller's persistence context keep their old stock quantity; saving
+    // them is harmless, since the entity never writes that column.
+    public List<Long> deduct(Map<Long, Integer> quantitiesByProduct, Map<Long, Integer> heldForOthers) {
+        TreeMap<Long, Integer> ordered = new TreeMap<>(quantitiesByProduct);
+        if (ordered.isEmpty()) {
+            return List.of();
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(ordered.size());
+        ordered.forEach((productId, quantity) -> rows.add(new Object[]{quantity, now, productId,
+                quantity + heldForOthers.getOrDefault(productId, 0), productId}));
+        int[] updated = jdbcTemplate.batchUpdate(DEDUCT_SQL, rows);
+
+        List<Long> insufficient = new ArrayList<>();
+        int i = 0;
+        for (Long productId : ordered.keySet()) {
+            if (updated[i++] == 0) {
+                insufficient.add(productId);
+            }
+        }
+        if (!insufficient.isEmpty()) {
+            return insufficient;
+        }
+
+        List<Object[]> listingRows = new ArrayList<>(ordered.size());
+        ordered.forEach((productId, quantity) -> listingRows.add(new Object[]{quantity, now, productId}));
+        jdbcTemplate.batchUpdate(DEDUCT_LISTING_SQL, listingRows);
+        for (Long productId : ordered.keySet()) {
+            productDtoCache.invalidate(productId);
+        }
+        return insufficient;
+    }
+
+    // A seller setting the stock outright. Callers must keep this away from products on an active
+    // flash sale, whose stock is still being reconciled.
+    public void set(Long productId, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Stock quantity cannot be negative");
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update(SET_SQL, quantity, now, productId);
+        jdbcTemplate.update(SET_LISTING_SQL, quantity, now, productId);
+        productDtoCache.invalidate(productId);
+    }
+}
@@ -0,0 +1,103 @@
+package com.ecommerce;
+
+import com.ecommerce.entities.Category;
+import com.ecommerce.entities.Product;
+import com.ecommerce.entities.User;
+import com.ecommerce.repositories.ProductRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Shared by the stock tests: products to sell, and simulated checkouts run from a thread pool
+final class CheckoutLoadHelper {
+
+    private final ProductRepository productRepository;
+    private final User seller;
+    private final Category category;
+    private final String namePrefix;
+    private final List<Long> productIds = new ArrayList<>();
+
+    CheckoutLoadHelper(ProductRepository productRepository, User seller, Category category, String namePrefix) {
+        this.productRepository = productRepository;
+        this.seller = seller;
+        this.category = category;
+        this.namePrefix = namePrefix;
+    }
+
+    Long createProduct(int stock) {
+        Product product = new Product();
+        product.setName(namePrefix + " " + productIds.size());
+        product.setDescription("Test Description");
+        product.setPrice(new BigDecimal("100.00"));
+        product.setDiscountPrice(new BigDecimal("90.00"));
+        product.setStockQuantity(stock);
+        product.setSeller(seller);
+        product.setCategory(category);
+        product.setIsApproved(true);
+        Long id = productRepository.save(product).getId();
+        productIds.add(id);
+        return id;
+    }
+
+    int stockOf(Long productId) {
+        return productRepository.findById(productId).orElseThrow().getStockQuantity();
+    }
+
+    List<Long> productIds() {
+        return productIds;
+    }
+
+    void deleteProducts() {
+        productRepository.deleteAllById(productIds);
+    }
+
+    static Result run(int threads, int checkouts, Callable<Boolean> checkout) throws Exception {
+        List<Callable<Boolean>> all = new ArrayList<>();
+        for (int i = 0; i < checkouts; i++) {
+            all.add(checkout);
+        }
+        return run(threads, all);
+    }
+
+    static Result run(int threads, List<Callable<Boolean>> checkouts) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Result result = new Result(checkouts.size());
+        long startedAt = System.nanoTime();
+        try {
+            for (Future<Boolean> future : executor.invokeAll(checkouts)) {
+                try {
+                    if (Boolean.TRUE.equals(future.get())) {
+                        result.successes++;
+                    }
+                } catch (Exception e) {
+                    // Deadlocks and lock wait timeouts surface here
+                    result.failures++;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        result.elapsedNanos = System.nanoTime() - startedAt;
+        return result;
+    }
+
+    static final class Result {
+        final int checkouts;
+        int successes;
+        int failures;
+        long elapsedNanos;
+
+        Result(int checkouts) {
+            this.checkouts = checkouts;
+        }
+
+        double perSecond() {
+            return checkouts * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.ecommerce;
+
+import com.ecommerce.CheckoutLoadHelper.Result;
+import com.ecommerce.entities.Category;
+import com.ecommerce.entities.User;
+import com.ecommerce.repositories.CategoryRepository;
+import com.ecommerce.repositories.ProductRepository;
+import com.ecommerce.repositories.UserRepository;
+import com.ecommerce.utils.FlashSaleInventory;
+import com.ecommerce.utils.ProductDtoCache;
+import com.ecommerce.utils.StockLedger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static com.ecommerce.CheckoutLoadHelper.run;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not @Transactional: every simulated checkout commits on its own, as real ones do. Needs the MySQL
+// database of the test profile (src/test/resources/application-test.properties), since the flash-sale
+// path relies on its locking reads and INSERT ... ON DUPLICATE KEY UPDATE.
+@SpringBootTest
+@ActiveProfiles("test")
+public class FlashSaleLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlashSaleLoadTest.class);
+
+    private static final int THREADS = 32;
+    private static final int SHARDS = 16;
+    private static final int STOCK = 2000;
+    // Twice the stock, so half of the buyers are turned away
+    private static final int CHECKOUTS = 4000;
+
+    @Autowired
+    private FlashSaleInventory flashSaleInventory;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductDtoCache productDtoCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private User testSeller;
+    private Category testCategory;
+    private CheckoutLoadHelper products;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+
+        testSeller = new User();
+        testSeller.setEmail("flashsale@test.com");
+        testSeller.setPassword(passwordEncoder.encode("password"));
+        testSeller.setFirstName("Flash");
+        testSeller.setLastName("Sale");
+        testSeller.setRole(User.Role.ROLE_SELLER);
+        testSeller.setIsActive(true);
+        testSeller.setIsApproved(true);
+        testSeller.setIsBlocked(false);
+        testSeller.setBusinessName("Flash Sale Business");
+        testSeller = userRepository.save(testSeller);
+
+        testCategory = new Category();
+        testCategory.setName("Flash Sale Category");
+        testCategory.setDescription("Test Description");
+        testCategory.setIsActive(true);
+        testCategory = categoryRepository.save(testCategory);
+
+        products = new CheckoutLoadHelper(productRepository, testSeller, testCategory, "Flash Sale Product");
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (Long productId : products.productIds()) {
+            jdbcTemplate.update("DELETE FROM flash_sale_debits WHERE product_id = ?", productId);
+            jdbcTemplate.update("DELETE FROM flash_sale_allocations WHERE product_id = ?", productId);
+            jdbcTemplate.update("DELETE FROM flash_sales WHERE product_id = ?", productId);
+        }
+        flashSaleInventory.reload();
+        products.deleteProducts();
+        categoryRepository.delete(testCategory);
+        userRepository.delete(testSeller);
+    }
+
+    @Test
+    void testFlashSale_NeverOversells() throws Exception {
+        Long productId = products.createProduct(STOCK);
+        enable(productId);
+
+        Result result = run(THREADS, CHECKOUTS, () -> buy(productId, 1));
+        end(productId);
+
+        assertEquals(0, result.failures);
+        assertEquals(STOCK, result.successes);
+        assertEquals(0, products.stockOf(productId));
+        assertEquals(0, pendingOf(productId));
+    }
+
+    // Orders per second on one hot product, against the conditional update every checkout uses
+    // otherwise, where each buyer waits for the row lock of the one before
+    @Test
+    void testFlashSale_ThroughputAgainstConditionalUpdate() throws Exception {
+        Long conditionalId = products.createProduct(STOCK);
+        Result conditional = run(THREADS, CHECKOUTS, () -> transaction.execute(status -> {
+            if (stockLedger.deduct(Map.of(conditionalId, 1)).isEmpty()) {
+                return true;
+            }
+            status.setRollbackOnly();
+            return false;
+        }));
+
+        Long flashId = products.createProduct(STOCK);
+        enable(flashId);
+        Result flash = run(THREADS, CHECKOUTS, () -> buy(flashId, 1));
+        end(flashId);
+
+        logger.info("conditional update: {} orders/s, {} sold, {} failed",
+                Math.round(conditional.perSecond()), conditional.successes, conditional.failures);
+        logger.info("flash sale ({} shards): {} orders/s, {} sold, {} failed",
+                SHARDS, Math.round(flash.perSecond()), flash.successes, flash.failures);
+
+        assertTrue(flash.perSecond() > conditional.perSecond(),
+                "flash sale was not faster than the conditional update");
+        assertEquals(STOCK, conditional.successes);
+        assertEquals(STOCK, flash.successes);
+        assertEquals(0, products.stockOf(conditionalId));
+        assertEquals(0, products.stockOf(flashId));
+    }
+
+    // Checkouts that take several units must not strand partial amounts across shards
+    @Test
+    void testFlashSale_MultiUnitCheckouts_SellEverything() throws Exception {
+        Long productId = products.createProduct(STOCK);
+        enable(productId);
+
+        List<Callable<Boolean>> checkouts = new ArrayList<>();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            int quantity = 1 + i % 3;
+            checkouts.add(() -> buy(productId, quantity));
+        }
+        run(THREADS, checkouts);
+        // Whatever is left is smaller than the smallest order still turned away
+        for (int quantity = 3; quantity >= 1; quantity--) {
+            while (buy(productId, quantity)) {
+                // drain
+            }
+        }
+        end(productId);
+
+        assertEquals(0, products.stockOf(productId));
+        assertEquals(0, pendingOf(productId));
+    }
+
+    @Test
+    void testFlashSale_RolledBackOrdersReturnUnits() {
+        Long productId = products.createProduct(10);
+        enable(productId);
+
+        transaction.execute(status -> {
+            assertTrue(flashSaleInventory.take(new HashMap<>(Map.of(productId, 10))).isEmpty());
+            status.setRollbackOnly();
+            return null;
+        });
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buy(productId, 1));
+        }
+        assertFalse(buy(productId, 1));
+    }
+
+    @Test
+    void testFlashSale_ConditionalUpdateRefusedWhileActive() {
+        Long productId = products.createProduct(10);
+        enable(productId);
+
+        List<Long> insufficient = transaction.execute(status -> {
+            status.setRollbackOnly();
+            return stockLedger.deduct(Map.of(productId, 1));
+        });
+
+        assertEquals(List.of(productId), insufficient);
+    }
+
+    // Each node sells only what it has leased, so two of them together sell the stock exactly once
+    @Test
+    void testFlashSale_TwoNodesNeverOversell() throws Exception {
+        Long productId = products.createProduct(STOCK);
+        enable(productId);
+        FlashSaleInventory otherNode = new FlashSaleInventory();
+        ReflectionTestUtils.setField(otherNode, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(otherNode, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(otherNode, "productDtoCache", productDtoCache);
+        ReflectionTestUtils.setField(otherNode, "leaseUnits", 200);
+        ReflectionTestUtils.setField(otherNode, "leaseSeconds", 15L);
+        otherNode.reload();
+
+        List<Callable<Boolean>> checkouts = new ArrayList<>();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            FlashSaleInventory node = i % 2 == 0 ? flashSaleInventory : otherNode;
+            checkouts.add(() -> buy(node, productId, 1));
+        }
+        Result result = run(THREADS, checkouts);
+        end(productId);
+
+        assertEquals(0, result.failures);
+        assertEquals(STOCK, result.successes);
+        assertEquals(0, products.stockOf(productId));
+        assertEquals(0, pendingOf(productId));
+    }
+
+    // Counters lost on restart are dropped with the node's leases, whose sales reach the product
+    @Test
+    void testFlashSale_RecoversAfterRestartAndEnds() {
+        Long productId = products.createProduct(100);
+        enable(productId);
+        for (int i = 0; i < 30; i++) {
+            assertTrue(buy(productId, 1));
+        }
+
+        flashSaleInventory.reload();
+
+        int sold = 0;
+        while (buy(productId, 1)) {
+            sold++;
+        }
+        assertEquals(70, sold);
+
+        transaction.executeWithoutResult(status -> flashSaleInventory.disable(productId));
+        assertEquals(0, products.stockOf(productId));
+        assertEquals(0, pendingOf(productId));
+        assertFalse(flashSaleInventory.isActive(productId));
+    }
+
+    private boolean buy(Long productId, int quantity) {
+        return buy(flashSaleInventory, productId, quantity);
+    }
+
+    private boolean buy(FlashSaleInventory node, Long productId, int quantity) {
+        return Boolean.TRUE.equals(transaction.execute(status -> {
+            Map<Long, Integer> quantities = new HashMap<>(Map.of(productId, quantity));
+            if (node.take(quantities).isEmpty() && quantities.isEmpty()) {
+                return true;
+            }
+            status.setRollbackOnly();
+            return false;
+        }));
+    }
+
+    private void enable(Long productId) {
+        transaction.executeWithoutResult(status -> flashSaleInventory.enable(productId, SHARDS));
+    }
+
+    // Ending the sale settles every lease, so the product shows what was sold straight away
+    private void end(Long productId) {
+        transaction.executeWithoutResult(status -> flashSaleInventory.disable(productId));
+    }
+
+    private int pendingOf(Long productId) {
+        Integer pending = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(quantity), 0) FROM flash_sale_debits " +
+                "WHERE product_id = ?", Integer.class, productId);
+        return pending != null ? pending : 0;
+    }
+}
@@ -0,0 +1,162 @@
+package com.ecommerce;
+
+import com.ecommerce.utils.InventoryReservations;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Plain unit test: the timer wheel is driven by a clock the test moves by hand
+public class InventoryReservationsTest {
+
+    private static final long PRODUCT = 1L;
+    private static final long OTHER_PRODUCT = 2L;
+    private static final long BUYER = 10L;
+    private static final long OTHER_BUYER = 11L;
+
+    private ManualClock clock;
+    private InventoryReservations reservations;
+
+    @BeforeEach
+    void setUp() {
+        clock = new ManualClock(1_700_000_000_000L);
+        reservations = new InventoryReservations(clock);
+        ReflectionTestUtils.setField(reservations, "holdMinutes", 1L);
+    }
+
+    @Test
+    void testHold_ExpiresAtDeadline() {
+        assertTrue(hold(BUYER, "order_1", PRODUCT, 3).isEmpty());
+
+        clock.advanceSeconds(59);
+        reservations.advance();
+        assertEquals(3, heldFromOthers(PRODUCT));
+
+        clock.advanceSeconds(1);
+        reservations.advance();
+        assertEquals(0, heldFromOthers(PRODUCT));
+        assertEquals(1L, reservations.stats().get("expired"));
+        assertEquals(0, reservations.stats().get("activeHolds"));
+    }
+
+    // Ten minutes is more than one turn of the wheel, so the hold's slot comes round before its deadline
+    @Test
+    void testHold_OutlivesFullTurnsOfTheWheel() {
+        ReflectionTestUtils.setField(reservations, "holdMinutes", 10L);
+        assertTrue(hold(BUYER, "order_1", PRODUCT, 2).isEmpty());
+
+        clock.advanceSeconds(600 - 512);
+        reservations.advance();
+        clock.advanceSeconds(512 - 1);
+        reservations.advance();
+        assertEquals(2, heldFromOthers(PRODUCT));
+        assertEquals(0L, reservations.stats().get("expired"));
+
+        clock.advanceSeconds(1);
+        reservations.advance();
+        assertEquals(0, heldFromOthers(PRODUCT));
+        assertEquals(1L, reservations.stats().get("expired"));
+    }
+
+    @Test
+    void testHold_ReplacesThePreviousHold() {
+        assertTrue(hold(BUYER, "order_1", PRODUCT, 3).isEmpty());
+        clock.advanceSeconds(30);
+        assertTrue(hold(BUYER, "order_2", OTHER_PRODUCT, 1).isEmpty());
+
+        assertEquals(0, heldFromOthers(PRODUCT));
+        assertEquals(1, heldFromOthers(OTHER_PRODUCT));
+
+        // The first hold's deadline passes without ending the one that replaced it
+        clock.advanceSeconds(30);
+        reservations.advance();
+        assertEquals(1, heldFromOthers(OTHER_PRODUCT));
+        assertEquals(0L, reservations.stats().get("expired"));
+
+        clock.advanceSeconds(30);
+        reservations.advance();
+        assertEquals(0, heldFromOthers(OTHER_PRODUCT));
+        assertEquals(1L, reservations.stats().get("expired"));
+    }
+
+    @Test
+    void testHold_RefusedWhenOthersHoldTheStock() {
+        assertTrue(hold(BUYER, "order_1", PRODUCT, 4).isEmpty());
+
+        assertEquals(List.of(PRODUCT), hold(OTHER_BUYER, "order_2", PRODUCT, 2));
+        assertTrue(hold(OTHER_BUYER, "order_2", PRODUCT, 1).isEmpty());
+        // A user's own hold does not count against them
+        assertTrue(hold(BUYER, "order_3", PRODUCT, 4).isEmpty());
+    }
+
+    @Test
+    void testRelease_OnlyByTheHoldingUser() {
+        assertTrue(hold(BUYER, "order_1", PRODUCT, 3).isEmpty());
+
+        reservations.release(OTHER_BUYER, "order_1");
+        assertEquals(3, heldFromOthers(PRODUCT));
+
+        reservations.release(BUYER, "order_1");
+        assertEquals(0, heldFromOthers(PRODUCT));
+    }
+
+    @Test
+    void testRename_MovesTheHoldToTheNewReference() {
+        assertTrue(hold(BUYER, "pending_1", PRODUCT, 3).isEmpty());
+        reservations.rename("pending_1", "order_1");
+
+        reservations.release(BUYER, "pending_1");
+        assertEquals(3, heldFromOthers(PRODUCT));
+
+        reservations.release(BUYER, "order_1");
+        assertEquals(0, heldFromOthers(PRODUCT));
+    }
+
+    private List<Long> hold(Long userId, String reference, long productId, int quantity) {
+        return reservations.hold(userId, reference, Map.of(productId, quantity), Map.of(productId, 5));
+    }
+
+    private int heldFromOthers(long productId) {
+        return reservations.heldByOthers(List.of(productId), null).getOrDefault(productId, 0);
+    }
+
+    private static final class ManualClock extends Clock {
+        private long millis;
+
+        ManualClock(long millis) {
+            this.millis = millis;
+        }
+
+        void advanceSeconds(long seconds) {
+            millis += seconds * 1000L;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.ecommerce;
+
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.ProductDto;
+import com.ecommerce.entities.Category;
+import com.ecommerce.entities.Product;
+import com.ecommerce.entities.SubCategory;
+import com.ecommerce.entities.User;
+import com.ecommerce.repositories.CategoryRepository;
+import com.ecommerce.repositories.ProductRepository;
+import com.ecommerce.repositories.SubCategoryRepository;
+import com.ecommerce.repositories.UserRepository;
+import com.ecommerce.services.ProductService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Hibernate statistics are global, and the async index rebuilds started at boot issue statements of
+// their own; the inspector counts only what the test thread prepares
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.ecommerce.ProductListingQueryCountTest$ThreadStatements")
+@ActiveProfiles("test")
+@Transactional
+public class ProductListingQueryCountTest {
+
+    private static final int PRODUCTS = 6;
+    private static final int PAGE_SIZE = 4;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private SubCategoryRepository subCategoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User testSeller;
+
+    @BeforeEach
+    void setUp() {
+        testSeller = new User();
+        testSeller.setEmail("querycount@test.com");
+        testSeller.setPassword(passwordEncoder.encode("password"));
+        testSeller.setFirstName("Query");
+        testSeller.setLastName("Count");
+        testSeller.setRole(User.Role.ROLE_SELLER);
+        testSeller.setIsActive(true);
+        testSeller.setIsApproved(true);
+        testSeller.setIsBlocked(false);
+        testSeller.setBusinessName("Query Count Business");
+        testSeller = userRepository.save(testSeller);
+
+        Category category = new Category();
+        category.setName("Query Count Category");
+        category.setDescription("Test Description");
+        category.setIsActive(true);
+        category = categoryRepository.save(category);
+
+        SubCategory subCategory = new SubCategory();
+        subCategory.setName("Query Count Subcategory");
+        subCategory.setCategory(category);
+        subCategory.setIsActive(true);
+        subCategory = subCategoryRepository.save(subCategory);
+
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("Query Count Product " + i);
+            product.setDescription("Test Description");
+            product.setPrice(new BigDecimal("100.00"));
+            product.setDiscountPrice(new BigDecimal("90.00"));
+            product.setStockQuantity(10);
+            product.setSeller(testSeller);
+            product.setCategory(category);
+            product.setSubCategory(subCategory);
+            product.setIsApproved(true);
+            product.setImages(List.of("/uploads/a" + i + ".jpg", "/uploads/b" + i + ".jpg"));
+            productRepository.save(product);
+        }
+
+        // Start from an empty persistence context so every association has to come from the database
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void testOffsetPage_FixedStatementCount() {
+        Page<ProductDto> page = countStatements(() -> productService.getProductsBySeller(testSeller.getId(), 0, PAGE_SIZE), 4);
+
+        // page + count + associations + images
+        assertEquals(PAGE_SIZE, page.getContent().size());
+        assertEquals(PRODUCTS, page.getTotalElements());
+        page.getContent().forEach(this::assertFullyMapped);
+    }
+
+    @Test
+    void testCursorPage_FixedStatementCount() {
+        CursorPage<ProductDto> page = countStatements(
+                () -> productService.getProductsBySeller(testSeller.getId(), null, PAGE_SIZE, null, false), 3);
+
+        // page + associations + images; no count unless asked for
+        assertEquals(PAGE_SIZE, page.getContent().size());
+        assertTrue(page.getHasNext());
+        page.getContent().forEach(this::assertFullyMapped);
+    }
+
+    @Test
+    void testStatementCount_IndependentOfPageSize() {
+        long small = statementsFor(() -> productService.getProductsBySeller(testSeller.getId(), null, 2, null, false));
+        entityManager.clear();
+        long large = statementsFor(() -> productService.getProductsBySeller(testSeller.getId(), null, PRODUCTS, null, false));
+
+        assertEquals(small, large);
+    }
+
+    @Test
+    void testGetProductById_FixedStatementCount() {
+        Long productId = productRepository.findBySellerIdAndIsActiveTrue(testSeller.getId()).get(0).getId();
+        entityManager.clear();
+
+        ProductDto product = countStatements(() -> productService.getProductById(productId), 3);
+
+        assertFullyMapped(product);
+    }
+
+    private <T> T countStatements(Supplier<T> action, long expectedStatements) {
+        ThreadStatements.start();
+        try {
+            T result = action.get();
+            assertEquals(expectedStatements, ThreadStatements.count());
+            return result;
+        } finally {
+            ThreadStatements.stop();
+        }
+    }
+
+    private long statementsFor(Runnable action) {
+        ThreadStatements.start();
+        try {
+            action.run();
+            return ThreadStatements.count();
+        } finally {
+            ThreadStatements.stop();
+        }
+    }
+
+    private void assertFullyMapped(ProductDto product) {
+        assertEquals(testSeller.getId(), product.getSellerId());
+        assertEquals("Query Count", product.getSellerName());
+        assertEquals("Query Count Category", product.getCategoryName());
+        assertEquals("Query Count Subcategory", product.getSubCategoryName());
+        assertEquals(2, product.getImages().size());
+    }
+
+    public static class ThreadStatements implements StatementInspector {
+
+        private static final ThreadLocal<long[]> COUNTER = new ThreadLocal<>();
+
+        static void start() {
+            COUNTER.set(new long[1]);
+        }
+
+        static long count() {
+            return COUNTER.get()[0];
+        }
+
+        static void stop() {
+            COUNTER.remove();
+        }
+
+        @Override
+        public String inspect(String sql) {
+            long[] counter = COUNTER.get();
+            if (counter != null) {
+                counter[0]++;
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.ecommerce;
+
+import com.ecommerce.dto.CheckoutRequest;
+import com.ecommerce.dto.OrderDto;
+import com.ecommerce.entities.Address;
+import com.ecommerce.entities.Category;
+import com.ecommerce.entities.Order;
+import com.ecommerce.entities.OrderItem;
+import com.ecommerce.entities.Product;
+import com.ecommerce.entities.User;
+import com.ecommerce.repositories.AddressRepository;
+import com.ecommerce.repositories.CartRepository;
+import com.ecommerce.repositories.CategoryRepository;
+import com.ecommerce.repositories.OrderRepository;
+import com.ecommerce.repositories.ProductRepository;
+import com.ecommerce.repositories.UserRepository;
+import com.ecommerce.services.CartService;
+import com.ecommerce.services.OrderService;
+import com.ecommerce.utils.RelatedProductsIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not @Transactional: orders are counted once their transaction commits
+@SpringBootTest
+@ActiveProfiles("test")
+public class RelatedProductsIndexTest {
+
+    @Autowired
+    private RelatedProductsIndex relatedProductsIndex;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private User testUser;
+    private Category testCategory;
+    private Address testAddress;
+    private final List<Long> productIds = new ArrayList<>();
+    private final List<Long> orderIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        testUser = new User();
+        testUser.setEmail("related@test.com");
+        testUser.setPassword(passwordEncoder.encode("password"));
+        testUser.setFirstName("Related");
+        testUser.setLastName("Products");
+        testUser.setRole(User.Role.ROLE_SELLER);
+        testUser.setIsActive(true);
+        testUser.setIsApproved(true);
+        testUser.setIsBlocked(false);
+        testUser.setBusinessName("Related Products Business");
+        testUser = userRepository.save(testUser);
+
+        testCategory = new Category();
+        testCategory.setName("Related Products Category");
+        testCategory.setDescription("Test Description");
+        testCategory.setIsActive(true);
+        testCategory = categoryRepository.save(testCategory);
+
+        testAddress = new Address();
+        testAddress.setUser(testUser);
+        testAddress.setStreet("1 Test Street");
+        testAddress.setCity("Test City");
+        testAddress.setState("Test State");
+        testAddress.setZipCode("000000");
+        testAddress.setCountry("India");
+        testAddress.setAddressType("HOME");
+        testAddress = addressRepository.save(testAddress);
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAllById(orderIds);
+        cartRepository.findByUserId(testUser.getId()).ifPresent(cartRepository::delete);
+        productRepository.deleteAllById(productIds);
+        addressRepository.delete(testAddress);
+        categoryRepository.delete(testCategory);
+        userRepository.delete(testUser);
+    }
+
+    @Test
+    void testRecordOrder_CountsEveryPairOnce() {
+        Long first = createProduct();
+        Long second = createProduct();
+        Long third = createProduct();
+
+        // Duplicate lines of one product count once
+        relatedProductsIndex.recordOrder(null, List.of(first, second, third, first));
+
+        assertEquals(1, relatedProductsIndex.count(first, second));
+        assertEquals(1, relatedProductsIndex.count(second, first));
+        assertEquals(1, relatedProductsIndex.count(first, third));
+        assertEquals(1, relatedProductsIndex.count(third, second));
+        assertEquals(0, relatedProductsIndex.count(first, first));
+        assertTrue(relatedProductsIndex.related(first).containsAll(List.of(second, third)));
+    }
+
+    @Test
+    void testCreateOrder_RecordsPairs() {
+        Long first = createProduct();
+        Long second = createProduct();
+        cartService.addToCart(testUser.getId(), first, 1);
+        cartService.addToCart(testUser.getId(), second, 2);
+
+        CheckoutRequest request = new CheckoutRequest();
+        request.setAddressId(testAddress.getId());
+        request.setPaymentMethod("TEST");
+        OrderDto order = orderService.createOrderWithPaymentMethod(testUser.getId(), request);
+        orderIds.add(order.getId());
+
+        assertEquals(1, relatedProductsIndex.count(first, second));
+        assertEquals(1, relatedProductsIndex.count(second, first));
+        assertEquals(List.of(second), relatedProductsIndex.related(first));
+    }
+
+    @Test
+    void testRebuild_CountsOrderItemsExceptCancelledAndReturned() throws InterruptedException {
+        Long first = createProduct();
+        Long second = createProduct();
+        Long third = createProduct();
+        createOrder(Order.OrderStatus.DELIVERED, List.of(first, second));
+        createOrder(Order.OrderStatus.CANCELLED, List.of(first, third));
+        createOrder(Order.OrderStatus.RETURNED, List.of(second, third));
+
+        rebuildNow();
+
+        assertEquals(1, relatedProductsIndex.count(first, second));
+        assertEquals(1, relatedProductsIndex.count(second, first));
+        assertEquals(0, relatedProductsIndex.count(first, third));
+        assertEquals(0, relatedProductsIndex.count(second, third));
+        assertEquals(List.of(second), relatedProductsIndex.related(first));
+    }
+
+    @Test
+    void testRebuild_TrimsRowsToStrongestNeighbours() throws InterruptedException {
+        // Orders are capped at 50 distinct products, so the hub gets 49 new neighbours per order;
+        // five of them give it 245, more than the 200 a row keeps after a rebuild
+        Long hub = createProduct();
+        List<Long> neighbours = new ArrayList<>();
+        for (int i = 0; i < 245; i++) {
+            neighbours.add(createProduct());
+        }
+        for (int start = 0; start < neighbours.size(); start += 49) {
+            List<Long> products = new ArrayList<>(List.of(hub));
+            products.addAll(neighbours.subList(start, start + 49));
+            createOrder(Order.OrderStatus.DELIVERED, products);
+        }
+        List<Long> strong = neighbours.subList(0, 10);
+        List<Long> products = new ArrayList<>(List.of(hub));
+        products.addAll(strong);
+        createOrder(Order.OrderStatus.DELIVERED, products);
+
+        rebuildNow();
+
+        long kept = neighbours.stream().filter(id -> relatedProductsIndex.count(hub, id) > 0).count();
+        assertEquals(200, kept);
+        for (Long id : strong) {
+            assertEquals(2, relatedProductsIndex.count(hub, id));
+        }
+        List<Long> related = relatedProductsIndex.related(hub);
+        assertEquals(RelatedProductsIndex.TOP_K, related.size());
+        assertTrue(related.subList(0, strong.size()).containsAll(strong));
+    }
+
+    @Test
+    void testUpdateOrderStatus_DoesNotCountOrderAgain() {
+        Long first = createProduct();
+        Long second = createProduct();
+        Order order = createOrder(Order.OrderStatus.PENDING, List.of(first, second));
+        relatedProductsIndex.recordOrder(order.getId(), List.of(first, second));
+        assertEquals(1, relatedProductsIndex.count(first, second));
+
+        orderService.updateOrderStatus(order.getId(), "SHIPPED");
+        orderService.updateOrderStatus(order.getId(), "DELIVERED");
+        orderService.updateOrderStatus(order.getId(), "RETURNED");
+
+        assertEquals(1, relatedProductsIndex.count(first, second));
+        assertEquals(1, relatedProductsIndex.count(second, first));
+    }
+
+    private Long createProduct() {
+        Product product = new Product();
+        product.setName("Related Product " + productIds.size());
+        product.setDescription("Test Description");
+        product.setPrice(new BigDecimal("100.00"));
+        product.setDiscountPrice(new BigDecimal("90.00"));
+        product.setStockQuantity(10);
+        product.setSeller(testUser);
+        product.setCategory(testCategory);
+        product.setIsApproved(true);
+        Long id = productRepository.save(product).getId();
+        productIds.add(id);
+        return id;
+    }
+
+    // rebuild() is @Async; run it on the test thread instead, once the startup rebuild is out of the
+    // way, since a rebuild asked for while another runs is skipped
+    private void rebuildNow() throws InterruptedException {
+        RelatedProductsIndex index = AopTestUtils.getTargetObject(relatedProductsIndex);
+        AtomicBoolean rebuilding = (AtomicBoolean) ReflectionTestUtils.getField(index, "rebuilding");
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (rebuilding.get()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Startup rebuild still running after 10 s");
+            Thread.sleep(20);
+        }
+        index.rebuild();
+    }
+
+    private Order createOrder(Order.OrderStatus status, List<Long> products) {
+        Order order = new Order();
+        order.setOrderNumber("REL-" + UUID.randomUUID());
+        order.setUser(testUser);
+        order.setShippingAddress(testAddress);
+        order.setTotalAmount(new BigDecimal("180.00"));
+        order.setFinalAmount(new BigDecimal("180.00"));
+        order.setCreatedAt(LocalDateTime.now());
+        order.setStatus(status);
+        for (Long productId : products) {
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProduct(productRepository.findById(productId).orElseThrow());
+            item.setQuantity(1);
+            item.setPrice(new BigDecimal("90.00"));
+            item.setTotalPrice(new BigDecimal("90.00"));
+            order.getOrderItems().add(item);
+        }
+        Order saved = orderRepository.save(order);
+        orderIds.add(saved.getId());
+        return saved;
+    }
+}
@@ -0,0 +1,183 @@
+package com.ecommerce;
+
+import com.ecommerce.CheckoutLoadHelper.Result;
+import com.ecommerce.entities.Category;
+import com.ecommerce.entities.User;
+import com.ecommerce.repositories.CategoryRepository;
+import com.ecommerce.repositories.ProductRepository;
+import com.ecommerce.repositories.UserRepository;
+import com.ecommerce.utils.StockLedger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static com.ecommerce.CheckoutLoadHelper.run;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not @Transactional: every simulated checkout commits on its own, as real ones do
+@SpringBootTest
+@ActiveProfiles("test")
+public class StockDeductionStressTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockDeductionStressTest.class);
+
+    private static final int THREADS = 16;
+    private static final int STOCK = 200;
+    // Twice the stock, so half of the checkouts have to be turned away
+    private static final int CHECKOUTS = 400;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private User testSeller;
+    private Category testCategory;
+    private CheckoutLoadHelper products;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+
+        testSeller = new User();
+        testSeller.setEmail("stockstress@test.com");
+        testSeller.setPassword(passwordEncoder.encode("password"));
+        testSeller.setFirstName("Stock");
+        testSeller.setLastName("Stress");
+        testSeller.setRole(User.Role.ROLE_SELLER);
+        testSeller.setIsActive(true);
+        testSeller.setIsApproved(true);
+        testSeller.setIsBlocked(false);
+        testSeller.setBusinessName("Stock Stress Business");
+        testSeller = userRepository.save(testSeller);
+
+        testCategory = new Category();
+        testCategory.setName("Stock Stress Category");
+        testCategory.setDescription("Test Description");
+        testCategory.setIsActive(true);
+        testCategory = categoryRepository.save(testCategory);
+
+        products = new CheckoutLoadHelper(productRepository, testSeller, testCategory, "Stock Stress Product");
+    }
+
+    @AfterEach
+    void tearDown() {
+        products.deleteProducts();
+        categoryRepository.delete(testCategory);
+        userRepository.delete(testSeller);
+    }
+
+    @Test
+    void testConditionalDeduction_NeverOversells() throws Exception {
+        Long productId = products.createProduct(STOCK);
+
+        Result result = run(THREADS, CHECKOUTS, () -> transaction.execute(status -> {
+            if (stockLedger.deduct(Map.of(productId, 1)).isEmpty()) {
+                return true;
+            }
+            status.setRollbackOnly();
+            return false;
+        }));
+
+        assertEquals(0, result.failures);
+        assertEquals(STOCK, result.successes);
+        assertEquals(0, products.stockOf(productId));
+    }
+
+    // Checkouts taking the same two products, listed in opposite orders, must not deadlock
+    @Test
+    void testConditionalDeduction_OppositeLineOrders_NoDeadlock() throws Exception {
+        Long first = products.createProduct(STOCK);
+        Long second = products.createProduct(STOCK);
+
+        List<Callable<Boolean>> checkouts = new ArrayList<>();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            Map<Long, Integer> lines = new LinkedHashMap<>();
+            lines.put(i % 2 == 0 ? first : second, 1);
+            lines.put(i % 2 == 0 ? second : first, 1);
+            checkouts.add(() -> transaction.execute(status -> {
+                if (stockLedger.deduct(lines).isEmpty()) {
+                    return true;
+                }
+                status.setRollbackOnly();
+                return false;
+            }));
+        }
+        Result result = run(THREADS, checkouts);
+
+        assertEquals(0, result.failures);
+        assertEquals(STOCK, result.successes);
+        assertEquals(0, products.stockOf(first));
+        assertEquals(0, products.stockOf(second));
+    }
+
+    // The read-modify-write this replaced, as a baseline: it sells more than there was, and it
+    // holds each transaction open across a read and a write, so it is also the slower of the two
+    @Test
+    void testConditionalDeduction_ThroughputAgainstReadModifyWrite() throws Exception {
+        Long baselineId = products.createProduct(STOCK);
+        Result baseline = run(THREADS, CHECKOUTS, () -> transaction.execute(status -> {
+            Integer stock = jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?",
+                    Integer.class, baselineId);
+            if (stock == null || stock < 1) {
+                return false;
+            }
+            jdbcTemplate.update("UPDATE products SET stock_quantity = ? WHERE id = ?", stock - 1, baselineId);
+            return true;
+        }));
+        int baselineOversold = baseline.successes - (STOCK - products.stockOf(baselineId));
+
+        Long conditionalId = products.createProduct(STOCK);
+        Result conditional = run(THREADS, CHECKOUTS, () -> transaction.execute(status -> {
+            if (stockLedger.deduct(Map.of(conditionalId, 1)).isEmpty()) {
+                return true;
+            }
+            status.setRollbackOnly();
+            return false;
+        }));
+
+        logger.info("read-modify-write: {} checkouts/s, {} oversold, {} failed",
+                Math.round(baseline.perSecond()), baselineOversold, baseline.failures);
+        logger.info("conditional update: {} checkouts/s, 0 oversold, {} failed",
+                Math.round(conditional.perSecond()), conditional.failures);
+
+        assertTrue(baselineOversold > 0, "read-modify-write did not oversell");
+        assertTrue(conditional.perSecond() >= baseline.perSecond(),
+                "conditional update was slower than read-modify-write");
+        assertEquals(0, conditional.failures);
+        assertEquals(STOCK, conditional.successes);
+        assertEquals(0, products.stockOf(conditionalId));
+    }
+}